@@ -2,6 +2,7 @@ plugins {
 	java
 	id("org.springframework.boot") version "4.0.0"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.example"
@@ -20,6 +21,7 @@ repositories {
 
 dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-data-jpa")
+	implementation("org.springframework.boot:spring-boot-starter-flyway")
 	implementation("org.springframework.boot:spring-boot-starter-security")
 	implementation("org.springframework.boot:spring-boot-starter-thymeleaf")
 	implementation("org.springframework.boot:spring-boot-starter-validation")
@@ -27,6 +29,7 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-webmvc")
 	implementation("org.thymeleaf.extras:thymeleaf-extras-springsecurity6")
 	runtimeOnly("org.postgresql:postgresql")
+	runtimeOnly("org.flywaydb:flyway-database-postgresql")
 	testImplementation("org.springframework.boot:spring-boot-starter-data-jpa-test")
 	testImplementation("org.springframework.boot:spring-boot-starter-security-test")
 	testImplementation("org.springframework.boot:spring-boot-starter-thymeleaf-test")
@@ -40,8 +43,31 @@ dependencies {
 	implementation("org.passay:passay:1.6.6")
 	implementation("org.bouncycastle:bcprov-jdk18on:1.78")
 	implementation("net.datafaker:datafaker:2.4.1")
+	implementation("org.apache.parquet:parquet-hadoop:1.15.2")
+	implementation("org.apache.hadoop:hadoop-common:3.4.1") {
+		// Нужен только для Configuration и кодеков parquet-hadoop, серверные зависимости не тянем
+		exclude(group = "org.eclipse.jetty")
+		exclude(group = "com.sun.jersey")
+		exclude(group = "javax.servlet")
+		exclude(group = "org.apache.zookeeper")
+		exclude(group = "org.apache.curator")
+		exclude(group = "org.apache.kerby")
+		exclude(group = "ch.qos.reload4j")
+		exclude(group = "org.slf4j", module = "slf4j-reload4j")
+	}
 }
 
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+// Бенчмарки горячих путей (src/jmh): ./gradlew jmh [-PjmhIncludes=Avatar]
+// Пропускная способность и задержка задаются в классах, аллокации — профилировщиком gc
+jmh {
+	jmhVersion = "1.37"
+	profilers = listOf("gc")
+	resultFormat = "JSON"
+	resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+	jvmArgs = listOf("-Djava.awt.headless=true")
+	providers.gradleProperty("jmhIncludes").orNull?.let { includes = listOf(it) }
+}
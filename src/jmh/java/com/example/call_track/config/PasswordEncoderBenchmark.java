@@ -0,0 +1,46 @@
+package com.example.call_track.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Argon2 encoder from {@link PasswordEncoderConfig} with the parameters of application.properties:
+ * hashing on registration and password change, matching on every login. Measured without the bounded
+ * executor, so the numbers are the cost of one hash on one thread.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordEncoderBenchmark {
+    private static final String PASSWORD = "Kx7#mPq2!vRt";
+
+    @Param({"65536"})
+    private int memory;
+
+    @Param({"3"})
+    private int iterations;
+
+    private PasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        encoder = PasswordEncoderConfig.argon2(32, 32, 4, memory, iterations);
+        hash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, hash);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.call_track.dto.call;
+
+import com.example.call_track.entity.user.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of a call row to the {@link CallDto} returned by the call list, for a participant and for an admin.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallDtoMapperBenchmark {
+    private final CallDtoMapper mapper = new CallDtoMapper();
+    private CallRow row;
+    private User callee;
+
+    @Setup
+    public void setUp() {
+        UUID callerId = UUID.randomUUID();
+        UUID calleeId = UUID.randomUUID();
+        callee = User.builder().id(calleeId).username("callee").build();
+        row = CallRow.builder()
+                .id(UUID.randomUUID())
+                .callDateTime(LocalDateTime.of(2025, 3, 14, 9, 26, 53))
+                .durationSeconds(187)
+                .pricePerMinute(new BigDecimal("0.08"))
+                .totalCost(new BigDecimal("0.25"))
+                .callerUserId(callerId)
+                .callerPhone("+375291234567")
+                .callerFirstName("Иван")
+                .callerLastName("Петров")
+                .callerMiddleName("Сергеевич")
+                .calleeUserId(calleeId)
+                .calleePhone("+375337654321")
+                .calleeFirstName("Анна")
+                .calleeLastName("Смирнова")
+                .build();
+    }
+
+    @Benchmark
+    public CallDto toDtoForParticipant() {
+        return mapper.toDto(row, callee);
+    }
+
+    @Benchmark
+    public CallDto toDtoForAdmin() {
+        return mapper.toDto(row, null);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.call_track.service;
+
+import com.example.call_track.utils.AvatarImages;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AvatarService#generateAvatar}: drawing the initials and writing the PNG sizes into a temporary upload
+ * directory; and the upload pipeline on a 12 MP photo: decoding, resizing and JPEG encoding, without files.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvatarServiceBenchmark {
+    private static final int[] SIZES = {48, 96, 256};
+
+    private AvatarService avatarService;
+    private Path uploadDir;
+    private byte[] photo;
+
+    @Setup
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("avatar-benchmark");
+        avatarService = new AvatarService(null, null);
+        set("uploadDir", uploadDir.toString());
+        set("sizes", SIZES);
+
+        BufferedImage image = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.ORANGE, 4000, 3000, Color.BLUE));
+        g.fillRect(0, 0, 4000, 3000);
+        g.dispose();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", bytes);
+        photo = bytes.toByteArray();
+    }
+
+    // Файлы удаляются между итерациями, чтобы каталог не разрастался
+    @TearDown(Level.Iteration)
+    public void cleanUp() throws IOException {
+        FileSystemUtils.deleteRecursively(uploadDir.resolve("avatars"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(uploadDir);
+    }
+
+    @Benchmark
+    public String generateAvatar() {
+        return avatarService.generateAvatar("Иван", "Петров");
+    }
+
+    @Benchmark
+    public int resizeUpload() throws IOException {
+        BufferedImage current = AvatarImages.decodeSquare(photo, SIZES[SIZES.length - 1]);
+        int bytes = 0;
+        for (int i = SIZES.length - 1; i >= 0; i--) {
+            current = AvatarImages.resize(current, SIZES[i]);
+            bytes += AvatarImages.encode(current, "jpg", 0.85f).length;
+        }
+        return bytes;
+    }
+
+    private void set(String name, Object value) {
+        Field field = ReflectionUtils.findField(AvatarService.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, avatarService, value);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.call_track.service;
+
+import com.example.call_track.utils.TariffTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a call: {@link CallService#calculateTotalCost} with an explicit price and rating by
+ * the prefix tariff table, which bulk import and ingestion use per row.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallCostBenchmark {
+    private final BigDecimal pricePerMinute = new BigDecimal("0.10");
+    private TariffTable tariffs;
+    private long durationSeconds;
+    private int secondOfDay;
+
+    @Setup
+    public void setUp() {
+        tariffs = TariffTable.builder()
+                .band("", 0, 0, 10, 1, 1, null)
+                .band("375", 8 * 3600, 20 * 3600, 8, 60, 1, null)
+                .band("375", 20 * 3600, 8 * 3600, 5, 60, 1, null)
+                .band("37529", 0, 0, 6, 60, 1, null)
+                .band("7", 0, 0, 25, 60, 60, null)
+                .build();
+    }
+
+    // Поля не final и меняются между итерациями, чтобы JIT не свернул расчет в константу
+    @Setup(Level.Iteration)
+    public void nextCall() {
+        durationSeconds = 1 + (durationSeconds * 31 + 17) % 3600;
+        secondOfDay = (secondOfDay + 12_345) % 86_400;
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotalCost() {
+        return CallService.calculateTotalCost(durationSeconds, pricePerMinute);
+    }
+
+    @Benchmark
+    public long tariffRating() {
+        int band = tariffs.match("+375291234567", secondOfDay);
+        return tariffs.cost(band, durationSeconds);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.call_track.spec;
+
+import com.example.call_track.entity.PhoneNumber;
+import com.example.call_track.entity.call.Call;
+import com.example.call_track.entity.call.CallParty;
+import com.example.call_track.entity.call.Tariff;
+import com.example.call_track.entity.user.User;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the search predicates of {@link CallSpecifications#filterAll} and the sort of {@link CallSpecifications#buildSort}.
+ * Hibernate is bootstrapped with the PostgreSQL dialect and without a connection, so only criteria building is measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallSpecificationsBenchmark {
+    private SessionFactory sessionFactory;
+    private CriteriaBuilder cb;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(PhoneNumber.class)
+                .addAnnotatedClass(Call.class)
+                .addAnnotatedClass(CallParty.class)
+                .addAnnotatedClass(Tariff.class)
+                .setProperty("hibernate.dialect", PostgreSQLDialect.class.getName())
+                .setProperty("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .buildSessionFactory();
+        cb = sessionFactory.getCriteriaBuilder();
+        user = User.builder().id(UUID.randomUUID()).username("benchmark").build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    // Пользователь без фильтров: только условие участия в звонке
+    @Benchmark
+    public Predicate filterAllUserOnly() {
+        return toPredicate(CallSpecifications.filterAll(user, null, null, null, null, null, null, null, null));
+    }
+
+    // Все фильтры формы истории звонков
+    @Benchmark
+    public Predicate filterAllEveryFilter() {
+        return toPredicate(CallSpecifications.filterAll(user, "иван петров", "+375291234567, +375331234567", "29 123",
+                "OUTGOING", "2025-01-01T00:00:00", "2025-12-31T23:59:59", new BigDecimal("0.10"), new BigDecimal("10.00")));
+    }
+
+    // Админ: поиск по всем участникам
+    @Benchmark
+    public Predicate filterAllAdmin() {
+        return toPredicate(CallSpecifications.filterAll(null, "петров", null, "375", null,
+                "2025-01-01T00:00:00", null, null, null));
+    }
+
+    @Benchmark
+    public Sort buildSort() {
+        return CallSpecifications.buildSort("cost", "asc");
+    }
+
+    @Benchmark
+    public Sort buildSortDefault() {
+        return CallSpecifications.buildSort(null, null);
+    }
+
+    private Predicate toPredicate(Specification<Call> specification) {
+        CriteriaQuery<Call> query = cb.createQuery(Call.class);
+        Root<Call> root = query.from(Call.class);
+        return specification.toPredicate(root, query, cb);
+    }
+}
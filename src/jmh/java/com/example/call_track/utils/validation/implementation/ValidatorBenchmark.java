@@ -0,0 +1,71 @@
+package com.example.call_track.utils.validation.implementation;
+
+import com.example.call_track.utils.validation.ValidPassword;
+import com.example.call_track.utils.validation.ValidPhoneNumber;
+import jakarta.validation.ConstraintValidatorContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PhoneNumberValidator} and {@link PasswordValidator} on valid and invalid input,
+ * initialized from the same annotations as the registration form uses.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidatorBenchmark {
+    @ValidPhoneNumber
+    @ValidPassword
+    private String annotated;
+
+    private PhoneNumberValidator phoneNumberValidator;
+    private PasswordValidator passwordValidator;
+    private ConstraintValidatorContext context;
+
+    @Setup
+    public void setUp() throws NoSuchFieldException {
+        var field = ValidatorBenchmark.class.getDeclaredField("annotated");
+        phoneNumberValidator = new PhoneNumberValidator();
+        phoneNumberValidator.initialize(field.getAnnotation(ValidPhoneNumber.class));
+        passwordValidator = new PasswordValidator();
+        passwordValidator.initialize(field.getAnnotation(ValidPassword.class));
+        context = stub(ConstraintValidatorContext.class);
+    }
+
+    @Benchmark
+    public boolean validPhoneNumber() {
+        return phoneNumberValidator.isValid("+375291234567", context);
+    }
+
+    @Benchmark
+    public boolean invalidPhoneNumber() {
+        return phoneNumberValidator.isValid("+37529123", context);
+    }
+
+    @Benchmark
+    public boolean validPassword() {
+        return passwordValidator.isValid("Kx7#mPq2!vRt", context);
+    }
+
+    // Неверный пароль дороже: Passay собирает сообщения обо всех нарушенных правилах
+    @Benchmark
+    public boolean invalidPassword() {
+        return passwordValidator.isValid("qwerty12345", context);
+    }
+
+    // Контекст валидации без Hibernate Validator: методы-построители возвращают такие же заглушки
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Class<?> returnType = method.getReturnType();
+            if (returnType.isInterface()) return stub(returnType);
+            if (returnType == boolean.class) return false;
+            return null;
+        });
+    }
+}
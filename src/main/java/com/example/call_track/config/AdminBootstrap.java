@@ -4,8 +4,8 @@ package com.example.call_track.config;
 import com.example.call_track.entity.user.User;
 import com.example.call_track.entity.user.UserRole;
 import com.example.call_track.repository.UserRepository;
+import com.example.call_track.service.AdminJobService;
 import com.example.call_track.service.AvatarService;
-import com.example.call_track.service.FakeDataService;
 import com.example.call_track.service.PhoneNumberService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -22,7 +22,7 @@ public class AdminBootstrap implements ApplicationRunner {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AvatarService avatarService;
-    private final FakeDataService fakeDataService;
+    private final AdminJobService adminJobService;
     private final PhoneNumberService phoneNumberService;
 
     @Value("${app.admin.create-default:true}")
@@ -57,10 +57,10 @@ public class AdminBootstrap implements ApplicationRunner {
 
         if (createFakeDataOnStartup) {
             try {
-                fakeDataService.generateFakeData();
-                System.out.println("Fake data generated successfully");
+                // Generation runs in the background, startup does not wait for it
+                System.out.println("Fake data generation started as job " + adminJobService.fakeData().getId());
             } catch (Exception e) {
-                System.err.println("Failed to generate fake data: " + e.getMessage());
+                System.err.println("Failed to start fake data generation: " + e.getMessage());
             }
         }
     }
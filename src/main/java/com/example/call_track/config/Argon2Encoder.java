@@ -0,0 +1,88 @@
+package com.example.call_track.config;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Argon2id with known cost parameters. Unlike {@link Argon2PasswordEncoder#upgradeEncoding}, which only
+ * asks for an upgrade when a stored hash is cheaper, any hash whose memory, iterations or parallelism
+ * differ from the current ones is upgraded, so after calibration every node converges on the same cost.
+ * Verification reads the parameters from the hash itself and works for hashes of any cost.
+ */
+public final class Argon2Encoder implements PasswordEncoder {
+    private final Argon2PasswordEncoder delegate;
+    private final int saltLength;
+    private final int hashLength;
+    private final int parallelism;
+    private final int memory;
+    private final int iterations;
+
+    public Argon2Encoder(int saltLength, int hashLength, int parallelism, int memory, int iterations) {
+        this.delegate = new Argon2PasswordEncoder(saltLength, hashLength, parallelism, memory, iterations);
+        this.saltLength = saltLength;
+        this.hashLength = hashLength;
+        this.parallelism = parallelism;
+        this.memory = memory;
+        this.iterations = iterations;
+    }
+
+    // Те же длины соли и хэша, другая стоимость
+    public Argon2Encoder withCost(int memory, int iterations, int parallelism) {
+        return new Argon2Encoder(saltLength, hashLength, parallelism, memory, iterations);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // КиБ
+    public int getMemory() {
+        return memory;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return delegate.matches(rawPassword, encodedPassword);
+    }
+
+    // Хэш вида $argon2id$v=19$m=65536,t=3,p=4$<соль>$<хэш>; нераспознанный не обновляется, его не проверить
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || !encodedPassword.startsWith("$argon2")) return false;
+        for (String part : encodedPassword.split("\\$")) {
+            if (!part.startsWith("m=")) continue;
+            int m = -1, t = -1, p = -1;
+            for (String parameter : part.split(",")) {
+                int eq = parameter.indexOf('=');
+                if (eq < 0) return false;
+                try {
+                    int value = Integer.parseInt(parameter.substring(eq + 1));
+                    switch (parameter.substring(0, eq)) {
+                        case "m" -> m = value;
+                        case "t" -> t = value;
+                        case "p" -> p = value;
+                        default -> { }
+                    }
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            return m != memory || t != iterations || p != parallelism;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "argon2id m=" + memory + " KiB, t=" + iterations + ", p=" + parallelism;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.call_track.config;
+
+import com.example.call_track.dto.PasswordHashingStatsDto;
+import com.example.call_track.exception.PasswordHashingBusyException;
+import com.example.call_track.utils.LogHistogram;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a memory-hard encoder (Argon2: tens of MiB per hash) on a fixed number of threads with a bounded
+ * wait queue, so at most {@code threads} hashes are in memory at once whatever the number of concurrent
+ * logins. A caller that finds the queue full, or waits longer than {@code maxWaitMillis} for a thread,
+ * gets {@link PasswordHashingBusyException} at once instead of piling up; a hash that has started is
+ * always waited for. Login, registration and password changes all go through the encoder bean.
+ *
+ * <p>The encoder inside can be replaced at runtime, e.g. after calibration; hashes made with the old
+ * parameters still verify and are upgraded on the next login.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private static final int WAITING = 0, STARTED = 1, ABANDONED = 2;
+
+    private volatile PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final long maxWaitMillis;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    // Микросекунды; LogHistogram не потокобезопасен, доступ под блокировкой самого объекта
+    private final LogHistogram waitMicros = new LogHistogram();
+    private final LogHistogram hashMicros = new LogHistogram();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long maxWaitMillis) {
+        if (threads < 1 || queueCapacity < 1 || maxWaitMillis < 1) {
+            throw new IllegalArgumentException("Password hashing threads, queue capacity and wait must be positive");
+        }
+        this.delegate = delegate;
+        this.queueCapacity = queueCapacity;
+        this.maxWaitMillis = maxWaitMillis;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // delegate читается при выполнении задачи: ожидавшие в очереди после замены кодировщика берут новый
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return call(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return call(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Только разбор параметров хэша, в потоке вызывающего. Пока в очереди есть ожидающие, повторный хэш
+    // при входе откладывается до более спокойного входа, чтобы не удваивать нагрузку во время наплыва
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return executor.getQueue().isEmpty() && delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public PasswordEncoder getDelegate() {
+        return delegate;
+    }
+
+    public void setDelegate(PasswordEncoder delegate) {
+        this.delegate = delegate;
+    }
+
+    public PasswordHashingStatsDto getStats() {
+        PasswordHashingStatsDto.PasswordHashingStatsDtoBuilder stats = PasswordHashingStatsDto.builder()
+                .encoder(delegate.toString())
+                .threads(executor.getCorePoolSize())
+                .activeThreads(executor.getActiveCount())
+                .queueDepth(executor.getQueue().size())
+                .queueCapacity(queueCapacity)
+                .maxWaitMillis(maxWaitMillis)
+                .completed(completed.get())
+                .rejected(rejected.get())
+                .timedOut(timedOut.get());
+        synchronized (waitMicros) {
+            stats.waitP50Millis(waitMicros.quantile(0.5) / 1000.0).waitP99Millis(waitMicros.quantile(0.99) / 1000.0);
+        }
+        synchronized (hashMicros) {
+            stats.hashP50Millis(hashMicros.quantile(0.5) / 1000.0).hashP99Millis(hashMicros.quantile(0.99) / 1000.0);
+        }
+        return stats.build();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T call(Callable<T> work) {
+        long queuedAt = System.nanoTime();
+        AtomicInteger state = new AtomicInteger(WAITING);
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                // Вызывающий уже получил отказ по времени ожидания — хэш никому не нужен
+                if (!state.compareAndSet(WAITING, STARTED)) return null;
+                long startedAt = System.nanoTime();
+                record(waitMicros, startedAt - queuedAt);
+                try {
+                    return work.call();
+                } finally {
+                    record(hashMicros, System.nanoTime() - startedAt);
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new PasswordHashingBusyException("Too many password checks in progress, please try again shortly");
+        }
+
+        try {
+            try {
+                return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (state.compareAndSet(WAITING, ABANDONED)) {
+                    future.cancel(false);
+                    timedOut.incrementAndGet();
+                    throw new PasswordHashingBusyException("Password check timed out in the queue, please try again shortly");
+                }
+                // Хэш уже считается, осталось меньше его длительности
+                return future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new PasswordHashingBusyException("Password check was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            if (e.getCause() instanceof Error error) throw error;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void record(LogHistogram histogram, long nanos) {
+        synchronized (histogram) {
+            histogram.add(Math.max(0, nanos / 1000));
+        }
+    }
+}
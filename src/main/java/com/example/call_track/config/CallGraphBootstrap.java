@@ -0,0 +1,31 @@
+package com.example.call_track.config;
+
+import com.example.call_track.service.CallGraphService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Loads the call graph in the background so that startup does not wait for a scan of recent calls
+@Component
+@RequiredArgsConstructor
+public class CallGraphBootstrap implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(CallGraphBootstrap.class);
+
+    private final CallGraphService callGraphService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread loader = new Thread(() -> {
+            try {
+                callGraphService.reload();
+            } catch (RuntimeException e) {
+                logger.error("Failed to load the call graph", e);
+            }
+        }, "call-graph-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+}
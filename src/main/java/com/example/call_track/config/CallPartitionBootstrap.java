@@ -0,0 +1,32 @@
+package com.example.call_track.config;
+
+import com.example.call_track.service.CallPartitionService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Runs before other runners so that startup data lands in real partitions
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class CallPartitionBootstrap implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(CallPartitionBootstrap.class);
+
+    private final CallPartitionService callPartitionService;
+
+    // Ошибка не останавливает запуск: строки месяца без секции попадут в calls_default
+    // и будут перенесены при следующем обслуживании
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            callPartitionService.maintain();
+        } catch (RuntimeException e) {
+            logger.error("Call partition maintenance failed at startup: {}", e.getMessage());
+        }
+    }
+}
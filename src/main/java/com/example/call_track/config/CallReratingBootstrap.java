@@ -0,0 +1,23 @@
+package com.example.call_track.config;
+
+import com.example.call_track.service.CallReratingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Re-rating runs stopped together with the previous process continue from their checkpoints
+@Component
+@RequiredArgsConstructor
+public class CallReratingBootstrap implements ApplicationRunner {
+    private final CallReratingService callReratingService;
+
+    @Value("${app.calls.rerate.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        callReratingService.recoverInterrupted(resumeOnStartup);
+    }
+}
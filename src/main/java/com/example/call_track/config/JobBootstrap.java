@@ -0,0 +1,35 @@
+package com.example.call_track.config;
+
+import com.example.call_track.service.AdminJobService;
+import com.example.call_track.service.CallSketchBackfillService;
+import com.example.call_track.service.JobService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Background jobs left queued or running by the previous process are closed as INTERRUPTED;
+// an unfinished call sketch backfill is then resumed from its checkpoint
+@Component
+@RequiredArgsConstructor
+public class JobBootstrap implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(JobBootstrap.class);
+
+    private final JobService jobService;
+    private final AdminJobService adminJobService;
+    private final CallSketchBackfillService callSketchBackfillService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        jobService.recoverInterrupted();
+        try {
+            if (callSketchBackfillService.isPending()) {
+                logger.info("Call sketch backfill resumed as job {}", adminJobService.callSketchBackfill().getId());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to start the call sketch backfill: {}", e.getMessage());
+        }
+    }
+}
@@ -3,25 +3,36 @@ package com.example.call_track.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class PasswordEncoderConfig {
 
-    @Bean
-    public PasswordEncoder passwordEncoder(
+    // Argon2 держит memory КиБ на каждый хэш, поэтому хэши считаются в ограниченном пуле
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(
             @Value("${password.encoder.argon2.salt-length:32}") int saltLength,
             @Value("${password.encoder.argon2.hash-length:32}") int hashLength,
             @Value("${password.encoder.argon2.parallelism:4}") int parallelism,
             @Value("${password.encoder.argon2.memory:65536}") int memory,
-            @Value("${password.encoder.argon2.iterations:3}") int iterations) {
+            @Value("${password.encoder.argon2.iterations:3}") int iterations,
+            @Value("${password.encoder.executor.threads:4}") int threads,
+            @Value("${password.encoder.executor.queue-capacity:32}") int queueCapacity,
+            @Value("${password.encoder.executor.max-wait-ms:2000}") long maxWaitMillis) {
 
-        return new Argon2PasswordEncoder(
+        return new BoundedPasswordEncoder(
+                argon2(saltLength, hashLength, parallelism, memory, iterations),
+                threads,
+                queueCapacity,
+                maxWaitMillis);
+    }
+
+    // Сам кодировщик без пула, например для бенчмарков
+    public static Argon2Encoder argon2(int saltLength, int hashLength, int parallelism, int memory, int iterations) {
+        return new Argon2Encoder(
                 saltLength,
                 hashLength,
                 parallelism,
                 memory,
                 iterations);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package com.example.call_track.config;
+
+import com.example.call_track.service.PasswordHashCalibrationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Argon2 parameters stored by an earlier calibration are applied; the first node without them calibrates
+@Component
+@RequiredArgsConstructor
+public class PasswordHashBootstrap implements ApplicationRunner {
+    private final PasswordHashCalibrationService calibrationService;
+
+    @Value("${password.encoder.argon2.calibration.on-startup:true}")
+    private boolean calibrateOnStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        calibrationService.initialize(calibrateOnStartup);
+    }
+}
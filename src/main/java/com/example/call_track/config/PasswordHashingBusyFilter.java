@@ -0,0 +1,51 @@
+package com.example.call_track.config;
+
+import com.example.call_track.exception.PasswordHashingBusyException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Turns a refused password check during login into 503 with Retry-After. The form login filter lets
+ * exceptions of the password check itself pass through (they are not authentication failures), and wraps
+ * those of the unknown-user path, which reach the failure handler instead; both end up in {@link #reject}.
+ */
+public class PasswordHashingBusyFilter extends OncePerRequestFilter {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } catch (RuntimeException | ServletException e) {
+            if (!isBusy(e) || response.isCommitted()) throw e;
+            reject(response, e);
+        }
+    }
+
+    static boolean isBusy(Throwable e) {
+        return findBusy(e) != null;
+    }
+
+    static void reject(HttpServletResponse response, Throwable e) throws IOException {
+        reject(response, findBusy(e).getMessage());
+    }
+
+    private static void reject(HttpServletResponse response, String message) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, message);
+    }
+
+    private static PasswordHashingBusyException findBusy(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PasswordHashingBusyException busy) return busy;
+        }
+        return null;
+    }
+}
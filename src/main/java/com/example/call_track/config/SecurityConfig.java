@@ -11,7 +11,10 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import java.io.IOException;
 
@@ -58,9 +61,12 @@ public class SecurityConfig {
                         .loginPage("/login")
                         .loginProcessingUrl("/perform_login")
                         .successHandler(customAuthenticationSuccessHandler())
-                        .failureUrl("/login?error=true")
+                        .failureHandler(loginFailureHandler())
                         .permitAll())
 
+                // Перегруженный пул хэширования паролей — 503, а не ошибка входа или 500
+                .addFilterBefore(new PasswordHashingBusyFilter(), UsernamePasswordAuthenticationFilter.class)
+
                 .logout(logout -> logout
                         .logoutUrl("/perform_logout")
                         .logoutSuccessUrl("/login?logout=true")
@@ -83,6 +89,17 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private AuthenticationFailureHandler loginFailureHandler() {
+        AuthenticationFailureHandler badCredentials = new SimpleUrlAuthenticationFailureHandler("/login?error=true");
+        return (request, response, exception) -> {
+            if (PasswordHashingBusyFilter.isBusy(exception)) {
+                PasswordHashingBusyFilter.reject(response, exception);
+            } else {
+                badCredentials.onAuthenticationFailure(request, response, exception);
+            }
+        };
+    }
+
     @Bean
     public AuthenticationSuccessHandler customAuthenticationSuccessHandler() {
         return new AuthenticationSuccessHandler() {
@@ -1,8 +1,9 @@
 package com.example.call_track.controller;
 
+import com.example.call_track.dto.JobDto;
 import com.example.call_track.entity.user.User;
 import com.example.call_track.entity.user.UserRole;
-import com.example.call_track.service.FakeDataService;
+import com.example.call_track.service.AdminJobService;
 import com.example.call_track.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -22,7 +23,7 @@ public class AdminController extends BaseController {
     private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
     private final UserService userService;
-    private final FakeDataService fakeDataService;
+    private final AdminJobService adminJobService;
 
     @GetMapping
     public String adminPanel(Model model) {
@@ -48,8 +49,7 @@ public class AdminController extends BaseController {
                 throw new IllegalArgumentException("Cannot change your own role");
             }
 
-            user.setRole(newRole);
-            userService.save(user);
+            userService.changeRole(user, newRole);
 
             redirectAttributes.addFlashAttribute("successMessage",
                     "Role updated successfully for user: " + user.getUsername());
@@ -62,9 +62,10 @@ public class AdminController extends BaseController {
     @PostMapping("/generate-fake-data")
     public String generateFakeData(RedirectAttributes redirectAttributes) {
         try {
-            fakeDataService.generateFakeData();
+            JobDto job = adminJobService.fakeData();
             redirectAttributes.addFlashAttribute("successMessage",
-                    "Fake data generated successfully. Check the credentials file for login details.");
+                    "Fake data generation started as job " + job.getId() + " (progress at /admin/jobs/" + job.getId()
+                            + "). Check the credentials file for login details when it completes.");
         } catch (Exception e) {
             handleError(redirectAttributes, e, "Failed to generate fake data");
         }
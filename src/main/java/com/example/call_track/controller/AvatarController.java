@@ -0,0 +1,43 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.service.AvatarService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Аватары с выбором размера: /uploads/avatars/{файл}?size=48 отдает наименьший сохраненный размер не меньше
+ * запрошенного. Обрабатывается раньше общего обработчика /uploads/** из WebConfig.
+ */
+@RestController
+@RequiredArgsConstructor
+public class AvatarController {
+    // Имя файла новое при каждой загрузке, содержимое по нему не меняется
+    private static final CacheControl AVATAR_CACHE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate();
+
+    private final AvatarService avatarService;
+
+    @GetMapping("/uploads/avatars/{fileName}")
+    public ResponseEntity<Resource> avatar(@PathVariable String fileName, @RequestParam(required = false) Integer size) {
+        Path file = avatarService.resolve(fileName, size);
+        if (file == null) return ResponseEntity.notFound().build();
+
+        Resource resource = new FileSystemResource(file);
+        return ResponseEntity.ok()
+                .cacheControl(AVATAR_CACHE)
+                .lastModified(file.toFile().lastModified())
+                .contentType(MediaTypeFactory.getMediaType(resource).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .body(resource);
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.call_track.controller;
 
+import com.example.call_track.exception.PasswordHashingBusyException;
 import org.springframework.ui.Model;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
 public class BaseController {
 
     protected void handleError(Model model, Exception e, String defaultMessage) {
-        if (e instanceof IllegalArgumentException) {
+        if (e instanceof IllegalArgumentException || e instanceof PasswordHashingBusyException) {
             model.addAttribute("error", e.getMessage());
         } else {
             model.addAttribute("error", defaultMessage);
@@ -14,10 +18,20 @@ public class BaseController {
     }
 
     protected void handleError(RedirectAttributes redirectAttributes, Exception e, String defaultMessage) {
-        if (e instanceof IllegalArgumentException) {
+        if (e instanceof IllegalArgumentException || e instanceof PasswordHashingBusyException) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
         } else {
             redirectAttributes.addFlashAttribute("error", defaultMessage);
         }
     }
+
+    // Дата вида yyyy-MM-dd из параметра запроса; пустое значение — defaultValue
+    protected static LocalDate parseDay(String value, LocalDate defaultValue) {
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date, expected yyyy-MM-dd: " + value);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.dto.call.CallDto;
+import com.example.call_track.dto.call.CallDtoMapper;
+import com.example.call_track.entity.user.User;
+import com.example.call_track.entity.user.UserRole;
+import com.example.call_track.service.CallService;
+import com.example.call_track.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequiredArgsConstructor
+public class CallExportController {
+    private static final String CSV_HEADER = "call_time,type,user_phone,other_party_phone,other_party_name,duration,tariff,cost\n";
+
+    private final CallService callService;
+    private final UserService userService;
+    private final CallDtoMapper callDtoMapper;
+    private final JsonMapper jsonMapper;
+
+    @Value("${app.calls.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Выгрузка всей истории звонков с теми же фильтрами, что и /api/calls (format=csv|ndjson, gzip=true|false).
+     * Ответ пишется по мере чтения строк из курсора, поэтому память не зависит от размера выгрузки.
+     */
+    @GetMapping("/api/calls/export")
+    public ResponseEntity<StreamingResponseBody> exportCalls(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String myNumbers,
+            @RequestParam(required = false) String phone,
+            @RequestParam(required = false) String callType,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String sortDir,
+            @RequestParam(required = false) BigDecimal minCost,
+            @RequestParam(required = false) BigDecimal maxCost,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        boolean ndjson = switch (format.toLowerCase()) {
+            case "csv" -> false;
+            case "ndjson" -> true;
+            default -> throw new IllegalArgumentException("Unsupported export format: " + format);
+        };
+
+        // Пользователь определяется в потоке запроса: тело ответа пишется в другом потоке
+        User currentUser = userService.getCurrentAuthenticatedUser();
+        boolean isAdmin = currentUser.getRole() == UserRole.ADMIN;
+        User viewer = isAdmin ? null : currentUser;
+
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 1 << 16) : out;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16);
+            if (!ndjson) writer.write(CSV_HEADER);
+            try {
+                callService.exportUserCalls(
+                        viewer, name, isAdmin ? null : myNumbers, phone,
+                        isAdmin ? null : callType, startDate, endDate,
+                        sortBy, sortDir, minCost, maxCost, fetchSize,
+                        row -> write(writer, callDtoMapper.toDto(row, viewer), ndjson));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipStream) gzipStream.finish();
+        };
+
+        String fileName = "calls." + (ndjson ? "ndjson" : "csv") + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : ndjson ? MediaType.parseMediaType("application/x-ndjson")
+                : MediaType.parseMediaType("text/csv;charset=UTF-8");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .contentType(contentType)
+                .body(body);
+    }
+
+    private void write(Writer writer, CallDto call, boolean ndjson) {
+        try {
+            if (ndjson) {
+                writer.write(jsonMapper.writeValueAsString(call));
+            } else {
+                writer.write(String.valueOf(call.getCallTime()));
+                writer.write(',');
+                writer.write(call.getType());
+                writer.write(',');
+                writer.write(csv(call.getUserPhone()));
+                writer.write(',');
+                writer.write(csv(call.getOtherPartyPhone()));
+                writer.write(',');
+                writer.write(csv(call.getOtherPartyName()));
+                writer.write(',');
+                writer.write(call.getDuration());
+                writer.write(',');
+                writer.write(call.getTariff() != null ? call.getTariff().toPlainString() : "");
+                writer.write(',');
+                writer.write(call.getCost() != null ? call.getCost().toPlainString() : "");
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.dto.JobDto;
+import com.example.call_track.dto.call.CallGraphSummaryDto;
+import com.example.call_track.dto.call.CallGraphUserDto;
+import com.example.call_track.service.AdminJobService;
+import com.example.call_track.service.CallGraphService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Аналитика графа звонков (кто кому звонит) за окно дней [startDate, endDate] в формате yyyy-MM-dd;
+ * по умолчанию — последние 30 дней. Считается по графу в памяти, без запросов к calls.
+ */
+@RestController
+@RequestMapping("/admin/api/calls/graph")
+@RequiredArgsConstructor
+public class CallGraphController extends BaseController {
+    private static final int MAX_TOP = 1000;
+
+    private final CallGraphService callGraphService;
+    private final AdminJobService adminJobService;
+
+    @GetMapping
+    public ResponseEntity<CallGraphSummaryDto> summary(@RequestParam(required = false) String startDate,
+                                                       @RequestParam(required = false) String endDate,
+                                                       @RequestParam(defaultValue = "10") int largest) {
+        LocalDate to = parseDay(endDate, LocalDate.now());
+        return ResponseEntity.ok(callGraphService.summary(parseDay(startDate, to.minusDays(29)), to, Math.max(0, largest)));
+    }
+
+    // by = calls | seconds | cost
+    @GetMapping("/top")
+    public ResponseEntity<List<CallGraphUserDto>> topTalkers(@RequestParam(required = false) String startDate,
+                                                             @RequestParam(required = false) String endDate,
+                                                             @RequestParam(defaultValue = "calls") String by,
+                                                             @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_TOP) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_TOP);
+        }
+        LocalDate to = parseDay(endDate, LocalDate.now());
+        return ResponseEntity.ok(callGraphService.topTalkers(parseDay(startDate, to.minusDays(29)), to, by, limit));
+    }
+
+    @GetMapping("/users/{userId}")
+    public ResponseEntity<CallGraphUserDto> user(@PathVariable UUID userId,
+                                                 @RequestParam(required = false) String startDate,
+                                                 @RequestParam(required = false) String endDate) {
+        LocalDate to = parseDay(endDate, LocalDate.now());
+        return ResponseEntity.ok(callGraphService.user(userId, parseDay(startDate, to.minusDays(29)), to));
+    }
+
+    // Полная перезагрузка графа из базы, например после ручных правок calls; идет фоновой задачей
+    @PostMapping("/reload")
+    public ResponseEntity<JobDto> reload() {
+        return ResponseEntity.accepted().body(adminJobService.callGraphReload());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.dto.JobDto;
+import com.example.call_track.dto.call.CallEventDto;
+import com.example.call_track.service.AdminJobService;
+import com.example.call_track.service.CallImportService;
+import com.example.call_track.service.CallIngestionService;
+import com.example.call_track.service.CallWriteAheadLog;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/admin/api/calls")
+@RequiredArgsConstructor
+public class CallImportController {
+    private final AdminJobService adminJobService;
+    private final CallIngestionService callIngestionService;
+
+    /**
+     * Импорт CDR из тела запроса (не multipart): тело потоком сохраняется во временный файл, импорт идет
+     * фоновой задачей, отчет — в /admin/jobs/{id}. Формат берется из параметра format или из Content-Type
+     * (application/x-ndjson — NDJSON, иначе CSV).
+     * Доступ — по сессии администратора (HTTP Basic не включен, чтобы не хэшировать пароль на каждый запрос):
+     * сначала вход формой с токеном CSRF со страницы /login, затем запрос с cookie сессии.
+     * <pre>
+     * token=$(curl -s -c jar $HOST/login | sed -n 's|.*name="_csrf" value="\([^"]*\)".*|\1|p')
+     * curl -s -b jar -c jar -d username=admin -d "password=$PASSWORD" -d "_csrf=$token" $HOST/perform_login
+     * curl -b jar --data-binary @calls.csv -H 'Content-Type: text/csv' $HOST/admin/api/calls/import
+     * </pre>
+     */
+    @PostMapping("/import")
+    public ResponseEntity<JobDto> importCalls(@RequestParam(required = false) String format,
+                                              HttpServletRequest request) throws IOException {
+        CallImportService.Format importFormat = resolveFormat(format, request.getContentType());
+        Path file = Files.createTempFile("call-import-", ".tmp");
+        try (InputStream input = request.getInputStream()) {
+            Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return ResponseEntity.accepted().body(adminJobService.callImport(file, importFormat));
+    }
+
+    /**
+     * Прием одного события от коммутатора: ответ приходит, как только событие записано в локальный журнал,
+     * запись в базу выполняется асинхронно. При 503 клиент должен повторить позже с тем же id: событие могло
+     * быть уже принято (истекло ожидание fsync), а повтор с тем же id не создает второй звонок.
+     */
+    @PostMapping("/events")
+    public ResponseEntity<Map<String, Object>> ingestEvent(@Valid @RequestBody CallEventDto event) throws InterruptedException {
+        // id назначается до записи, чтобы вернуть его и в ответе 503
+        UUID id = event.getId() != null ? event.getId() : UUID.randomUUID();
+        try {
+            CallWriteAheadLog.Entry entry = callIngestionService.ingest(id, event.getCallerPhone(), event.getCalleePhone(),
+                    event.getCallType(), event.getDurationSeconds(), event.getPricePerMinute(), event.getStartTime());
+            Map<String, Object> response = new HashMap<>();
+            response.put("id", entry.getId());
+            response.put("sequence", entry.getSeq());
+            return ResponseEntity.accepted().body(response);
+        } catch (IllegalStateException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("id", id);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+        }
+    }
+
+    private CallImportService.Format resolveFormat(String format, String contentType) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return CallImportService.Format.valueOf(format.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported import format: " + format);
+            }
+        }
+        if (contentType != null && (contentType.contains("ndjson") || contentType.contains("jsonl"))) {
+            return CallImportService.Format.NDJSON;
+        }
+        return CallImportService.Format.CSV;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.dto.JobDto;
+import com.example.call_track.service.AdminJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/api/calls")
+@RequiredArgsConstructor
+public class CallParquetExportController {
+    private final AdminJobService adminJobService;
+
+    /**
+     * Запуск выгрузки всех звонков в Parquet (по файлу на месяц) в каталог app.calls.parquet.output-dir.
+     * Выгрузка идет фоновой задачей, число строк по месяцам — в отчете /admin/jobs/{id}.
+     */
+    @PostMapping("/export/parquet")
+    public ResponseEntity<JobDto> exportParquet() {
+        return ResponseEntity.accepted().body(adminJobService.parquetExport());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.dto.call.CallReratingJobDto;
+import com.example.call_track.service.CallReratingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Перетарификация звонков за дни [startDate, endDate] по действующим тарифам.
+ * Запуск возвращается сразу, ход работы — GET /{id}. По умолчанию dryRun: только отчет об изменении стоимости.
+ */
+@RestController
+@RequestMapping("/admin/api/calls/rerate")
+@RequiredArgsConstructor
+public class CallReratingController extends BaseController {
+    private final CallReratingService callReratingService;
+
+    @PostMapping
+    public ResponseEntity<CallReratingJobDto> start(@RequestParam String startDate,
+                                                    @RequestParam(required = false) String endDate,
+                                                    @RequestParam(defaultValue = "true") boolean dryRun) {
+        LocalDate from = parseDay(startDate, null);
+        if (from == null) throw new IllegalArgumentException("Start date must not be empty");
+        return ResponseEntity.accepted().body(callReratingService.start(from, parseDay(endDate, LocalDate.now()), dryRun));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<CallReratingJobDto>> list(@RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > 1000) {
+            throw new IllegalArgumentException("Limit must be between 1 and 1000");
+        }
+        return ResponseEntity.ok(callReratingService.findRecent(limit));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CallReratingJobDto> get(@PathVariable UUID id) {
+        return ResponseEntity.ok(callReratingService.get(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<CallReratingJobDto> resume(@PathVariable UUID id) {
+        return ResponseEntity.accepted().body(callReratingService.resume(id));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Void> cancel(@PathVariable UUID id) {
+        callReratingService.cancel(id);
+        return ResponseEntity.noContent().build();
+    }
+}
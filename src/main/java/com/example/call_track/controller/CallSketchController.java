@@ -0,0 +1,40 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.dto.call.CallSketchStatsDto;
+import com.example.call_track.entity.user.User;
+import com.example.call_track.service.CallService;
+import com.example.call_track.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/admin/api/calls")
+@RequiredArgsConstructor
+public class CallSketchController extends BaseController {
+    private final CallService callService;
+    private final UserService userService;
+
+    /**
+     * Уникальные собеседники и p50/p95/p99 длительности и стоимости за период (yyyy-MM-dd, по умолчанию 30 дней).
+     * С userId — по пользователю, без него — по всей системе.
+     */
+    @GetMapping("/sketches")
+    public ResponseEntity<CallSketchStatsDto> sketchStats(@RequestParam(required = false) String startDate,
+                                                          @RequestParam(required = false) String endDate,
+                                                          @RequestParam(required = false) UUID userId) {
+        User user = null;
+        if (userId != null) {
+            user = userService.findById(userId)
+                    .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
+        }
+        LocalDate to = parseDay(endDate, LocalDate.now());
+        return ResponseEntity.ok(callService.getSketchStats(user, parseDay(startDate, to.minusDays(29)), to));
+    }
+}
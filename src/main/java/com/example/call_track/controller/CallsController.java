@@ -1,36 +1,57 @@
 package com.example.call_track.controller;
 
 import com.example.call_track.dto.call.CallDto;
+import com.example.call_track.dto.call.CallDtoMapper;
 import com.example.call_track.dto.call.CallPageDto;
+import com.example.call_track.dto.call.CallRow;
+import com.example.call_track.dto.call.CallStatsDto;
 import com.example.call_track.dto.user.PublicUserDto;
 import com.example.call_track.entity.PhoneNumber;
-import com.example.call_track.entity.call.Call;
 import com.example.call_track.entity.user.User;
+import com.example.call_track.entity.user.UserRole;
+import com.example.call_track.service.CallEventHub;
 import com.example.call_track.service.CallService;
 import com.example.call_track.service.PhoneNumberService;
 import com.example.call_track.service.UserService;
+import com.example.call_track.spec.CallWindow;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Controller
 @RequiredArgsConstructor
 public class CallsController extends BaseController {
+    private static final int MAX_USER_INFO_BATCH = 200;
+    // Публичные данные меняются редко; private — ответ зависит от авторизации
+    private static final CacheControl USER_INFO_CACHE = CacheControl.maxAge(5, TimeUnit.MINUTES).cachePrivate();
 
     private final CallService callService;
     private final UserService userService;
     private final PhoneNumberService phoneNumberService;
+    private final CallDtoMapper callDtoMapper;
+    private final CallEventHub callEventHub;
 
     @GetMapping("/calls")
     public String calls(Model model) {
@@ -39,6 +60,15 @@ public class CallsController extends BaseController {
         return "calls";
     }
 
+    /**
+     * Поток новых звонков (SSE, событие "call" с {@link CallDto}): пользователю — его звонки, админу — все.
+     * События раздаются из памяти, открытый поток не нагружает базу.
+     */
+    @GetMapping(path = "/api/calls/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCalls() {
+        return callEventHub.subscribe(userService.getCurrentAuthenticatedUser());
+    }
+
     @GetMapping("/api/calls/user-info")
     public ResponseEntity<PublicUserDto> getUserInfo(@RequestParam String phone) {
         Optional<PhoneNumber> phoneNumberOpt = phoneNumberService.findByPhone(phone);
@@ -49,15 +79,35 @@ public class CallsController extends BaseController {
         if (!user.isEnabled()) {
             return ResponseEntity.notFound().build();
         }
-        PublicUserDto dto = PublicUserDto.builder()
-                .firstName(user.getFirstName())
-                .lastName(user.getLastName())
-                .middleName(user.getMiddleName())
-                .phone(phone)
-                .avatarPath(user.getAvatarPath())
-                .publicContactInfo(user.getPublicContactInfo())
-                .build();
-        return ResponseEntity.ok(dto);
+        return ResponseEntity.ok()
+                .cacheControl(USER_INFO_CACHE)
+                .body(toPublicUserDto(user, phone));
+    }
+
+    /**
+     * Пакетный вариант user-info: данные владельцев всех номеров страницы одним запросом.
+     * В ответе только найденные и активные пользователи; отсутствующий номер означает 404 для user-info.
+     */
+    @GetMapping("/api/calls/user-info/batch")
+    public ResponseEntity<Map<String, PublicUserDto>> getUsersInfo(@RequestParam List<String> phones) {
+        Set<String> unique = phones.stream()
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (unique.size() > MAX_USER_INFO_BATCH) {
+            throw new IllegalArgumentException("Too many phones, maximum is " + MAX_USER_INFO_BATCH);
+        }
+
+        Map<String, PublicUserDto> result = new LinkedHashMap<>();
+        for (PhoneNumber phoneNumber : phoneNumberService.findByPhonesWithUser(unique)) {
+            User user = phoneNumber.getUser();
+            if (user.isEnabled()) {
+                result.put(phoneNumber.getPhone(), toPublicUserDto(user, phoneNumber.getPhone()));
+            }
+        }
+        return ResponseEntity.ok()
+                .cacheControl(USER_INFO_CACHE)
+                .body(result);
     }
 
     @GetMapping("/api/calls")
@@ -73,68 +123,69 @@ public class CallsController extends BaseController {
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) String sortDir,
             @RequestParam(required = false) java.math.BigDecimal minCost,
-            @RequestParam(required = false) java.math.BigDecimal maxCost
+            @RequestParam(required = false) java.math.BigDecimal maxCost,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean slice,
+            @RequestParam(defaultValue = "false") boolean estimateTotal
     ) {
         User currentUser = userService.getCurrentAuthenticatedUser();
         boolean isAdmin = currentUser.getRole().name().equals("ADMIN");
+
+        // Наличие параметра cursor (даже пустого) включает keyset-пагинацию без OFFSET и COUNT
+        if (cursor != null) {
+            CallWindow window = callService.searchUserCallsByCursor(
+                    isAdmin ? null : currentUser, name, isAdmin ? null : myNumbers, phone,
+                    isAdmin ? null : callType, startDate, endDate,
+                    sortBy, sortDir, minCost, maxCost, cursor, size
+            );
+            long total = estimateTotal ? estimateTotal(currentUser, isAdmin, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost) : -1;
+            CallPageDto response = CallPageDto.builder()
+                    .calls(toCallDtos(window.getContent(), currentUser, isAdmin))
+                    .currentPage(0)
+                    .totalPages(total >= 0 ? (int) Math.ceil((double) total / size) : -1)
+                    .totalElements(total)
+                    .totalEstimated(estimateTotal)
+                    .pageSize(window.getSize())
+                    .hasNext(window.hasNext())
+                    .hasPrevious(window.hasPrevious())
+                    .nextCursor(window.getNextCursor())
+                    .prevCursor(window.getPrevCursor())
+                    .build();
+            return ResponseEntity.ok(response);
+        }
+
         org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(page, size);
+
+        // Режим slice: без COUNT-запроса, только hasNext и, по запросу, оценка общего количества
+        if (slice) {
+            Slice<CallRow> callSlice = callService.searchUserCallsSlice(
+                    isAdmin ? null : currentUser, name, isAdmin ? null : myNumbers, phone,
+                    isAdmin ? null : callType, startDate, endDate,
+                    sortBy, sortDir, minCost, maxCost, pageable
+            );
+            long total = estimateTotal ? estimateTotal(currentUser, isAdmin, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost) : -1;
+            CallPageDto response = CallPageDto.builder()
+                    .calls(toCallDtos(callSlice.getContent(), currentUser, isAdmin))
+                    .currentPage(callSlice.getNumber())
+                    .totalPages(total >= 0 ? (int) Math.ceil((double) total / size) : -1)
+                    .totalElements(total)
+                    .totalEstimated(estimateTotal)
+                    .pageSize(callSlice.getSize())
+                    .hasNext(callSlice.hasNext())
+                    .hasPrevious(callSlice.hasPrevious())
+                    .build();
+            return ResponseEntity.ok(response);
+        }
+
         // Прокидываем все фильтры дальше
-        org.springframework.data.domain.Page<Call> callPage = callService.searchUserCalls(
+        org.springframework.data.domain.Page<CallRow> callPage = callService.searchUserCalls(
                 isAdmin ? null : currentUser, name, isAdmin ? null : myNumbers, phone,
                 isAdmin ? null : callType, startDate, endDate,
                 sortBy, sortDir, minCost, maxCost, pageable
         );
 
-        List<CallDto> callDtos = callPage.getContent().stream()
-                .filter(call -> call.getCallerPhone() != null && call.getCalleePhone() != null)
-                .map(call -> {
-                    if (isAdmin) {
-                        // Для админа показываем все звонки как исходящие от caller к callee
-                        User callerUser = call.getCallerPhone().getUser();
-                        User calleeUser = call.getCalleePhone().getUser();
-                        String otherPartyName = (calleeUser.getFirstName() != null ? calleeUser.getFirstName() : "")
-                                + " " + (calleeUser.getLastName() != null ? calleeUser.getLastName() : "")
-                                + (calleeUser.getMiddleName() != null ? " " + calleeUser.getMiddleName() : "");
-                        String userPhone = call.getCallerPhone().getPhone();
-                        String otherPartyPhone = call.getCalleePhone().getPhone();
-                        String type = "OUTGOING";
-                        String duration = String.format("%02d:%02d", call.getDurationSeconds() / 60, call.getDurationSeconds() % 60);
-                        return CallDto.builder()
-                                .otherPartyName(otherPartyName.trim())
-                                .otherPartyPhone(otherPartyPhone)
-                                .userPhone(userPhone)
-                                .type(type)
-                                .duration(duration)
-                                .callTime(call.getCallDateTime())
-                                .tariff(call.getPricePerMinute())
-                                .cost(call.getTotalCost())
-                                .build();
-                    } else {
-                        // Для обычного пользователя
-                        boolean isOutgoing = call.getCallerPhone().getUser().getId().equals(currentUser.getId());
-                        PhoneNumber otherPhone = isOutgoing ? call.getCalleePhone() : call.getCallerPhone();
-                        User otherUser = otherPhone.getUser();
-                        String otherPartyName = (otherUser.getFirstName() != null ? otherUser.getFirstName() : "")
-                                + " " + (otherUser.getLastName() != null ? otherUser.getLastName() : "")
-                                + (otherUser.getMiddleName() != null ? " " + otherUser.getMiddleName() : "");
-                        String userPhone = isOutgoing ? call.getCallerPhone().getPhone() : call.getCalleePhone().getPhone();
-                        String type = isOutgoing ? "OUTGOING" : "INCOMING";
-                        String duration = String.format("%02d:%02d", call.getDurationSeconds() / 60, call.getDurationSeconds() % 60);
-                        return CallDto.builder()
-                                .otherPartyName(otherPartyName.trim())
-                                .otherPartyPhone(otherPhone.getPhone())
-                                .userPhone(userPhone)
-                                .type(type)
-                                .duration(duration)
-                                .callTime(call.getCallDateTime())
-                                .tariff(call.getPricePerMinute())
-                                .cost(call.getTotalCost())
-                                .build();
-                    }
-                }).collect(Collectors.toList());
-
         CallPageDto response = CallPageDto.builder()
-                .calls(callDtos)
+                .calls(toCallDtos(callPage.getContent(), currentUser, isAdmin))
                 .currentPage(callPage.getNumber())
                 .totalPages(callPage.getTotalPages())
                 .totalElements(callPage.getTotalElements())
@@ -145,4 +196,56 @@ public class CallsController extends BaseController {
 
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Итоги звонков за период по дням (startDate, endDate — yyyy-MM-dd, включительно; по умолчанию последние 30 дней).
+     * Считается по суточным агрегатам, а не по истории звонков. Админ может запросить статистику любого пользователя.
+     */
+    @GetMapping("/api/calls/stats")
+    public ResponseEntity<CallStatsDto> getCallStats(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(defaultValue = "false") boolean daily
+    ) {
+        User currentUser = userService.getCurrentAuthenticatedUser();
+        User target = currentUser;
+        if (userId != null && !userId.equals(currentUser.getId())) {
+            if (currentUser.getRole() != UserRole.ADMIN) {
+                throw new IllegalArgumentException("Statistics of other users are available to administrators only");
+            }
+            target = userService.findById(userId)
+                    .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
+        }
+
+        LocalDate to = parseDay(endDate, LocalDate.now());
+        LocalDate from = parseDay(startDate, to.minusDays(29));
+        return ResponseEntity.ok(callService.getUserStats(target, from, to, daily));
+    }
+
+    private long estimateTotal(User currentUser, boolean isAdmin, String name, String myNumbers, String phone,
+                               String callType, String startDate, String endDate,
+                               java.math.BigDecimal minCost, java.math.BigDecimal maxCost) {
+        return callService.estimateUserCallCount(
+                isAdmin ? null : currentUser, name, isAdmin ? null : myNumbers, phone,
+                isAdmin ? null : callType, startDate, endDate, minCost, maxCost);
+    }
+
+    private PublicUserDto toPublicUserDto(User user, String phone) {
+        return PublicUserDto.builder()
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .middleName(user.getMiddleName())
+                .phone(phone)
+                .avatarPath(user.getAvatarPath())
+                .publicContactInfo(user.getPublicContactInfo())
+                .build();
+    }
+
+    private List<CallDto> toCallDtos(List<CallRow> rows, User currentUser, boolean isAdmin) {
+        User viewer = isAdmin ? null : currentUser;
+        return rows.stream()
+                .map(row -> callDtoMapper.toDto(row, viewer))
+                .collect(Collectors.toList());
+    }
 }
\ No newline at end of file
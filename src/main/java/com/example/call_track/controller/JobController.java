@@ -0,0 +1,68 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.dto.JobDto;
+import com.example.call_track.service.AdminJobService;
+import com.example.call_track.service.JobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Фоновые задачи администратора: список, состояние и отмена, а также запуск задач обслуживания.
+ * Запуск задачи отвечает 202 сразу, ход работы — GET /{id}.
+ */
+@RestController
+@RequestMapping("/admin/jobs")
+@RequiredArgsConstructor
+public class JobController extends BaseController {
+    private final JobService jobService;
+    private final AdminJobService adminJobService;
+
+    @GetMapping
+    public ResponseEntity<List<JobDto>> list(@RequestParam(required = false) String type,
+                                             @RequestParam(required = false) String status,
+                                             @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > 1000) {
+            throw new IllegalArgumentException("Limit must be between 1 and 1000");
+        }
+        String statusFilter = status == null || status.isBlank() ? null : status.trim().toUpperCase();
+        String typeFilter = type == null || type.isBlank() ? null : type.trim();
+        return ResponseEntity.ok(jobService.findRecent(typeFilter, statusFilter, limit));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobDto> get(@PathVariable UUID id) {
+        return ResponseEntity.ok(jobService.get(id));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<JobDto> cancel(@PathVariable UUID id) {
+        return ResponseEntity.accepted().body(jobService.cancel(id));
+    }
+
+    // Создание разделов calls на месяцы вперед и удаление старых, как в ночном запуске
+    @PostMapping("/partition-maintenance")
+    public ResponseEntity<JobDto> partitionMaintenance() {
+        return ResponseEntity.accepted().body(adminJobService.partitionMaintenance());
+    }
+
+    // Продолжение восстановления sketch-ей из звонков, если оно было прервано; без незавершенного — пустой проход
+    @PostMapping("/call-sketch-backfill")
+    public ResponseEntity<JobDto> callSketchBackfill() {
+        return ResponseEntity.accepted().body(adminJobService.callSketchBackfill());
+    }
+
+    // Построение общих sketch-ей закрытых дней, которых еще нет, как в ночном запуске
+    @PostMapping("/global-call-sketches")
+    public ResponseEntity<JobDto> globalCallSketches() {
+        return ResponseEntity.accepted().body(adminJobService.globalCallSketches());
+    }
+}
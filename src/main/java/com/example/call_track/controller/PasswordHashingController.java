@@ -0,0 +1,46 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.config.BoundedPasswordEncoder;
+import com.example.call_track.dto.JobDto;
+import com.example.call_track.dto.PasswordHashSettingsDto;
+import com.example.call_track.dto.PasswordHashingStatsDto;
+import com.example.call_track.service.AdminJobService;
+import com.example.call_track.service.PasswordHashCalibrationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Очередь и задержки пула хэширования паролей: рост queueDepth, rejected и waitP99 означает, что входов
+ * больше, чем пул успевает проверить. Здесь же калибровка параметров Argon2 под целевое время проверки.
+ */
+@RestController
+@RequestMapping("/admin/api/password-hashing")
+@RequiredArgsConstructor
+public class PasswordHashingController {
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final PasswordHashCalibrationService calibrationService;
+    private final AdminJobService adminJobService;
+
+    @GetMapping
+    public ResponseEntity<PasswordHashingStatsDto> stats() {
+        return ResponseEntity.ok(passwordEncoder.getStats());
+    }
+
+    // Результат последней калибровки, общий для всех узлов; 404, пока калибровки не было
+    @GetMapping("/settings")
+    public ResponseEntity<PasswordHashSettingsDto> settings() {
+        return ResponseEntity.of(calibrationService.findStored());
+    }
+
+    // Перекалибровка задачей; хэши с прежними параметрами обновляются при следующем входе пользователя
+    @PostMapping("/calibrate")
+    public ResponseEntity<JobDto> calibrate(@RequestParam(required = false) Integer targetMs) {
+        int target = targetMs != null ? targetMs : calibrationService.getDefaultTargetMillis();
+        return ResponseEntity.accepted().body(adminJobService.passwordCalibration(target));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.dto.JobDto;
+import com.example.call_track.service.AdminJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * Генерация синтетических данных для нагрузочного тестирования: пользователи load_NNNNNN и звонки за days дней,
+ * заканчивая endDate (по умолчанию вчера). Одинаковые параметры и seed дают одинаковые данные.
+ * Генерация идет фоновой задачей, отчет — в /admin/jobs/{id}.
+ */
+@RestController
+@RequestMapping("/admin/api/synthetic-data")
+@RequiredArgsConstructor
+public class SyntheticDataController extends BaseController {
+    private final AdminJobService adminJobService;
+
+    @PostMapping
+    public ResponseEntity<JobDto> generate(@RequestParam(defaultValue = "100000") int users,
+                                           @RequestParam(defaultValue = "100000000") long calls,
+                                           @RequestParam(defaultValue = "365") int days,
+                                           @RequestParam(required = false) String endDate,
+                                           @RequestParam(defaultValue = "42") long seed) {
+        LocalDate lastDay = parseDay(endDate, LocalDate.now().minusDays(1));
+        return ResponseEntity.accepted().body(adminJobService.syntheticData(users, calls, days, lastDay, seed));
+    }
+}
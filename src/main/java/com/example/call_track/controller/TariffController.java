@@ -0,0 +1,51 @@
+package com.example.call_track.controller;
+
+import com.example.call_track.dto.call.TariffDto;
+import com.example.call_track.dto.call.TariffQuoteDto;
+import com.example.call_track.service.TariffService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Тарифы по префиксам номера. Строки тарифов правятся в таблице tariffs, после правки — POST /reload.
+ */
+@RestController
+@RequestMapping("/admin/api/tariffs")
+@RequiredArgsConstructor
+public class TariffController extends BaseController {
+    private final TariffService tariffService;
+
+    @GetMapping
+    public ResponseEntity<List<TariffDto>> list() {
+        return ResponseEntity.ok(tariffService.findAll());
+    }
+
+    // Пример: /admin/api/tariffs/quote?callee=%2B375291234567&startTime=2025-01-10T21:30:00&durationSeconds=95
+    @GetMapping("/quote")
+    public ResponseEntity<TariffQuoteDto> quote(@RequestParam String callee,
+                                                @RequestParam(required = false) String startTime,
+                                                @RequestParam long durationSeconds) {
+        LocalDateTime start;
+        try {
+            start = startTime == null || startTime.isBlank() ? LocalDateTime.now() : LocalDateTime.parse(startTime.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid start time, expected yyyy-MM-ddTHH:mm:ss: " + startTime);
+        }
+        return ResponseEntity.ok(tariffService.quote(callee, start, durationSeconds));
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Integer>> reload() {
+        return ResponseEntity.ok(Map.of("tariffs", tariffService.reload()));
+    }
+}
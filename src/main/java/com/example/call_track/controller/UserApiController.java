@@ -4,6 +4,7 @@ import com.example.call_track.dto.PhoneNumberDto;
 import com.example.call_track.dto.PhoneNumberMapper;
 import com.example.call_track.dto.user.InitiateResetDto;
 import com.example.call_track.dto.user.PasswordChangeDto;
+import com.example.call_track.dto.user.ProfileDto;
 import com.example.call_track.dto.user.ResetPasswordDto;
 import com.example.call_track.dto.user.UpdateDto;
 import com.example.call_track.dto.user.VerifyCodeDto;
@@ -33,15 +34,8 @@ public class UserApiController {
     private final PhoneNumberMapper phoneNumberMapper;
 
     @GetMapping("/profile")
-    public ResponseEntity<UpdateDto> getProfile() {
-        User user = userService.getCurrentAuthenticatedUser();
-        UpdateDto updateDto = new UpdateDto();
-        updateDto.setUsername(user.getUsername());
-        updateDto.setFirstName(user.getFirstName());
-        updateDto.setLastName(user.getLastName());
-        updateDto.setMiddleName(user.getMiddleName());
-        updateDto.setPublicContactInfo(user.getPublicContactInfo());
-        return ResponseEntity.ok(updateDto);
+    public ResponseEntity<ProfileDto> getProfile() {
+        return ResponseEntity.ok(userService.getProfile());
     }
 
     @PutMapping("/profile")
@@ -91,9 +85,13 @@ public class UserApiController {
     }
 
     @PostMapping("/avatar")
-    public ResponseEntity<String> uploadAvatar(@RequestParam("avatar") MultipartFile file) {
-        userService.updateAvatar(file);
-        return ResponseEntity.ok("Avatar uploaded successfully");
+    public ResponseEntity<Map<String, String>> uploadAvatar(@RequestParam("avatar") MultipartFile file) {
+        // Аватар сменится, когда будут готовы все размеры: клиент ждет, пока профиль покажет этот путь
+        String avatarPath = userService.updateAvatar(file);
+        Map<String, String> response = new HashMap<>();
+        response.put("avatarPath", avatarPath);
+        response.put("message", "Avatar uploaded, it will be updated in a moment");
+        return ResponseEntity.accepted().body(response);
     }
 
     //TODO: Fix that code
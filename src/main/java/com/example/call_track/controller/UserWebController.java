@@ -71,7 +71,7 @@ public class UserWebController extends BaseController {
     public String uploadAvatar(@RequestParam("avatar") MultipartFile file, RedirectAttributes redirectAttributes) {
         try {
             userService.updateAvatar(file);
-            redirectAttributes.addFlashAttribute("successMessage", "Avatar updated successfully!");
+            redirectAttributes.addFlashAttribute("successMessage", "Avatar uploaded, it will be updated in a moment");
         } catch (Exception e) {
             handleError(redirectAttributes, e, "Avatar upload failed. Please try again.");
         }
@@ -0,0 +1,34 @@
+package com.example.call_track.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Состояние фоновой задачи. Пока задача выполняется, прогресс берется из памяти, после — из background_jobs.
+ */
+@Data
+@Builder
+public class JobDto {
+    private UUID id;
+    // fake-data, synthetic-data, call-import, parquet-export, partition-maintenance, call-graph-reload, password-calibration
+    private String type;
+    // QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED, INTERRUPTED (процесс остановлен во время работы)
+    private String status;
+    private String description;
+    private String createdBy;
+    private long progressDone;
+    // null — объем работы заранее неизвестен
+    private Long progressTotal;
+    private String message;
+    // Отчет задачи в JSON (например, CallImportReport)
+    private Object result;
+    private String error;
+    private boolean cancelRequested;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,22 @@
+package com.example.call_track.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Параметры Argon2, выбранные калибровкой: время проверки одного пароля measuredMillis при цели targetMillis.
+ */
+@Data
+@Builder
+public class PasswordHashSettingsDto {
+    private int memoryKib;
+    private int iterations;
+    private int parallelism;
+    private int targetMillis;
+    private double measuredMillis;
+    // Имя узла, на котором шла калибровка
+    private String calibratedOn;
+    private LocalDateTime calibratedAt;
+}
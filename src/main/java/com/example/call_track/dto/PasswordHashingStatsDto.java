@@ -0,0 +1,29 @@
+package com.example.call_track.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Состояние пула хэширования паролей. Задержки в миллисекундах с момента запуска приложения:
+ * wait — ожидание в очереди, hash — само вычисление Argon2.
+ */
+@Data
+@Builder
+public class PasswordHashingStatsDto {
+    // Текущие параметры, например "argon2id m=65536 KiB, t=3, p=4"
+    private String encoder;
+    private int threads;
+    private int activeThreads;
+    private int queueDepth;
+    private int queueCapacity;
+    private long maxWaitMillis;
+    private long completed;
+    // Отказано сразу: очередь заполнена
+    private long rejected;
+    // Отказано после ожидания дольше maxWaitMillis
+    private long timedOut;
+    private double waitP50Millis;
+    private double waitP99Millis;
+    private double hashP50Millis;
+    private double hashP99Millis;
+}
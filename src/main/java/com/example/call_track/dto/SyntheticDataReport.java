@@ -0,0 +1,20 @@
+package com.example.call_track.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class SyntheticDataReport {
+    private long seed;
+    private int users;
+    private int phones;
+    private long calls;
+    private LocalDate fromDay;
+    private LocalDate toDay;
+    // Общий пароль всех сгенерированных пользователей (username load_000000 ...)
+    private String password;
+    private long elapsedMillis;
+}
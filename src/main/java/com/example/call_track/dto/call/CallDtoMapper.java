@@ -0,0 +1,39 @@
+package com.example.call_track.dto.call;
+
+import com.example.call_track.entity.user.User;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CallDtoMapper {
+
+    /**
+     * Строит {@link CallDto} с точки зрения {@code viewer}.
+     * Для админа ({@code viewer == null}) все звонки показываются как исходящие от caller к callee.
+     */
+    public CallDto toDto(CallRow row, User viewer) {
+        if (row == null) return null;
+        boolean isOutgoing = viewer == null || viewer.getId().equals(row.getCallerUserId());
+
+        String otherPartyName = isOutgoing
+                ? fullName(row.getCalleeFirstName(), row.getCalleeLastName(), row.getCalleeMiddleName())
+                : fullName(row.getCallerFirstName(), row.getCallerLastName(), row.getCallerMiddleName());
+
+        return CallDto.builder()
+                .otherPartyName(otherPartyName)
+                .otherPartyPhone(isOutgoing ? row.getCalleePhone() : row.getCallerPhone())
+                .userPhone(isOutgoing ? row.getCallerPhone() : row.getCalleePhone())
+                .type(isOutgoing ? "OUTGOING" : "INCOMING")
+                .duration(String.format("%02d:%02d", row.getDurationSeconds() / 60, row.getDurationSeconds() % 60))
+                .callTime(row.getCallDateTime())
+                .tariff(row.getPricePerMinute())
+                .cost(row.getTotalCost())
+                .build();
+    }
+
+    private String fullName(String firstName, String lastName, String middleName) {
+        String name = (firstName != null ? firstName : "")
+                + " " + (lastName != null ? lastName : "")
+                + (middleName != null ? " " + middleName : "");
+        return name.trim();
+    }
+}
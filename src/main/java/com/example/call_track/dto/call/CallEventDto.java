@@ -0,0 +1,38 @@
+package com.example.call_track.dto.call;
+
+import com.example.call_track.entity.call.CallType;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+public class CallEventDto {
+    // Ключ идемпотентности, становится id звонка: повторная отправка с тем же id не создает второй звонок
+    private UUID id;
+
+    @NotBlank(message = "Caller phone must not be empty")
+    private String callerPhone;
+
+    @NotBlank(message = "Callee phone must not be empty")
+    private String calleePhone;
+
+    private CallType callType;
+
+    @NotNull(message = "Duration must not be empty")
+    @PositiveOrZero(message = "Duration must not be negative")
+    private Long durationSeconds;
+
+    // Если не указана — по тарифу номера вызываемого абонента
+    @PositiveOrZero(message = "Price per minute must not be negative")
+    @DecimalMax(value = "99999999.99", message = "Price per minute must not exceed 99999999.99")
+    private BigDecimal pricePerMinute;
+
+    // Если не указано — время приема события
+    private LocalDateTime startTime;
+}
@@ -0,0 +1,22 @@
+package com.example.call_track.dto.call;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+public class CallGraphSummaryDto {
+    private LocalDate from;
+    private LocalDate to;
+    // Пользователи, у которых в окне есть хотя бы один звонок
+    private int users;
+    // Направленные пары (кто → кому)
+    private int edges;
+    private int mutualPairs;
+    private int components;
+    private List<Integer> largestComponents;
+    private long computeMillis;
+}
@@ -0,0 +1,26 @@
+package com.example.call_track.dto.call;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+@Builder
+public class CallGraphUserDto {
+    private UUID userId;
+    private String fullName;
+    private long outgoingCalls;
+    private long incomingCalls;
+    private long outgoingSeconds;
+    private long incomingSeconds;
+    private BigDecimal outgoingCost;
+    private BigDecimal incomingCost;
+    // Число разных собеседников по исходящим и входящим звонкам
+    private int outDegree;
+    private int inDegree;
+    // Собеседники, с которыми звонки были в обе стороны
+    private int mutualContacts;
+    private int componentSize;
+}
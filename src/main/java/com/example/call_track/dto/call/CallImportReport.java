@@ -0,0 +1,25 @@
+package com.example.call_track.dto.call;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class CallImportReport {
+    private long linesRead;
+    private long imported;
+    private long rejected;
+    private long elapsedMillis;
+    // Только первые отклоненные строки; общее количество — в rejected
+    private List<RejectedLine> rejects;
+
+    @Data
+    @AllArgsConstructor
+    public static class RejectedLine {
+        private long line;
+        private String reason;
+    }
+}
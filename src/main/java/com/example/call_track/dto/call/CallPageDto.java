@@ -12,7 +12,10 @@ public class CallPageDto {
     private int currentPage;
     private int totalPages;
     private long totalElements;
+    private boolean totalEstimated;
     private int pageSize;
     private boolean hasNext;
     private boolean hasPrevious;
+    private String nextCursor;
+    private String prevCursor;
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.example.call_track.dto.call;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Состояние перетарификации звонков с start_time в [rangeFrom, rangeTo).
+ * В режиме dryRun звонки не меняются, costAfter - costBefore показывает, как изменится выручка.
+ */
+@Data
+@Builder
+public class CallReratingJobDto {
+    private UUID id;
+    // RUNNING, COMPLETED, CANCELLED, FAILED, INTERRUPTED (процесс остановлен во время работы)
+    private String status;
+    private boolean dryRun;
+    private LocalDateTime rangeFrom;
+    private LocalDateTime rangeTo;
+    private LocalDateTime checkpointTime;
+    private UUID checkpointId;
+    private long callsScanned;
+    private long callsChanged;
+    // Звонки без номера вызываемого абонента или без подходящего тарифа
+    private long callsSkipped;
+    private BigDecimal costBefore;
+    private BigDecimal costAfter;
+    private BigDecimal costDelta;
+    private String error;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,34 @@
+package com.example.call_track.dto.call;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Плоская проекция звонка для списков: ровно те колонки, из которых строится {@link CallDto},
+ * выбранные одним запросом вместе с данными обоих участников.
+ */
+@Data
+@Builder
+public class CallRow {
+    private UUID id;
+    private LocalDateTime callDateTime;
+    private long durationSeconds;
+    private BigDecimal pricePerMinute;
+    private BigDecimal totalCost;
+
+    private UUID callerUserId;
+    private String callerPhone;
+    private String callerFirstName;
+    private String callerLastName;
+    private String callerMiddleName;
+
+    private UUID calleeUserId;
+    private String calleePhone;
+    private String calleeFirstName;
+    private String calleeLastName;
+    private String calleeMiddleName;
+}
@@ -0,0 +1,29 @@
+package com.example.call_track.dto.call;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Приблизительные показатели по sketch-ам: собеседники — оценка HyperLogLog (ошибка около 2%),
+ * перцентили — с точностью около 3% от значения.
+ */
+@Data
+@Builder
+public class CallSketchStatsDto {
+    // null — показатели по всей системе
+    private UUID userId;
+    private LocalDate from;
+    private LocalDate to;
+    private long calls;
+    private long distinctCounterparties;
+    private long durationP50;
+    private long durationP95;
+    private long durationP99;
+    private BigDecimal costP50;
+    private BigDecimal costP95;
+    private BigDecimal costP99;
+}
@@ -0,0 +1,26 @@
+package com.example.call_track.dto.call;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+public class CallStatsDto {
+    private LocalDate from;
+    private LocalDate to;
+    private long totalCalls;
+    private long incomingCalls;
+    private long outgoingCalls;
+    private long totalSeconds;
+    private long incomingSeconds;
+    private long outgoingSeconds;
+    private BigDecimal totalCost;
+    private BigDecimal incomingCost;
+    private BigDecimal outgoingCost;
+    // Только дни, в которые были звонки; пусто, если daily=false
+    private List<DailyCallStatsDto> days;
+}
@@ -0,0 +1,23 @@
+package com.example.call_track.dto.call;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Data
+@Builder
+public class DailyCallStatsDto {
+    @JsonIgnore
+    private UUID userId;
+    private LocalDate day;
+    private long incomingCalls;
+    private long outgoingCalls;
+    private long incomingSeconds;
+    private long outgoingSeconds;
+    private BigDecimal incomingCost;
+    private BigDecimal outgoingCost;
+}
@@ -0,0 +1,21 @@
+package com.example.call_track.dto.call;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class TariffDto {
+    private UUID id;
+    private String prefix;
+    private String name;
+    private LocalTime bandStart;
+    private LocalTime bandEnd;
+    private BigDecimal pricePerMinute;
+    private int firstIncrementSeconds;
+    private int nextIncrementSeconds;
+}
@@ -0,0 +1,21 @@
+package com.example.call_track.dto.call;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Расчет стоимости звонка по действующим тарифам, без записи звонка.
+ */
+@Data
+@Builder
+public class TariffQuoteDto {
+    private String callee;
+    private LocalDateTime startTime;
+    private long durationSeconds;
+    private TariffDto tariff;
+    private long billedSeconds;
+    private BigDecimal totalCost;
+}
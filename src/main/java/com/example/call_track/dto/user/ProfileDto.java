@@ -0,0 +1,17 @@
+package com.example.call_track.dto.user;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ProfileDto {
+    private String username;
+    private String firstName;
+    private String lastName;
+    private String middleName;
+    private String publicContactInfo;
+    private String avatarPath;
+    // Загруженный аватар еще обрабатывается; false — заменен или обработка не удалась
+    private boolean avatarProcessing;
+}
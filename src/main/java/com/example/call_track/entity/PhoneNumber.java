@@ -1,6 +1,7 @@
 package com.example.call_track.entity;
 
 import com.example.call_track.entity.user.User;
+import com.example.call_track.utils.SearchKeys;
 import com.example.call_track.utils.validation.ValidPhoneNumber;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -37,6 +38,10 @@ public class PhoneNumber {
     @Column(unique = true, nullable = false)
     private String phone;
 
+    // Только цифры номера для триграммного поиска, см. SearchKeys
+    @Column(name = "search_key", length = 32)
+    private String searchKey;
+
     @Column(name = "is_primary", nullable = false)
     private boolean isPrimary;
 
@@ -47,4 +52,10 @@ public class PhoneNumber {
     @LastModifiedDate
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void updateSearchKey() {
+        searchKey = SearchKeys.phone(phone);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.example.call_track.entity.call;
+
+import com.example.call_track.entity.PhoneNumber;
+import com.example.call_track.entity.user.User;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Денормализованная строка индекса звонков: по одной на каждого участника звонка.
+ * История пользователя читается одним диапазонным сканом по (user_id, call_time),
+ * а направление звонка хранится колонкой, а не вычисляется при чтении.
+ */
+@Entity
+@Table(name = "call_party")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CallParty {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // Без внешнего ключа: у секционированной calls первичный ключ (id, start_time)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "call_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    @ToString.Exclude
+    private Call call;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @ToString.Exclude
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "phone_id", nullable = false)
+    @ToString.Exclude
+    private PhoneNumber phone;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "counterparty_user_id", nullable = false)
+    @ToString.Exclude
+    private User counterpartyUser;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "counterparty_phone_id", nullable = false)
+    @ToString.Exclude
+    private PhoneNumber counterpartyPhone;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "direction", nullable = false)
+    private CallType direction;
+
+    // Имена полей совпадают с Call, чтобы сортировка и курсоры работали для обеих таблиц
+    @Column(name = "call_time", nullable = false)
+    private LocalDateTime callDateTime;
+
+    @Column(name = "duration", nullable = false)
+    private long durationSeconds;
+
+    @Column(name = "price_per_minute", nullable = false, precision = 10, scale = 2)
+    private BigDecimal pricePerMinute;
+
+    @Column(name = "cost", nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalCost;
+
+    /**
+     * Строки индекса для звонка: исходящая для звонящего и входящая для вызываемого.
+     * Звонки без одного из телефонов в индекс не попадают.
+     */
+    public static List<CallParty> forCall(Call call) {
+        List<CallParty> parties = new ArrayList<>(2);
+        PhoneNumber caller = call.getCallerPhone();
+        PhoneNumber callee = call.getCalleePhone();
+        if (caller == null || callee == null) return parties;
+
+        parties.add(of(call, caller, callee, CallType.OUTGOING));
+        parties.add(of(call, callee, caller, CallType.INCOMING));
+        return parties;
+    }
+
+    private static CallParty of(Call call, PhoneNumber own, PhoneNumber other, CallType direction) {
+        return CallParty.builder()
+                .call(call)
+                .user(own.getUser())
+                .phone(own)
+                .counterpartyUser(other.getUser())
+                .counterpartyPhone(other)
+                .direction(direction)
+                .callDateTime(call.getCallDateTime())
+                .durationSeconds(call.getDurationSeconds())
+                .pricePerMinute(call.getPricePerMinute())
+                .totalCost(call.getTotalCost())
+                .build();
+    }
+}
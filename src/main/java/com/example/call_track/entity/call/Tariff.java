@@ -0,0 +1,55 @@
+package com.example.call_track.entity.call;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "tariffs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EntityListeners(AuditingEntityListener.class)
+public class Tariff {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // Цифры номера без '+', пустая строка — тариф по умолчанию
+    @Column(nullable = false, length = 15)
+    private String prefix;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(name = "band_start", nullable = false)
+    private LocalTime bandStart;
+
+    // Не включается; равен bandStart — весь день, меньше bandStart — через полночь
+    @Column(name = "band_end", nullable = false)
+    private LocalTime bandEnd;
+
+    @Column(name = "price_per_minute", nullable = false, precision = 10, scale = 2)
+    private BigDecimal pricePerMinute;
+
+    @Column(name = "first_increment_seconds", nullable = false)
+    private int firstIncrementSeconds;
+
+    @Column(name = "next_increment_seconds", nullable = false)
+    private int nextIncrementSeconds;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
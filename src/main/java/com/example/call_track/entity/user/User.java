@@ -1,6 +1,7 @@
 package com.example.call_track.entity.user;
 
 import com.example.call_track.entity.PhoneNumber;
+import com.example.call_track.utils.SearchKeys;
 import com.example.call_track.utils.validation.ValidPhoneNumber;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.i18n.phonenumbers.Phonenumber;
@@ -14,6 +15,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import jakarta.persistence.*;
+import org.hibernate.Hibernate;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.Collection;
@@ -58,11 +60,17 @@ public class User implements UserDetails {
     @Column(name = "middle_name")
     private String middleName;
 
+    // Нормализованное ФИО для триграммного поиска, см. SearchKeys
+    @Column(name = "search_key", length = 160)
+    @JsonIgnore
+    private String searchKey;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     @ToString.Exclude
     private List<PhoneNumber> phoneNumbers;
 
-    @Column(name = "avatar_path")
+    // Меняется только UserRepository.updateAvatarPath: сохранение профиля из кэша не вернет старый аватар
+    @Column(name = "avatar_path", updatable = false)
     private String avatarPath;
 
     @Column(name = "public_contact_info", length = 500)
@@ -95,6 +103,12 @@ public class User implements UserDetails {
     @Column(name = "deleted_at")
     private LocalDateTime deletedAt;
 
+    @PrePersist
+    @PreUpdate
+    void updateSearchKey() {
+        searchKey = SearchKeys.name(lastName, firstName, middleName);
+    }
+
     @Override
     @NonNull
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -106,6 +120,22 @@ public class User implements UserDetails {
     @Override public boolean isCredentialsNonExpired() { return credentialsNonExpired; }
     @Override public boolean isEnabled() { return enabled && !deleted; }
 
+    // Сравнение по id: кэшированный (detached) пользователь равен загруженному в текущей сессии.
+    // Несохраненный (id == null) равен только самому себе; hashCode не зависит от id, чтобы не меняться
+    // при сохранении у объекта, уже лежащего в HashSet
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        User other = (User) o;
+        return id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Hibernate.getClass(this).hashCode();
+    }
+
     public String getPrimaryPhone() {
         if (phoneNumbers == null) return "";
         return phoneNumbers.stream()
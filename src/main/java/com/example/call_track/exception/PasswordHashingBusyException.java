@@ -0,0 +1,8 @@
+package com.example.call_track.exception;
+
+// Очередь хэширования паролей переполнена или ожидание в ней слишком долгое; клиенту отвечают 503
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
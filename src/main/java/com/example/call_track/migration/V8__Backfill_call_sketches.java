@@ -0,0 +1,16 @@
+package com.example.call_track.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Formerly the one-time fill of user_daily_call_sketches from the existing calls, in a single startup
+ * transaction. The fill is now the resumable call-sketch-backfill job (CallSketchBackfillService),
+ * scheduled by V14; the version stays so that databases that already applied it still validate.
+ */
+public class V8__Backfill_call_sketches extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) {
+        // Ничего не делает: см. V14__call_sketch_backfill.sql
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.call_track.repository;
+
+import com.example.call_track.entity.call.CallType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Пакетная запись звонков через JDBC для массовой загрузки, минуя persistence context.
+ * Пишет calls, строки call_party и суточные итоги. Вставка идемпотентна: id строк call_party выводятся
+ * из id звонка, уже записанные звонки отбрасываются до вставки, поэтому повторная запись ничего не меняет.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CallBatchRepository {
+    private static final String INSERT_CALL =
+            "INSERT INTO calls (id, start_time, caller_phone_id, callee_phone_id, call_type, duration_seconds, " +
+                    "price_per_minute, total_cost, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT DO NOTHING";
+    private static final String INSERT_PARTY =
+            "INSERT INTO call_party (id, call_id, user_id, phone_id, counterparty_user_id, counterparty_phone_id, " +
+                    "direction, call_time, duration, price_per_minute, cost) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final CallStatsRepository callStatsRepository;
+
+    // Номера, которых нет в базе, в результат не попадают
+    public Map<String, PhoneRef> findPhoneRefs(Collection<String> phones) {
+        Map<String, PhoneRef> refs = new HashMap<>();
+        if (phones.isEmpty()) return refs;
+        namedParameterJdbcTemplate.query(
+                "SELECT id, user_id, phone FROM phone_numbers WHERE phone IN (:phones)",
+                Map.of("phones", phones),
+                rs -> {
+                    refs.put(rs.getString("phone"),
+                            new PhoneRef(rs.getObject("id", UUID.class), rs.getObject("user_id", UUID.class), rs.getString("phone")));
+                });
+        return refs;
+    }
+
+    /**
+     * Вставляет звонки вместе с двумя строками call_party на каждый (как CallParty.forCall)
+     * и прибавляет их к user_daily_call_stats. Транзакцией управляет вызывающий код.
+     *
+     * @return звонки, которые действительно были вставлены (без уже записанных ранее)
+     */
+    public List<NewCall> insert(List<NewCall> calls) {
+        if (calls.isEmpty()) return List.of();
+        // Итоги не идемпотентны, поэтому уже записанные звонки (повтор из журнала) отбрасываются заранее
+        Set<UUID> existing = findExistingCallIds(calls);
+
+        List<NewCall> inserted = new ArrayList<>(calls.size());
+        for (NewCall call : calls) {
+            if (existing.add(call.getId())) inserted.add(call);
+        }
+        if (inserted.isEmpty()) return inserted;
+        CallStatsRepository.Increments stats = new CallStatsRepository.Increments();
+        write(inserted, stats);
+        callStatsRepository.apply(stats);
+        return inserted;
+    }
+
+    /**
+     * Вставляет заведомо новые звонки с их строками call_party без проверки на повтор и только накапливает
+     * итоги в {@code stats}: генератор синтетических данных применяет их реже, чем раз на пакет.
+     */
+    public void write(List<NewCall> calls, CallStatsRepository.Increments stats) {
+        if (calls.isEmpty()) return;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> callArgs = new ArrayList<>(calls.size());
+        List<Object[]> partyArgs = new ArrayList<>(calls.size() * 2);
+        for (NewCall call : calls) {
+            Timestamp start = Timestamp.valueOf(call.getCallDateTime());
+            PhoneRef caller = call.getCaller();
+            PhoneRef callee = call.getCallee();
+            callArgs.add(new Object[] { call.getId(), start, caller.getId(), callee.getId(), call.getCallType().name(),
+                    call.getDurationSeconds(), call.getPricePerMinute(), call.getTotalCost(), now });
+            partyArgs.add(new Object[] { partyId(call.getId(), CallType.OUTGOING), call.getId(),
+                    caller.getUserId(), caller.getId(), callee.getUserId(), callee.getId(), CallType.OUTGOING.name(),
+                    start, call.getDurationSeconds(), call.getPricePerMinute(), call.getTotalCost() });
+            partyArgs.add(new Object[] { partyId(call.getId(), CallType.INCOMING), call.getId(),
+                    callee.getUserId(), callee.getId(), caller.getUserId(), caller.getId(), CallType.INCOMING.name(),
+                    start, call.getDurationSeconds(), call.getPricePerMinute(), call.getTotalCost() });
+            LocalDate day = call.getCallDateTime().toLocalDate();
+            stats.add(caller.getUserId(), callee.getUserId(), day, CallType.OUTGOING, call.getDurationSeconds(), call.getTotalCost());
+            stats.add(callee.getUserId(), caller.getUserId(), day, CallType.INCOMING, call.getDurationSeconds(), call.getTotalCost());
+        }
+        jdbcTemplate.batchUpdate(INSERT_CALL, callArgs);
+        jdbcTemplate.batchUpdate(INSERT_PARTY, partyArgs);
+    }
+
+    // Звонок считается записанным, если есть его исходящая строка call_party (поиск по первичному ключу)
+    private Set<UUID> findExistingCallIds(List<NewCall> calls) {
+        List<UUID> partyIds = new ArrayList<>(calls.size());
+        for (NewCall call : calls) partyIds.add(partyId(call.getId(), CallType.OUTGOING));
+        Set<UUID> existing = new HashSet<>();
+        namedParameterJdbcTemplate.query(
+                "SELECT call_id FROM call_party WHERE id IN (:ids)",
+                Map.of("ids", partyIds),
+                rs -> {
+                    existing.add(rs.getObject("call_id", UUID.class));
+                });
+        return existing;
+    }
+
+    private static UUID partyId(UUID callId, CallType direction) {
+        return UUID.nameUUIDFromBytes((callId + ":" + direction.name()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class PhoneRef {
+        private final UUID id;
+        private final UUID userId;
+        private final String phone;
+    }
+
+    @Getter
+    @Builder
+    public static class NewCall {
+        private final UUID id;
+        private final LocalDateTime callDateTime;
+        private final PhoneRef caller;
+        private final PhoneRef callee;
+        private final CallType callType;
+        private final long durationSeconds;
+        private final BigDecimal pricePerMinute;
+        private final BigDecimal totalCost;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.call_track.repository;
+
+import com.example.call_track.entity.call.CallParty;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface CallPartyRepository extends JpaRepository<CallParty, UUID>, JpaSpecificationExecutor<CallParty> {
+}
@@ -15,27 +15,31 @@ import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface CallRepository extends JpaRepository<Call, UUID>, org.springframework.data.jpa.repository.JpaSpecificationExecutor<Call> {
+public interface CallRepository extends JpaRepository<Call, UUID>, org.springframework.data.jpa.repository.JpaSpecificationExecutor<Call>, CallRepositoryCustom {
     List<Call> findByCallerPhone(PhoneNumber callerPhone);
     List<Call> findByCalleePhone(PhoneNumber calleePhone);
     List<Call> findByCallerPhoneOrCalleePhone(PhoneNumber callerPhone, PhoneNumber calleePhone);
     List<Call> findByCallDateTimeBetween(LocalDateTime start, LocalDateTime end);
 
-    @Query("SELECT c FROM Call c LEFT JOIN FETCH c.callerPhone cp LEFT JOIN FETCH cp.user LEFT JOIN FETCH c.calleePhone calp LEFT JOIN FETCH calp.user WHERE cp.user = :user OR calp.user = :user ORDER BY c.callDateTime DESC")
+    // История пользователя читается через индекс call_party (user_id, call_time);
+    // соединение с calls идет и по start_time, чтобы каждая строка искалась только в своей секции
+    @Query(value = "SELECT c FROM CallParty p JOIN Call c ON c.id = p.call.id AND c.callDateTime = p.callDateTime LEFT JOIN FETCH c.callerPhone cp LEFT JOIN FETCH cp.user " +
+            "LEFT JOIN FETCH c.calleePhone calp LEFT JOIN FETCH calp.user WHERE p.user = :user ORDER BY p.callDateTime DESC",
+            countQuery = "SELECT COUNT(p) FROM CallParty p WHERE p.user = :user")
     Page<Call> findByUserWithPhones(User user, Pageable pageable);
 
-    @Query("SELECT c FROM Call c LEFT JOIN c.callerPhone cp LEFT JOIN c.calleePhone calp " +
-            "WHERE (cp.user = :user OR calp.user = :user) " +
-            "AND (:startDate IS NULL OR c.callDateTime >= :startDate) " +
-            "AND (:endDate IS NULL OR c.callDateTime <= :endDate) " +
+    @Query("SELECT c FROM CallParty p JOIN Call c ON c.id = p.call.id AND c.callDateTime = p.callDateTime " +
+            "LEFT JOIN p.counterpartyPhone op " +
+            "WHERE p.user = :user " +
+            "AND (:startDate IS NULL OR p.callDateTime >= :startDate) " +
+            "AND (:endDate IS NULL OR p.callDateTime <= :endDate) " +
             "AND (:callType IS NULL OR " +
-            "(:callType = 'OUTGOING' AND cp.user = :user) OR " +
-            "(:callType = 'INCOMING' AND calp.user = :user)) " +
-            "AND (:phone IS NULL OR " +
-            "((cp.user != :user AND cp.phone = :phone) OR (calp.user != :user AND calp.phone = :phone))) " +
-            "AND (:minCost IS NULL OR c.totalCost >= :minCost) " +
-            "AND (:maxCost IS NULL OR c.totalCost <= :maxCost) " +
-            "ORDER BY c.callDateTime DESC")
+            "(:callType = 'OUTGOING' AND p.direction = com.example.call_track.entity.call.CallType.OUTGOING) OR " +
+            "(:callType = 'INCOMING' AND p.direction = com.example.call_track.entity.call.CallType.INCOMING)) " +
+            "AND (:phone IS NULL OR op.phone = :phone) " +
+            "AND (:minCost IS NULL OR p.totalCost >= :minCost) " +
+            "AND (:maxCost IS NULL OR p.totalCost <= :maxCost) " +
+            "ORDER BY p.callDateTime DESC")
     Page<Call> findByUserWithFilters(@Param("user") User user,
                                      @Param("startDate") LocalDateTime startDate,
                                      @Param("endDate") LocalDateTime endDate,
@@ -44,4 +48,20 @@ public interface CallRepository extends JpaRepository<Call, UUID>, org.springfra
                                      @Param("minCost") BigDecimal minCost,
                                      @Param("maxCost") BigDecimal maxCost,
                                      Pageable pageable);
+
+    // Границы данных для выгрузки по месяцам; по индексу на start_time, null в пустой таблице
+    @Query("SELECT MIN(c.callDateTime) FROM Call c")
+    LocalDateTime findFirstCallDateTime();
+
+    @Query("SELECT MAX(c.callDateTime) FROM Call c")
+    LocalDateTime findLastCallDateTime();
+
+    // Оценка числа строк из статистики планировщика; -1, если таблица еще не анализировалась.
+    // У секционированной таблицы reltuples родителя всегда -1 (autovacuum его не анализирует),
+    // поэтому оценка — сумма по секциям; -1, только если не анализировалась ни одна
+    @Query(value = "SELECT CASE WHEN p.relkind <> 'p' THEN p.reltuples::bigint " +
+            "ELSE COALESCE((SELECT CASE WHEN bool_and(c.reltuples < 0) THEN -1 ELSE SUM(GREATEST(c.reltuples, 0)) END " +
+            "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = p.oid), -1)::bigint END " +
+            "FROM pg_class p WHERE p.oid = 'calls'::regclass", nativeQuery = true)
+    long estimateRowCount();
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.example.call_track.repository;
+
+import com.example.call_track.dto.call.CallRow;
+import com.example.call_track.entity.call.Call;
+import com.example.call_track.entity.call.CallParty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface CallRepositoryCustom {
+    /**
+     * Возвращает до {@code limit} строк-проекций, начиная с {@code offset}, одним запросом
+     * и без дополнительного COUNT. Участники звонка и их телефоны выбираются через join'ы спецификации.
+     */
+    List<CallRow> findRows(Specification<Call> spec, Sort sort, long offset, int limit);
+
+    /**
+     * То же для истории пользователя из call_party: строки уже ориентированы на владельца,
+     * {@link CallRow#getId()} содержит id строки call_party (ключ для keyset-пагинации).
+     */
+    List<CallRow> findPartyRows(Specification<CallParty> spec, Sort sort, long offset, int limit);
+
+    /**
+     * Потоковое чтение всех строк под спецификацией через курсор с фиксированным fetch size.
+     * Поток нужно читать внутри транзакции и закрыть после использования.
+     */
+    Stream<CallRow> streamRows(Specification<Call> spec, Sort sort, int fetchSize);
+
+    Stream<CallRow> streamPartyRows(Specification<CallParty> spec, Sort sort, int fetchSize);
+}
@@ -0,0 +1,190 @@
+package com.example.call_track.repository;
+
+import com.example.call_track.dto.call.CallRow;
+import com.example.call_track.entity.PhoneNumber;
+import com.example.call_track.entity.call.Call;
+import com.example.call_track.entity.call.CallParty;
+import com.example.call_track.entity.call.CallType;
+import com.example.call_track.entity.user.User;
+import com.example.call_track.spec.CallSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class CallRepositoryCustomImpl implements CallRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CallRow> findRows(Specification<Call> spec, Sort sort, long offset, int limit) {
+        return page(rowsQuery(spec, sort), offset, limit).getResultList().stream()
+                .map(this::toRow)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<CallRow> findPartyRows(Specification<CallParty> spec, Sort sort, long offset, int limit) {
+        return page(partyRowsQuery(spec, sort), offset, limit).getResultList().stream()
+                .map(this::toPartyRow)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<CallRow> streamRows(Specification<Call> spec, Sort sort, int fetchSize) {
+        return scroll(rowsQuery(spec, sort), fetchSize).map(this::toRow);
+    }
+
+    @Override
+    public Stream<CallRow> streamPartyRows(Specification<CallParty> spec, Sort sort, int fetchSize) {
+        return scroll(partyRowsQuery(spec, sort), fetchSize).map(this::toPartyRow);
+    }
+
+    private TypedQuery<Tuple> rowsQuery(Specification<Call> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Call> root = query.from(Call.class);
+
+        // Спецификация создает join'ы первой, проекция переиспользует их же
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) query.where(predicate);
+
+        Join<Call, PhoneNumber> callerPhone = CallSpecifications.join(root, "callerPhone");
+        Join<Call, PhoneNumber> calleePhone = CallSpecifications.join(root, "calleePhone");
+        Join<PhoneNumber, User> callerUser = CallSpecifications.join(callerPhone, "user");
+        Join<PhoneNumber, User> calleeUser = CallSpecifications.join(calleePhone, "user");
+
+        query.multiselect(
+                root.get("id"),
+                root.get("callDateTime"),
+                root.get("durationSeconds"),
+                root.get("pricePerMinute"),
+                root.get("totalCost"),
+                callerUser.get("id"),
+                callerPhone.get("phone"),
+                callerUser.get("firstName"),
+                callerUser.get("lastName"),
+                callerUser.get("middleName"),
+                calleeUser.get("id"),
+                calleePhone.get("phone"),
+                calleeUser.get("firstName"),
+                calleeUser.get("lastName"),
+                calleeUser.get("middleName"));
+        return ordered(query, root, cb, sort);
+    }
+
+    private CallRow toRow(Tuple t) {
+        return CallRow.builder()
+                .id(t.get(0, UUID.class))
+                .callDateTime(t.get(1, LocalDateTime.class))
+                .durationSeconds(t.get(2, Long.class))
+                .pricePerMinute(t.get(3, BigDecimal.class))
+                .totalCost(t.get(4, BigDecimal.class))
+                .callerUserId(t.get(5, UUID.class))
+                .callerPhone(t.get(6, String.class))
+                .callerFirstName(t.get(7, String.class))
+                .callerLastName(t.get(8, String.class))
+                .callerMiddleName(t.get(9, String.class))
+                .calleeUserId(t.get(10, UUID.class))
+                .calleePhone(t.get(11, String.class))
+                .calleeFirstName(t.get(12, String.class))
+                .calleeLastName(t.get(13, String.class))
+                .calleeMiddleName(t.get(14, String.class))
+                .build();
+    }
+
+    private TypedQuery<Tuple> partyRowsQuery(Specification<CallParty> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<CallParty> root = query.from(CallParty.class);
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) query.where(predicate);
+
+        Join<CallParty, PhoneNumber> ownPhone = CallSpecifications.join(root, "phone");
+        Join<CallParty, PhoneNumber> otherPhone = CallSpecifications.join(root, "counterpartyPhone");
+        Join<CallParty, User> otherUser = CallSpecifications.join(root, "counterpartyUser");
+
+        query.multiselect(
+                root.get("id"),
+                root.get("callDateTime"),
+                root.get("durationSeconds"),
+                root.get("pricePerMinute"),
+                root.get("totalCost"),
+                root.get("direction"),
+                root.get("user").get("id"),
+                ownPhone.get("phone"),
+                otherUser.get("id"),
+                otherPhone.get("phone"),
+                otherUser.get("firstName"),
+                otherUser.get("lastName"),
+                otherUser.get("middleName"));
+        return ordered(query, root, cb, sort);
+    }
+
+    private CallRow toPartyRow(Tuple t) {
+        CallRow.CallRowBuilder row = CallRow.builder()
+                .id(t.get(0, UUID.class))
+                .callDateTime(t.get(1, LocalDateTime.class))
+                .durationSeconds(t.get(2, Long.class))
+                .pricePerMinute(t.get(3, BigDecimal.class))
+                .totalCost(t.get(4, BigDecimal.class));
+        UUID ownUserId = t.get(6, UUID.class);
+        String ownPhoneNumber = t.get(7, String.class);
+        UUID otherUserId = t.get(8, UUID.class);
+        String otherPhoneNumber = t.get(9, String.class);
+        String firstName = t.get(10, String.class);
+        String lastName = t.get(11, String.class);
+        String middleName = t.get(12, String.class);
+
+        // Имена владельца строки при отображении не нужны, поэтому не выбираются
+        if (t.get(5, CallType.class) == CallType.OUTGOING) {
+            row.callerUserId(ownUserId).callerPhone(ownPhoneNumber)
+                    .calleeUserId(otherUserId).calleePhone(otherPhoneNumber)
+                    .calleeFirstName(firstName).calleeLastName(lastName).calleeMiddleName(middleName);
+        } else {
+            row.calleeUserId(ownUserId).calleePhone(ownPhoneNumber)
+                    .callerUserId(otherUserId).callerPhone(otherPhoneNumber)
+                    .callerFirstName(firstName).callerLastName(lastName).callerMiddleName(middleName);
+        }
+        return row.build();
+    }
+
+    private TypedQuery<Tuple> ordered(CriteriaQuery<Tuple> query, Root<?> root, CriteriaBuilder cb, Sort sort) {
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order.isAscending() ? cb.asc(root.get(order.getProperty())) : cb.desc(root.get(order.getProperty())));
+        }
+        query.orderBy(orders);
+        return entityManager.createQuery(query);
+    }
+
+    private static TypedQuery<Tuple> page(TypedQuery<Tuple> query, long offset, int limit) {
+        return query.setFirstResult(Math.toIntExact(offset)).setMaxResults(limit);
+    }
+
+    // Серверный курсор PostgreSQL: строки приходят порциями по fetchSize, нужна открытая транзакция
+    private static Stream<Tuple> scroll(TypedQuery<Tuple> query, int fetchSize) {
+        return query
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.call_track.repository;
+
+import com.example.call_track.dto.call.CallReratingJobDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Чтение звонков порциями по ключу (start_time, id), запись новых цен и состояние запусков перетарификации.
+ * Порция читается по индексу idx_calls_start_time без OFFSET, обновляются только изменившиеся строки.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CallReratingRepository {
+    private static final String CHUNK_COLUMNS =
+            "SELECT c.id, c.start_time, c.duration_seconds, c.price_per_minute, c.total_cost, " +
+                    "callee.phone AS callee_phone, caller.user_id AS caller_user_id, callee.user_id AS callee_user_id " +
+                    "FROM calls c " +
+                    "LEFT JOIN phone_numbers caller ON caller.id = c.caller_phone_id " +
+                    "LEFT JOIN phone_numbers callee ON callee.id = c.callee_phone_id ";
+    // Старая стоимость в условии: если звонок изменился после чтения, строка не трогается
+    private static final String UPDATE_CALL =
+            "UPDATE calls SET price_per_minute = ?, total_cost = ?, updated_at = ? " +
+                    "WHERE id = ? AND start_time = ? AND total_cost = ? AND price_per_minute = ?";
+    private static final String UPDATE_PARTY =
+            "UPDATE call_party SET price_per_minute = ?, cost = ? WHERE call_id = ?";
+    private static final String JOB_COLUMNS =
+            "SELECT id, status, dry_run, range_from, range_to, checkpoint_time, checkpoint_id, calls_scanned, " +
+                    "calls_changed, calls_skipped, cost_before, cost_after, error, started_at, updated_at, finished_at " +
+                    "FROM call_rerating_jobs ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Следующие {@code limit} звонков с start_time в [from, to) после ключа (afterTime, afterId);
+     * без ключа — с начала диапазона.
+     */
+    public List<RatedCall> findChunk(LocalDateTime from, LocalDateTime to, LocalDateTime afterTime, UUID afterId, int limit) {
+        RowMapper<RatedCall> mapper = (rs, rowNum) -> {
+            RatedCall call = new RatedCall();
+            call.id = rs.getObject("id", UUID.class);
+            call.startTime = rs.getTimestamp("start_time").toLocalDateTime();
+            call.durationSeconds = rs.getLong("duration_seconds");
+            call.pricePerMinute = minorUnits(rs.getBigDecimal("price_per_minute"));
+            call.totalCost = minorUnits(rs.getBigDecimal("total_cost"));
+            call.calleePhone = rs.getString("callee_phone");
+            call.callerUserId = rs.getObject("caller_user_id", UUID.class);
+            call.calleeUserId = rs.getObject("callee_user_id", UUID.class);
+            return call;
+        };
+        if (afterTime == null) {
+            return jdbcTemplate.query(CHUNK_COLUMNS + "WHERE c.start_time >= ? AND c.start_time < ? " +
+                            "ORDER BY c.start_time, c.id LIMIT ?",
+                    mapper, Timestamp.valueOf(from), Timestamp.valueOf(to), limit);
+        }
+        return jdbcTemplate.query(CHUNK_COLUMNS + "WHERE (c.start_time, c.id) > (?, ?) AND c.start_time < ? " +
+                        "ORDER BY c.start_time, c.id LIMIT ?",
+                mapper, Timestamp.valueOf(afterTime), afterId, Timestamp.valueOf(to), limit);
+    }
+
+    /**
+     * Записывает новые цены звонков и их строк call_party. Транзакцией управляет вызывающий код.
+     *
+     * @return звонки, которые действительно обновлены (остальные изменились с момента чтения)
+     */
+    public List<RatedCall> updateRates(List<RatedCall> calls) {
+        if (calls.isEmpty()) return List.of();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> callArgs = new ArrayList<>(calls.size());
+        for (RatedCall call : calls) {
+            callArgs.add(new Object[] { BigDecimal.valueOf(call.newPricePerMinute, 2), BigDecimal.valueOf(call.newTotalCost, 2),
+                    now, call.id, Timestamp.valueOf(call.startTime), BigDecimal.valueOf(call.totalCost, 2),
+                    BigDecimal.valueOf(call.pricePerMinute, 2) });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_CALL, callArgs);
+
+        List<RatedCall> updated = new ArrayList<>(calls.size());
+        List<Object[]> partyArgs = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            if (counts[i] == 0) continue;
+            RatedCall call = calls.get(i);
+            updated.add(call);
+            partyArgs.add(new Object[] { BigDecimal.valueOf(call.newPricePerMinute, 2), BigDecimal.valueOf(call.newTotalCost, 2), call.id });
+        }
+        if (!partyArgs.isEmpty()) jdbcTemplate.batchUpdate(UPDATE_PARTY, partyArgs);
+        return updated;
+    }
+
+    public void insertJob(CallReratingJobDto job) {
+        jdbcTemplate.update(
+                "INSERT INTO call_rerating_jobs (id, status, dry_run, range_from, range_to, started_at, updated_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                job.getId(), job.getStatus(), job.isDryRun(), Timestamp.valueOf(job.getRangeFrom()),
+                Timestamp.valueOf(job.getRangeTo()), Timestamp.valueOf(job.getStartedAt()), Timestamp.valueOf(job.getStartedAt()));
+    }
+
+    public void saveJob(CallReratingJobDto job) {
+        jdbcTemplate.update(
+                "UPDATE call_rerating_jobs SET status = ?, checkpoint_time = ?, checkpoint_id = ?, calls_scanned = ?, " +
+                        "calls_changed = ?, calls_skipped = ?, cost_before = ?, cost_after = ?, error = ?, " +
+                        "updated_at = ?, finished_at = ? WHERE id = ?",
+                job.getStatus(), timestamp(job.getCheckpointTime()), job.getCheckpointId(), job.getCallsScanned(),
+                job.getCallsChanged(), job.getCallsSkipped(), job.getCostBefore(), job.getCostAfter(), job.getError(),
+                timestamp(job.getUpdatedAt()), timestamp(job.getFinishedAt()), job.getId());
+    }
+
+    public Optional<CallReratingJobDto> findJob(UUID id) {
+        return jdbcTemplate.query(JOB_COLUMNS + "WHERE id = ?", this::mapJob, id).stream().findFirst();
+    }
+
+    public List<CallReratingJobDto> findRecentJobs(int limit) {
+        return jdbcTemplate.query(JOB_COLUMNS + "ORDER BY started_at DESC LIMIT ?", this::mapJob, limit);
+    }
+
+    public List<CallReratingJobDto> findJobsByStatus(String status) {
+        return jdbcTemplate.query(JOB_COLUMNS + "WHERE status = ? ORDER BY started_at", this::mapJob, status);
+    }
+
+    // Запуски, которые числились выполняемыми при остановке процесса
+    public int markInterrupted() {
+        return jdbcTemplate.update("UPDATE call_rerating_jobs SET status = 'INTERRUPTED', updated_at = ? WHERE status = 'RUNNING'",
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private CallReratingJobDto mapJob(ResultSet rs, int rowNum) throws SQLException {
+        BigDecimal before = rs.getBigDecimal("cost_before");
+        BigDecimal after = rs.getBigDecimal("cost_after");
+        return CallReratingJobDto.builder()
+                .id(rs.getObject("id", UUID.class))
+                .status(rs.getString("status"))
+                .dryRun(rs.getBoolean("dry_run"))
+                .rangeFrom(rs.getTimestamp("range_from").toLocalDateTime())
+                .rangeTo(rs.getTimestamp("range_to").toLocalDateTime())
+                .checkpointTime(localDateTime(rs.getTimestamp("checkpoint_time")))
+                .checkpointId(rs.getObject("checkpoint_id", UUID.class))
+                .callsScanned(rs.getLong("calls_scanned"))
+                .callsChanged(rs.getLong("calls_changed"))
+                .callsSkipped(rs.getLong("calls_skipped"))
+                .costBefore(before)
+                .costAfter(after)
+                .costDelta(after.subtract(before))
+                .error(rs.getString("error"))
+                .startedAt(rs.getTimestamp("started_at").toLocalDateTime())
+                .updatedAt(localDateTime(rs.getTimestamp("updated_at")))
+                .finishedAt(localDateTime(rs.getTimestamp("finished_at")))
+                .build();
+    }
+
+    // Суммы в столбцах numeric(10, 2), unscaledValue — копейки
+    private static long minorUnits(BigDecimal amount) {
+        return amount.setScale(2).unscaledValue().longValueExact();
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+
+    private static LocalDateTime localDateTime(Timestamp value) {
+        return value != null ? value.toLocalDateTime() : null;
+    }
+
+    /**
+     * Звонок порции: прочитанные цены и, после тарификации, новые; суммы в копейках.
+     */
+    @Getter
+    @Setter
+    public static class RatedCall {
+        private UUID id;
+        private LocalDateTime startTime;
+        private long durationSeconds;
+        private long pricePerMinute;
+        private long totalCost;
+        private String calleePhone;
+        private UUID callerUserId;
+        private UUID calleeUserId;
+        private long newPricePerMinute;
+        private long newTotalCost;
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.call_track.repository;
+
+import com.example.call_track.dto.call.DailyCallStatsDto;
+import com.example.call_track.entity.call.CallType;
+import com.example.call_track.utils.HyperLogLog;
+import com.example.call_track.utils.LogHistogram;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Суточные итоги звонков по пользователям (user_daily_call_stats) и их sketch-и (user_daily_call_sketches).
+ * Итоги увеличиваются в той же транзакции, что и вставка строк call_party, поэтому статистика
+ * за период читается из не более чем одной строки на день, без обхода истории звонков.
+ * Общий по системе sketch дня (global_daily_call_sketches) строится только для закрытых дней, раньше
+ * сегодняшнего ({@link #buildGlobalSketch}): строку текущего дня блокировали бы все пишущие транзакции.
+ * Запись в закрытый день (поздний звонок, перетарификация, восстановление) удаляет его общую строку,
+ * и до следующего построения день собирается при чтении из пользовательских.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CallStatsRepository {
+    private static final String UPSERT =
+            "INSERT INTO user_daily_call_stats (user_id, day, incoming_calls, outgoing_calls, incoming_seconds, " +
+                    "outgoing_seconds, incoming_cost, outgoing_cost) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (user_id, day) DO UPDATE SET " +
+                    "incoming_calls = user_daily_call_stats.incoming_calls + EXCLUDED.incoming_calls, " +
+                    "outgoing_calls = user_daily_call_stats.outgoing_calls + EXCLUDED.outgoing_calls, " +
+                    "incoming_seconds = user_daily_call_stats.incoming_seconds + EXCLUDED.incoming_seconds, " +
+                    "outgoing_seconds = user_daily_call_stats.outgoing_seconds + EXCLUDED.outgoing_seconds, " +
+                    "incoming_cost = user_daily_call_stats.incoming_cost + EXCLUDED.incoming_cost, " +
+                    "outgoing_cost = user_daily_call_stats.outgoing_cost + EXCLUDED.outgoing_cost";
+    private static final String ADD_COST =
+            "UPDATE user_daily_call_stats SET incoming_cost = incoming_cost + ?, outgoing_cost = outgoing_cost + ? " +
+                    "WHERE user_id = ? AND day = ?";
+    private static final String CREATE_SKETCH =
+            "INSERT INTO user_daily_call_sketches (user_id, day) VALUES (?, ?) ON CONFLICT DO NOTHING";
+    private static final String INSERT_SKETCH =
+            "INSERT INTO user_daily_call_sketches (user_id, day, counterparties, durations, costs) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_SKETCH =
+            "UPDATE user_daily_call_sketches SET counterparties = ?, durations = ?, costs = ? WHERE user_id = ? AND day = ?";
+    private static final String UPSERT_GLOBAL_SKETCH =
+            "INSERT INTO global_daily_call_sketches (day, counterparties, durations, costs) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT (day) DO UPDATE SET counterparties = EXCLUDED.counterparties, " +
+                    "durations = EXCLUDED.durations, costs = EXCLUDED.costs";
+    // Ограничение на число пар (user_id, day) в одном SELECT ... FOR UPDATE
+    private static final int LOCK_CHUNK = 1000;
+    // Пространство advisory-блокировок общих sketch-ей; второй ключ — номер дня от эпохи.
+    // Запись в закрытый день берет разделяемую, построение — исключительную: построение не пропустит
+    // ни строку, созданную параллельно, ни удаление общей строки
+    private static final int GLOBAL_SKETCH_LOCK = 7016;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Прибавляет накопленные приращения к итогам и sketch-ам. Транзакцией управляет вызывающий код.
+     */
+    public void apply(Increments increments) {
+        if (increments.rows.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(increments.rows.size());
+        for (DailyCallStatsDto row : increments.rows.values()) {
+            args.add(new Object[] { row.getUserId(), Date.valueOf(row.getDay()), row.getIncomingCalls(), row.getOutgoingCalls(),
+                    row.getIncomingSeconds(), row.getOutgoingSeconds(), row.getIncomingCost(), row.getOutgoingCost() });
+        }
+        jdbcTemplate.batchUpdate(UPSERT, args);
+        applySketches(increments.sketches, true);
+        invalidateGlobalSketches(increments.sketches.values());
+    }
+
+    /**
+     * Поправки стоимости после перетарификации уже учтенных звонков: итоги и гистограммы стоимости.
+     * Гистограмма хранит счетчики по корзинам, поэтому звонок переносится из корзины старой стоимости
+     * в корзину новой точно. Транзакцией управляет вызывающий код.
+     */
+    public void apply(CostDeltas deltas) {
+        if (deltas.rows.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(deltas.rows.size());
+        for (CostDeltas.Row row : deltas.rows.values()) {
+            args.add(new Object[] { BigDecimal.valueOf(row.incoming, 2), BigDecimal.valueOf(row.outgoing, 2),
+                    row.userId, Date.valueOf(row.day) });
+        }
+        jdbcTemplate.batchUpdate(ADD_COST, args);
+        // Строки sketch-ей не создаются: дня без строки еще ждет CallSketchBackfillService,
+        // и тот построит его уже по новым ценам
+        applySketches(deltas.sketches, false);
+        invalidateGlobalSketches(deltas.sketches.values());
+    }
+
+    /**
+     * Удаляет sketch-и дня, вместе с общим, перед их восстановлением из звонков ({@link #insertSketches}).
+     */
+    public void deleteSketches(LocalDate day) {
+        jdbcTemplate.update("DELETE FROM user_daily_call_sketches WHERE day = ?", Date.valueOf(day));
+        deleteGlobalSketch(day);
+    }
+
+    /**
+     * Закрытые дни (раньше {@code before}) с пользовательскими sketch-ами, но без общего, по возрастанию.
+     * Дни перебираются по индексу на day, без чтения всех строк.
+     */
+    public List<LocalDate> findDaysWithoutGlobalSketch(LocalDate before) {
+        return jdbcTemplate.query(
+                "WITH RECURSIVE days AS (" +
+                        "SELECT min(day) AS day FROM user_daily_call_sketches WHERE day < ? " +
+                        "UNION ALL " +
+                        "SELECT (SELECT min(s.day) FROM user_daily_call_sketches s WHERE s.day > days.day AND s.day < ?) " +
+                        "FROM days WHERE days.day IS NOT NULL) " +
+                        "SELECT day FROM days WHERE day IS NOT NULL " +
+                        "AND NOT EXISTS (SELECT 1 FROM global_daily_call_sketches g WHERE g.day = days.day) ORDER BY day",
+                (rs, rowNum) -> rs.getDate("day").toLocalDate(),
+                Date.valueOf(before), Date.valueOf(before));
+    }
+
+    /**
+     * Строит общий sketch закрытого дня объединением пользовательских. Транзакцией управляет вызывающий код;
+     * пишущие в этот день транзакции ждут ее фиксации.
+     */
+    public void buildGlobalSketch(LocalDate day) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?, ?)", GLOBAL_SKETCH_LOCK, (int) day.toEpochDay());
+        DaySketch merged = new DaySketch(null, day);
+        jdbcTemplate.query("SELECT counterparties, durations, costs FROM user_daily_call_sketches WHERE day = ?",
+                rs -> {
+                    merge(merged, rs);
+                },
+                Date.valueOf(day));
+        jdbcTemplate.update(UPSERT_GLOBAL_SKETCH, Date.valueOf(day), merged.counterparties.toBytes(),
+                merged.durations.toBytes(), merged.costs.toBytes());
+    }
+
+    // Текущий день общей строки не имеет, поэтому обычная запись сюда не доходит
+    private void invalidateGlobalSketches(Collection<DaySketch> sketches) {
+        LocalDate today = LocalDate.now();
+        Set<LocalDate> closed = new TreeSet<>();
+        for (DaySketch sketch : sketches) {
+            if (sketch.day.isBefore(today)) closed.add(sketch.day);
+        }
+        for (LocalDate day : closed) deleteGlobalSketch(day);
+    }
+
+    private void deleteGlobalSketch(LocalDate day) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock_shared(?, ?)", GLOBAL_SKETCH_LOCK, (int) day.toEpochDay());
+        jdbcTemplate.update("DELETE FROM global_daily_call_sketches WHERE day = ?", Date.valueOf(day));
+    }
+
+    /**
+     * Вставляет sketch-и, построенные заново; строк с теми же ключами быть не должно.
+     */
+    public void insertSketches(Increments increments) {
+        List<Object[]> args = new ArrayList<>(increments.sketches.size());
+        for (DaySketch sketch : increments.sketches.values()) {
+            args.add(new Object[] { sketch.userId, Date.valueOf(sketch.day), sketch.counterparties.toBytes(),
+                    sketch.durations.toBytes(), sketch.costs.toBytes() });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SKETCH, args);
+    }
+
+    // Дни без звонков в результат не попадают
+    public List<DailyCallStatsDto> findByUserAndDays(UUID userId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT user_id, day, incoming_calls, outgoing_calls, incoming_seconds, outgoing_seconds, " +
+                        "incoming_cost, outgoing_cost FROM user_daily_call_stats " +
+                        "WHERE user_id = ? AND day BETWEEN ? AND ? ORDER BY day",
+                (rs, rowNum) -> DailyCallStatsDto.builder()
+                        .userId(rs.getObject("user_id", UUID.class))
+                        .day(rs.getDate("day").toLocalDate())
+                        .incomingCalls(rs.getLong("incoming_calls"))
+                        .outgoingCalls(rs.getLong("outgoing_calls"))
+                        .incomingSeconds(rs.getLong("incoming_seconds"))
+                        .outgoingSeconds(rs.getLong("outgoing_seconds"))
+                        .incomingCost(rs.getBigDecimal("incoming_cost"))
+                        .outgoingCost(rs.getBigDecimal("outgoing_cost"))
+                        .build(),
+                userId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * Sketch пользователя за дни [from, to], объединенный из суточных.
+     */
+    public DaySketch findSketch(UUID userId, LocalDate from, LocalDate to) {
+        DaySketch merged = new DaySketch(userId, null);
+        jdbcTemplate.query(
+                "SELECT counterparties, durations, costs FROM user_daily_call_sketches " +
+                        "WHERE user_id = ? AND day BETWEEN ? AND ?",
+                rs -> {
+                    merge(merged, rs);
+                },
+                userId, Date.valueOf(from), Date.valueOf(to));
+        return merged;
+    }
+
+    /**
+     * Общий по системе sketch за дни [from, to]: общие строки построенных дней и пользовательские строки
+     * остальных (текущего дня и дней, измененных после построения).
+     * Собеседники — все участвовавшие в звонках; каждый звонок учтен у обеих сторон, поэтому в гистограммах
+     * он посчитан дважды: перцентили от этого не меняются, а число звонков — половина общего счетчика.
+     */
+    public DaySketch findGlobalSketch(LocalDate from, LocalDate to) {
+        DaySketch merged = new DaySketch(null, null);
+        Set<LocalDate> built = new HashSet<>();
+        jdbcTemplate.query(
+                "SELECT day, counterparties, durations, costs FROM global_daily_call_sketches WHERE day BETWEEN ? AND ?",
+                rs -> {
+                    built.add(rs.getDate("day").toLocalDate());
+                    merge(merged, rs);
+                },
+                Date.valueOf(from), Date.valueOf(to));
+
+        // Непостроенные дни идут отрезками подряд: обычно это только последние дни периода
+        LocalDate start = null;
+        for (LocalDate day = from; !day.isAfter(to.plusDays(1)); day = day.plusDays(1)) {
+            boolean missing = !day.isAfter(to) && !built.contains(day);
+            if (missing && start == null) {
+                start = day;
+            } else if (!missing && start != null) {
+                jdbcTemplate.query(
+                        "SELECT counterparties, durations, costs FROM user_daily_call_sketches WHERE day BETWEEN ? AND ?",
+                        rs -> {
+                            merge(merged, rs);
+                        },
+                        Date.valueOf(start), Date.valueOf(day.minusDays(1)));
+                start = null;
+            }
+        }
+        return merged;
+    }
+
+    private static void merge(DaySketch sketch, ResultSet rs) throws SQLException {
+        sketch.counterparties.merge(HyperLogLog.fromBytes(rs.getBytes("counterparties")));
+        sketch.durations.merge(LogHistogram.fromBytes(rs.getBytes("durations")));
+        sketch.costs.merge(LogHistogram.fromBytes(rs.getBytes("costs")));
+    }
+
+    /**
+     * Sketch-и нельзя сложить в SQL, поэтому строки создаются (если {@code create}), блокируются в порядке
+     * ключа, объединяются с приращениями в памяти и записываются обратно. Без {@code create} отсутствующие
+     * строки пропускаются.
+     */
+    private void applySketches(Map<String, DaySketch> sketches, boolean create) {
+        if (sketches.isEmpty()) return;
+        if (create) {
+            List<Object[]> keys = new ArrayList<>(sketches.size());
+            for (DaySketch sketch : sketches.values()) keys.add(new Object[] { sketch.userId, Date.valueOf(sketch.day) });
+            jdbcTemplate.batchUpdate(CREATE_SKETCH, keys);
+        }
+
+        List<DaySketch> ordered = new ArrayList<>(sketches.values());
+        List<Object[]> updates = new ArrayList<>(ordered.size());
+        for (int start = 0; start < ordered.size(); start += LOCK_CHUNK) {
+            List<DaySketch> chunk = ordered.subList(start, Math.min(start + LOCK_CHUNK, ordered.size()));
+            Map<String, DaySketch> byKey = new TreeMap<>();
+            List<Object> params = new ArrayList<>(chunk.size() * 2);
+            for (DaySketch sketch : chunk) {
+                byKey.put(sketch.key(), sketch);
+                params.add(sketch.userId);
+                params.add(Date.valueOf(sketch.day));
+            }
+            String tuples = String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)"));
+            jdbcTemplate.query(
+                    "SELECT user_id, day, counterparties, durations, costs FROM user_daily_call_sketches " +
+                            "WHERE (user_id, day) IN (" + tuples + ") ORDER BY user_id, day FOR UPDATE",
+                    rs -> {
+                        DaySketch sketch = byKey.get(rs.getObject("user_id", UUID.class) + "|" + rs.getDate("day").toLocalDate());
+                        merge(sketch, rs);
+                        updates.add(new Object[] { sketch.counterparties.toBytes(), sketch.durations.toBytes(),
+                                sketch.costs.toBytes(), sketch.userId, Date.valueOf(sketch.day) });
+                    },
+                    params.toArray());
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SKETCH, updates);
+    }
+
+    /**
+     * Приращения итогов и sketch-ей, сгруппированные по (пользователь, день).
+     * Строки упорядочены по ключу, чтобы параллельные пакеты блокировали их в одном порядке.
+     */
+    public static class Increments {
+        private final Map<String, DailyCallStatsDto> rows = new TreeMap<>();
+        private final Map<String, DaySketch> sketches = new TreeMap<>();
+
+        /**
+         * Учитывает одну сторону звонка: для звонка вызывается дважды, с OUTGOING для звонящего
+         * и INCOMING для принимающего.
+         */
+        public void add(UUID userId, UUID counterpartyUserId, LocalDate day, CallType direction,
+                        long durationSeconds, BigDecimal cost) {
+            DailyCallStatsDto row = rows.computeIfAbsent(userId + "|" + day, key -> DailyCallStatsDto.builder()
+                    .userId(userId)
+                    .day(day)
+                    .incomingCost(BigDecimal.ZERO)
+                    .outgoingCost(BigDecimal.ZERO)
+                    .build());
+            if (direction == CallType.INCOMING) {
+                row.setIncomingCalls(row.getIncomingCalls() + 1);
+                row.setIncomingSeconds(row.getIncomingSeconds() + durationSeconds);
+                row.setIncomingCost(row.getIncomingCost().add(cost));
+            } else {
+                row.setOutgoingCalls(row.getOutgoingCalls() + 1);
+                row.setOutgoingSeconds(row.getOutgoingSeconds() + durationSeconds);
+                row.setOutgoingCost(row.getOutgoingCost().add(cost));
+            }
+
+            long kopecks = cost.movePointRight(2).longValue();
+            DaySketch sketch = sketch(userId, day);
+            sketch.counterparties.add(counterpartyUserId);
+            sketch.durations.add(durationSeconds);
+            sketch.costs.add(kopecks);
+        }
+
+        public boolean isEmpty() {
+            return rows.isEmpty();
+        }
+
+        // Число пар (пользователь, день)
+        public int size() {
+            return rows.size();
+        }
+
+        private DaySketch sketch(UUID userId, LocalDate day) {
+            return sketches.computeIfAbsent(userId + "|" + day, key -> new DaySketch(userId, day));
+        }
+    }
+
+    /**
+     * Изменения стоимости в копейках по (пользователь, день), упорядоченные по ключу, как {@link Increments}.
+     */
+    public static class CostDeltas {
+        private final Map<String, Row> rows = new TreeMap<>();
+        private final Map<String, DaySketch> sketches = new TreeMap<>();
+
+        /**
+         * Учитывает новую стоимость одной стороны звонка; для звонка вызывается для каждой стороны.
+         */
+        public void add(UUID userId, LocalDate day, CallType direction, long oldCost, long newCost) {
+            if (oldCost == newCost) return;
+            Row row = rows.computeIfAbsent(userId + "|" + day, key -> new Row(userId, day));
+            if (direction == CallType.INCOMING) {
+                row.incoming += newCost - oldCost;
+            } else {
+                row.outgoing += newCost - oldCost;
+            }
+            DaySketch sketch = sketches.computeIfAbsent(userId + "|" + day, key -> new DaySketch(userId, day));
+            sketch.costs.add(oldCost, -1);
+            sketch.costs.add(newCost, 1);
+        }
+
+        public boolean isEmpty() {
+            return rows.isEmpty();
+        }
+
+        private static class Row {
+            final UUID userId;
+            final LocalDate day;
+            long incoming;
+            long outgoing;
+
+            Row(UUID userId, LocalDate day) {
+                this.userId = userId;
+                this.day = day;
+            }
+        }
+    }
+
+    /**
+     * Sketch-и одного пользователя за день или за объединенный период:
+     * различные собеседники, длительность звонков в секундах и стоимость в копейках.
+     */
+    @Getter
+    public static class DaySketch {
+        private final UUID userId;
+        private final LocalDate day;
+        private final HyperLogLog counterparties = new HyperLogLog();
+        private final LogHistogram durations = new LogHistogram();
+        private final LogHistogram costs = new LogHistogram();
+
+        DaySketch(UUID userId, LocalDate day) {
+            this.userId = userId;
+            this.day = day;
+        }
+
+        String key() {
+            return userId + "|" + day;
+        }
+    }
+}
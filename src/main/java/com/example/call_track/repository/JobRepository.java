@@ -0,0 +1,123 @@
+package com.example.call_track.repository;
+
+import com.example.call_track.dto.JobDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Строки background_jobs. Результат задачи хранится как JSON-текст и сериализуется в JobService.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JobRepository {
+    private static final String JOB_COLUMNS =
+            "SELECT id, type, status, description, created_by, progress_done, progress_total, message, result, error, " +
+                    "created_at, started_at, updated_at, finished_at FROM background_jobs ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(JobDto job) {
+        jdbcTemplate.update(
+                "INSERT INTO background_jobs (id, type, status, description, created_by, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                job.getId(), job.getType(), job.getStatus(), job.getDescription(), job.getCreatedBy(),
+                Timestamp.valueOf(job.getCreatedAt()), Timestamp.valueOf(job.getCreatedAt()));
+    }
+
+    /**
+     * Записывает состояние задачи; {@code result} — отчет, уже сериализованный в JSON.
+     */
+    public void save(JobDto job, String result) {
+        jdbcTemplate.update(
+                "UPDATE background_jobs SET status = ?, progress_done = ?, progress_total = ?, message = ?, result = ?, " +
+                        "error = ?, started_at = ?, updated_at = ?, finished_at = ? WHERE id = ?",
+                job.getStatus(), job.getProgressDone(), job.getProgressTotal(), truncate(job.getMessage(), 1000), result,
+                job.getError(), timestamp(job.getStartedAt()), timestamp(job.getUpdatedAt()), timestamp(job.getFinishedAt()),
+                job.getId());
+    }
+
+    public void updateProgress(UUID id, long done, Long total, String message) {
+        jdbcTemplate.update(
+                "UPDATE background_jobs SET progress_done = ?, progress_total = ?, message = ?, updated_at = ? " +
+                        "WHERE id = ? AND status = 'RUNNING'",
+                done, total, truncate(message, 1000), Timestamp.valueOf(LocalDateTime.now()), id);
+    }
+
+    public Optional<JobDto> find(UUID id) {
+        return jdbcTemplate.query(JOB_COLUMNS + "WHERE id = ?", this::map, id).stream().findFirst();
+    }
+
+    // type и status необязательны
+    public List<JobDto> findRecent(String type, String status, int limit) {
+        StringBuilder sql = new StringBuilder(JOB_COLUMNS).append("WHERE true ");
+        List<Object> args = new ArrayList<>();
+        if (type != null) {
+            sql.append("AND type = ? ");
+            args.add(type);
+        }
+        if (status != null) {
+            sql.append("AND status = ? ");
+            args.add(status);
+        }
+        sql.append("ORDER BY created_at DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), this::map, args.toArray());
+    }
+
+    // Задачи, которые числились в очереди или выполняемыми при остановке предыдущего процесса
+    public int markInterrupted(LocalDateTime createdBefore) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(
+                "UPDATE background_jobs SET status = 'INTERRUPTED', updated_at = ?, finished_at = ? " +
+                        "WHERE status IN ('QUEUED', 'RUNNING') AND created_at < ?",
+                now, now, Timestamp.valueOf(createdBefore));
+    }
+
+    public int deleteFinishedBefore(LocalDateTime before) {
+        return jdbcTemplate.update(
+                "DELETE FROM background_jobs WHERE status NOT IN ('QUEUED', 'RUNNING') AND finished_at < ?",
+                Timestamp.valueOf(before));
+    }
+
+    private JobDto map(ResultSet rs, int rowNum) throws SQLException {
+        long total = rs.getLong("progress_total");
+        return JobDto.builder()
+                .id(rs.getObject("id", UUID.class))
+                .type(rs.getString("type"))
+                .status(rs.getString("status"))
+                .description(rs.getString("description"))
+                .createdBy(rs.getString("created_by"))
+                .progressDone(rs.getLong("progress_done"))
+                .progressTotal(rs.wasNull() ? null : total)
+                .message(rs.getString("message"))
+                .result(rs.getString("result"))
+                .error(rs.getString("error"))
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .startedAt(localDateTime(rs.getTimestamp("started_at")))
+                .updatedAt(localDateTime(rs.getTimestamp("updated_at")))
+                .finishedAt(localDateTime(rs.getTimestamp("finished_at")))
+                .build();
+    }
+
+    private static String truncate(String value, int length) {
+        return value != null && value.length() > length ? value.substring(0, length) : value;
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+
+    private static LocalDateTime localDateTime(Timestamp value) {
+        return value != null ? value.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.call_track.repository;
+
+import com.example.call_track.dto.PasswordHashSettingsDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.Optional;
+
+/**
+ * Единственная строка password_hash_settings.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PasswordHashSettingsRepository {
+    private static final String INSERT =
+            "INSERT INTO password_hash_settings (id, memory_kib, iterations, parallelism, target_ms, measured_ms, " +
+                    "calibrated_on, calibrated_at) VALUES (1, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (id) ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<PasswordHashSettingsDto> find() {
+        return jdbcTemplate.query(
+                "SELECT memory_kib, iterations, parallelism, target_ms, measured_ms, calibrated_on, calibrated_at " +
+                        "FROM password_hash_settings WHERE id = 1",
+                (rs, rowNum) -> PasswordHashSettingsDto.builder()
+                        .memoryKib(rs.getInt("memory_kib"))
+                        .iterations(rs.getInt("iterations"))
+                        .parallelism(rs.getInt("parallelism"))
+                        .targetMillis(rs.getInt("target_ms"))
+                        .measuredMillis(rs.getBigDecimal("measured_ms").doubleValue())
+                        .calibratedOn(rs.getString("calibrated_on"))
+                        .calibratedAt(rs.getTimestamp("calibrated_at").toLocalDateTime())
+                        .build()).stream().findFirst();
+    }
+
+    // Первый узел побеждает: при одновременном старте остальные потом читают его строку
+    public boolean insertIfAbsent(PasswordHashSettingsDto settings) {
+        return jdbcTemplate.update(INSERT + "DO NOTHING", args(settings)) > 0;
+    }
+
+    public void save(PasswordHashSettingsDto settings) {
+        jdbcTemplate.update(INSERT + "DO UPDATE SET memory_kib = EXCLUDED.memory_kib, iterations = EXCLUDED.iterations, " +
+                "parallelism = EXCLUDED.parallelism, target_ms = EXCLUDED.target_ms, measured_ms = EXCLUDED.measured_ms, " +
+                "calibrated_on = EXCLUDED.calibrated_on, calibrated_at = EXCLUDED.calibrated_at", args(settings));
+    }
+
+    private static Object[] args(PasswordHashSettingsDto settings) {
+        return new Object[] { settings.getMemoryKib(), settings.getIterations(), settings.getParallelism(),
+                settings.getTargetMillis(), BigDecimal.valueOf(settings.getMeasuredMillis()).setScale(2, RoundingMode.HALF_UP),
+                settings.getCalibratedOn(), Timestamp.valueOf(settings.getCalibratedAt()) };
+    }
+}
@@ -3,6 +3,10 @@ package com.example.call_track.repository;
 import com.example.call_track.entity.PhoneNumber;
 import com.example.call_track.entity.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -12,5 +16,9 @@ public interface PhoneNumberRepository extends JpaRepository<PhoneNumber, UUID>
     Optional<PhoneNumber> findByUserAndIsPrimaryTrue(User user);
     List<PhoneNumber> findByUser(User user);
 
+    // Пакетный поиск владельцев номеров одним запросом, пользователь подгружается сразу
+    @Query("SELECT p FROM PhoneNumber p JOIN FETCH p.user WHERE p.phone IN :phones")
+    List<PhoneNumber> findByPhoneInWithUser(@Param("phones") Collection<String> phones);
+
     boolean existsByPhone(String phoneNumber);
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.call_track.repository;
+
+import com.example.call_track.entity.call.Tariff;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface TariffRepository extends JpaRepository<Tariff, UUID> {
+    List<Tariff> findAllByOrderByPrefixAscBandStartAsc();
+}
@@ -5,8 +5,10 @@ import com.example.call_track.entity.user.UserRole;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -32,4 +34,10 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
     @Query("SELECT u FROM User u WHERE u.deleted = false")
     Page<User> findAllActive(Pageable pageable);
+
+    // Только путь аватара: обработка идет в фоне и не должна затирать остальные поля пользователя
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.avatarPath = :avatarPath WHERE u.id = :id")
+    int updateAvatarPath(UUID id, String avatarPath);
 }
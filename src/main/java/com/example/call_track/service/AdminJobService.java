@@ -0,0 +1,150 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.JobDto;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * The long-running admin operations, each started as a background job through {@link JobService}.
+ * Operations that must not overlap (data generation, exports, maintenance) are exclusive per type;
+ * imports of different files may run side by side.
+ */
+@Service
+@RequiredArgsConstructor
+public class AdminJobService {
+    private static final Logger logger = LoggerFactory.getLogger(AdminJobService.class);
+
+    public static final String FAKE_DATA = "fake-data";
+    public static final String SYNTHETIC_DATA = "synthetic-data";
+    public static final String CALL_IMPORT = "call-import";
+    public static final String PARQUET_EXPORT = "parquet-export";
+    public static final String PARTITION_MAINTENANCE = "partition-maintenance";
+    public static final String CALL_GRAPH_RELOAD = "call-graph-reload";
+    public static final String PASSWORD_CALIBRATION = "password-calibration";
+    public static final String CALL_SKETCH_BACKFILL = "call-sketch-backfill";
+    public static final String GLOBAL_CALL_SKETCHES = "global-call-sketches";
+
+    private final JobService jobService;
+    private final FakeDataService fakeDataService;
+    private final SyntheticDataService syntheticDataService;
+    private final CallImportService callImportService;
+    private final CallParquetExportService callParquetExportService;
+    private final CallPartitionService callPartitionService;
+    private final CallGraphService callGraphService;
+    private final PasswordHashCalibrationService passwordHashCalibrationService;
+    private final CallSketchBackfillService callSketchBackfillService;
+
+    public JobDto fakeData() {
+        return jobService.submit(FAKE_DATA, "Fake users and calls between them", true, context -> {
+            fakeDataService.generateFakeData(context);
+            return null;
+        });
+    }
+
+    /**
+     * @throws IllegalArgumentException if the parameters are out of range
+     */
+    public JobDto syntheticData(int users, long calls, int days, LocalDate lastDay, long seed) {
+        syntheticDataService.checkParameters(users, calls, days);
+        String description = users + " users, " + calls + " calls over " + days + " days to " + lastDay + ", seed " + seed;
+        return jobService.submit(SYNTHETIC_DATA, description, true,
+                context -> syntheticDataService.generate(users, calls, days, lastDay, seed, context));
+    }
+
+    /**
+     * Imports a file already saved by the caller; the job deletes it when done.
+     */
+    public JobDto callImport(Path file, CallImportService.Format format) throws IOException {
+        String description = format + " import, " + Files.size(file) + " bytes";
+        try {
+            return jobService.submit(CALL_IMPORT, description, false, context -> {
+                try (InputStream input = Files.newInputStream(file)) {
+                    return callImportService.importCalls(input, format, context);
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            });
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    public JobDto parquetExport() {
+        return jobService.submit(PARQUET_EXPORT, "Parquet export of all calls", true, callParquetExportService::exportAll);
+    }
+
+    public JobDto partitionMaintenance() {
+        return jobService.submit(PARTITION_MAINTENANCE, "Create upcoming call partitions and apply retention", true, context -> {
+            callPartitionService.maintain();
+            return null;
+        });
+    }
+
+    public JobDto callGraphReload() {
+        return jobService.submit(CALL_GRAPH_RELOAD, "Reload the call graph from the database", true, context -> {
+            callGraphService.reload();
+            return null;
+        });
+    }
+
+    public JobDto callSketchBackfill() {
+        return jobService.submit(CALL_SKETCH_BACKFILL, "Rebuild daily call sketches from existing calls", true,
+                callSketchBackfillService::backfill);
+    }
+
+    public JobDto globalCallSketches() {
+        return jobService.submit(GLOBAL_CALL_SKETCHES, "Build global call sketches of closed days", true,
+                callSketchBackfillService::buildGlobalSketches);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the target is out of range
+     */
+    public JobDto passwordCalibration(int targetMillis) {
+        if (targetMillis < 1 || targetMillis > 10_000) {
+            throw new IllegalArgumentException("Target verify time must be between 1 and 10000 ms");
+        }
+        return jobService.submit(PASSWORD_CALIBRATION, "Calibrate Argon2 for " + targetMillis + " ms per verify", true,
+                context -> passwordHashCalibrationService.calibrateAndApply(targetMillis));
+    }
+
+    // Ночное обслуживание секций идет задачей: ошибка видна в /admin/jobs как FAILED, а не только в логе
+    @Scheduled(cron = "${app.calls.partitioning.cron:0 15 3 * * *}")
+    public void scheduledPartitionMaintenance() {
+        try {
+            partitionMaintenance();
+        } catch (RuntimeException e) {
+            logger.error("Failed to start the scheduled partition maintenance: {}", e.getMessage());
+        }
+    }
+
+    // Общие sketch-и вчерашнего дня и дней, измененных после построения
+    @Scheduled(cron = "${app.calls.sketches.global-cron:0 30 0 * * *}")
+    public void scheduledGlobalCallSketches() {
+        try {
+            globalCallSketches();
+        } catch (RuntimeException e) {
+            logger.error("Failed to start the scheduled global call sketch build: {}", e.getMessage());
+        }
+    }
+
+    // Ночная выгрузка тоже идет задачей: видна в /admin/jobs и не пересекается с запущенной вручную
+    @Scheduled(cron = "${app.calls.parquet.cron:-}")
+    public void scheduledParquetExport() {
+        try {
+            parquetExport();
+        } catch (RuntimeException e) {
+            logger.error("Failed to start the scheduled Parquet export: {}", e.getMessage());
+        }
+    }
+}
@@ -1,71 +1,258 @@
 package com.example.call_track.service;
 
+import com.example.call_track.entity.user.User;
+import com.example.call_track.exception.CustomBusinessException;
+import com.example.call_track.repository.UserRepository;
+import com.example.call_track.utils.AvatarImages;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+/**
+ * Avatars are stored in a few fixed sizes instead of the uploaded original: {@code avatars/<id>.<ext>}
+ * is the largest size and {@code avatars/<id>-<size>.<ext>} the smaller ones, and
+ * {@link #resolve(String, Integer)} picks the one to serve for a requested size. Uploads are decoded and
+ * re-encoded as JPEG on a small bounded pool, off the request thread; the user's avatar changes once all
+ * sizes are written. Avatars saved before the pipeline have no sizes and are served as they are.
+ */
 @Service
+@RequiredArgsConstructor
 public class AvatarService {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
+
+    // Загрузки перекодируются в JPEG
+    private static final String UPLOAD_FORMAT = "jpg";
+    // UUID с необязательными размером и расширением: ничего, что могло бы выйти за пределы каталога
+    private static final Pattern FILE_NAME = Pattern.compile("[0-9a-fA-F-]{36}(-\\d+)?(\\.[A-Za-z]{3,4})?");
+
+    private final UserRepository userRepository;
+    private final CurrentUserCache currentUserCache;
 
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
+    @Value("${app.avatars.sizes:48,96,256}")
+    private int[] sizes;
+
+    @Value("${app.avatars.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${app.avatars.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${app.avatars.threads:2}")
+    private int threads;
+
+    @Value("${app.avatars.queue-capacity:16}")
+    private int queueCapacity;
+
     private final Random random = new Random();
+    // Последняя принятая загрузка каждого пользователя: более ранняя, закончив позже, не перезапишет ее
+    private final Map<UUID, String> latestUploads = new ConcurrentHashMap<>();
+    // Проверка «последняя ли загрузка» и запись пути выполняются вместе
+    private final Object applyLock = new Object();
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    public void start() {
+        sizes = Arrays.stream(sizes).sorted().distinct().toArray();
+        if (sizes.length == 0 || sizes[0] < 1) throw new IllegalStateException("app.avatars.sizes must be positive");
+        AtomicInteger count = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "avatar-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
 
     public String generateAvatar(String firstName, String lastName) {
         String initials = getInitials(firstName, lastName);
         Color backgroundColor = getRandomColor();
         Color textColor = getContrastColor(backgroundColor);
 
-        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        int size = largestSize();
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
         Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 
         // Fill background
         g2d.setColor(backgroundColor);
-        g2d.fillRect(0, 0, 100, 100);
+        g2d.fillRect(0, 0, size, size);
 
         // Draw text
         g2d.setColor(textColor);
-        g2d.setFont(new Font("Arial", Font.BOLD, 40));
+        g2d.setFont(new Font("Arial", Font.BOLD, size * 2 / 5));
         FontMetrics fm = g2d.getFontMetrics();
-        int x = (100 - fm.stringWidth(initials)) / 2;
-        int y = (100 + fm.getAscent() - fm.getDescent()) / 2;
+        int x = (size - fm.stringWidth(initials)) / 2;
+        int y = (size + fm.getAscent() - fm.getDescent()) / 2;
         g2d.drawString(initials, x, y);
 
         g2d.dispose();
 
-        // Save to file
-        String fileName = UUID.randomUUID().toString() + ".png";
-        Path avatarPath = Paths.get(uploadDir, "avatars", fileName);
+        // Save to file; одноцветный фон с буквами меньше и четче в PNG
         try {
-            Files.createDirectories(avatarPath.getParent());
-            ImageIO.write(image, "png", avatarPath.toFile());
-            return "avatars/" + fileName;
+            return storeSizes(image, UUID.randomUUID().toString(), "png");
         } catch (IOException e) {
             throw new RuntimeException("Failed to generate avatar", e);
         }
     }
 
+    /**
+     * Checks the upload on the caller's thread (format and dimensions, from the header only) and queues
+     * the resizing. The user's avatar is replaced when it is done; a failure leaves the old one.
+     *
+     * @return the avatar path the user will have once the upload is processed
+     * @throws IllegalArgumentException if the image cannot be decoded or is too large
+     * @throws CustomBusinessException if too many uploads are already being processed
+     */
+    public String processUpload(User user, byte[] data) {
+        try {
+            AvatarImages.check(data, maxPixels);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The file is not a readable image");
+        }
+        UUID userId = user.getId();
+        String id = UUID.randomUUID().toString();
+        latestUploads.put(userId, id);
+        try {
+            workers.execute(() -> storeUpload(userId, id, data));
+        } catch (RejectedExecutionException e) {
+            latestUploads.remove(userId, id);
+            throw new CustomBusinessException("Too many avatars are being processed, please try again shortly");
+        }
+        return "avatars/" + id + "." + UPLOAD_FORMAT;
+    }
+
+    /**
+     * Whether the last upload of the user is still being resized; false once it replaced the avatar or failed.
+     */
+    public boolean isProcessing(UUID userId) {
+        return latestUploads.containsKey(userId);
+    }
+
+    /**
+     * The file to serve for {@code avatars/<fileName>}: the smallest stored size not below {@code size},
+     * otherwise the file itself. {@code null} if there is no such avatar.
+     */
+    public Path resolve(String fileName, Integer size) {
+        if (!FILE_NAME.matcher(fileName).matches()) return null;
+        Path avatars = Paths.get(uploadDir, "avatars").toAbsolutePath();
+        if (size != null) {
+            for (int candidate : sizes) {
+                if (candidate >= size && candidate != largestSize()) {
+                    Path variant = avatars.resolve(sizeName(fileName, candidate));
+                    if (Files.isRegularFile(variant)) return variant;
+                    break;
+                }
+            }
+        }
+        Path file = avatars.resolve(fileName);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
     public void deleteAvatar(String avatarPath) {
         if (avatarPath != null && !avatarPath.isEmpty()) {
             try {
                 Path fullPath = Paths.get(uploadDir, avatarPath);
                 Files.deleteIfExists(fullPath);
+                String fileName = fullPath.getFileName().toString();
+                for (int size : sizes) {
+                    Files.deleteIfExists(fullPath.resolveSibling(sizeName(fileName, size)));
+                }
             } catch (IOException e) {
                 // Log error but don't throw
             }
         }
     }
 
+    private void storeUpload(UUID userId, String id, byte[] data) {
+        String path = null;
+        try {
+            BufferedImage square = AvatarImages.decodeSquare(data, largestSize());
+            path = storeSizes(square, id, UPLOAD_FORMAT);
+
+            User user;
+            String previous;
+            synchronized (applyLock) {
+                // Пользователь успел загрузить другой аватар — этот уже не нужен
+                if (!id.equals(latestUploads.get(userId))) {
+                    deleteAvatar(path);
+                    return;
+                }
+                user = userRepository.findByIdActive(userId).orElse(null);
+                if (user == null) {
+                    latestUploads.remove(userId, id);
+                    deleteAvatar(path);
+                    return;
+                }
+                previous = user.getAvatarPath();
+                userRepository.updateAvatarPath(userId, path);
+                currentUserCache.evict(user.getUsername());
+                // Загрузка снимается только после записи пути: пока она числится, страница ждет новый аватар
+                latestUploads.remove(userId, id);
+            }
+            deleteAvatar(previous);
+            logger.info("Avatar of user {} replaced with {} ({} bytes uploaded)", user.getUsername(), path, data.length);
+        } catch (Exception e) {
+            latestUploads.remove(userId, id);
+            if (path != null) deleteAvatar(path);
+            logger.error("Failed to process avatar of user {}", userId, e);
+        }
+    }
+
+    // Наибольший размер под основным именем, остальные — с суффиксом размера; возвращает путь основного
+    private String storeSizes(BufferedImage square, String id, String format) throws IOException {
+        Path avatars = Paths.get(uploadDir, "avatars");
+        Files.createDirectories(avatars);
+        String fileName = id + "." + format;
+        BufferedImage current = square;
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            // Каждый размер из предыдущего: меньше работы, чем каждый раз из исходного
+            current = AvatarImages.resize(current, sizes[i]);
+            String name = i == sizes.length - 1 ? fileName : sizeName(fileName, sizes[i]);
+            Files.write(avatars.resolve(name), AvatarImages.encode(current, format, jpegQuality));
+        }
+        return "avatars/" + fileName;
+    }
+
+    private int largestSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    private static String sizeName(String fileName, int size) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) return fileName + "-" + size;
+        return fileName.substring(0, dot) + "-" + size + fileName.substring(dot);
+    }
+
     private String getInitials(String firstName, String lastName) {
         StringBuilder initials = new StringBuilder();
         if (firstName != null && !firstName.isEmpty()) {
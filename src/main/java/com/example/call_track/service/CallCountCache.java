@@ -0,0 +1,51 @@
+package com.example.call_track.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived cache of call counts keyed by the search filters.
+ * Used for estimated totals, so repeated dashboard requests with the same filters
+ * pay for the COUNT query at most once per TTL.
+ */
+@Component
+public class CallCountCache {
+
+    @Value("${app.calls.count-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.calls.count-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public long get(String key, LongSupplier counter) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.count;
+        }
+
+        long count = counter.getAsLong();
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(e -> e.expiresAt <= now);
+            if (entries.size() >= maxEntries) entries.clear();
+        }
+        entries.put(key, new Entry(count, now + ttlSeconds * 1000));
+        return count;
+    }
+
+    private static class Entry {
+        final long count;
+        final long expiresAt;
+
+        Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
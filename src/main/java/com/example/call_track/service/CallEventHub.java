@@ -0,0 +1,364 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.call.CallDto;
+import com.example.call_track.dto.call.CallDtoMapper;
+import com.example.call_track.dto.call.CallRow;
+import com.example.call_track.entity.call.Call;
+import com.example.call_track.entity.user.User;
+import com.example.call_track.entity.user.UserRole;
+import com.example.call_track.repository.CallBatchRepository.NewCall;
+import com.example.call_track.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out of newly written calls to open dashboards over server-sent events.
+ * A committed call is delivered as a {@link CallDto} to the subscriptions of its caller and callee
+ * and to every admin subscription, straight from memory. Each subscription has a bounded queue drained
+ * by a small sender pool, so a slow client never blocks the writer: on overflow the oldest event is
+ * dropped (the client is told how many it missed) or, with the disconnect policy, the subscription is
+ * closed and the browser reconnects and reloads.
+ * <p>
+ * A send is a blocking write, so a client that stops reading holds a sender thread. A send running longer
+ * than the write timeout closes its subscription and the pool gets a replacement thread, so the other
+ * clients keep their senders; the stuck thread is returned when the container fails the write.
+ */
+@Service
+@RequiredArgsConstructor
+public class CallEventHub {
+    private static final Logger logger = LoggerFactory.getLogger(CallEventHub.class);
+
+    private final CallDtoMapper callDtoMapper;
+    private final UserRepository userRepository;
+
+    @Value("${app.calls.stream.buffer-size:256}")
+    private int bufferSize;
+
+    // drop — отбрасывать самые старые события, disconnect — закрывать подписку
+    @Value("${app.calls.stream.overflow:drop}")
+    private String overflow;
+
+    @Value("${app.calls.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.calls.stream.max-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${app.calls.stream.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${app.calls.stream.write-timeout-ms:10000}")
+    private long writeTimeoutMs;
+
+    private final Map<UUID, Set<Subscription>> byUser = new ConcurrentHashMap<>();
+    private final Set<Subscription> admins = new CopyOnWriteArraySet<>();
+    private ThreadPoolExecutor senders;
+    // Потоки, занятые зависшей отправкой; пул расширяется на их число
+    private int stuckSenders;
+
+    @PostConstruct
+    public void start() {
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "call-stream-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        byUser.values().forEach(subscriptions -> subscriptions.forEach(Subscription::close));
+        admins.forEach(Subscription::close);
+        senders.shutdownNow();
+    }
+
+    /**
+     * Opens a stream for the user; admins receive every call, other users only their own.
+     *
+     * @throws IllegalArgumentException if the user already has the maximum number of open streams
+     */
+    public SseEmitter subscribe(User user) {
+        boolean isAdmin = user.getRole() == UserRole.ADMIN;
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(emitter, isAdmin ? null : user, user.getId());
+        byUser.compute(user.getId(), (id, own) -> {
+            if (own == null) own = new CopyOnWriteArraySet<>();
+            if (own.size() >= maxPerUser) {
+                throw new IllegalArgumentException("Too many open call streams, maximum is " + maxPerUser);
+            }
+            own.add(subscription);
+            return own;
+        });
+        if (isAdmin) admins.add(subscription);
+        emitter.onCompletion(subscription::unregister);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+
+        subscription.offer(SseEmitter.event().name("ready").data("ok"));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return byUser.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public void publish(Call call) {
+        if (call.getCallerPhone() == null || call.getCalleePhone() == null) return;
+        User caller = call.getCallerPhone().getUser();
+        User callee = call.getCalleePhone().getUser();
+        CallRow row = CallRow.builder()
+                .id(call.getId())
+                .callDateTime(call.getCallDateTime())
+                .durationSeconds(call.getDurationSeconds())
+                .pricePerMinute(call.getPricePerMinute())
+                .totalCost(call.getTotalCost())
+                .callerUserId(caller.getId())
+                .callerPhone(call.getCallerPhone().getPhone())
+                .callerFirstName(caller.getFirstName())
+                .callerLastName(caller.getLastName())
+                .callerMiddleName(caller.getMiddleName())
+                .calleeUserId(callee.getId())
+                .calleePhone(call.getCalleePhone().getPhone())
+                .calleeFirstName(callee.getFirstName())
+                .calleeLastName(callee.getLastName())
+                .calleeMiddleName(callee.getMiddleName())
+                .build();
+        publishAfterCommit(List.of(row));
+    }
+
+    /**
+     * Publishes calls written by the batch path; names are resolved with one query per batch,
+     * and only when someone involved is listening.
+     */
+    public void publish(List<NewCall> calls) {
+        if (calls.isEmpty() || (admins.isEmpty() && byUser.isEmpty())) return;
+        Set<UUID> userIds = new HashSet<>();
+        for (NewCall call : calls) {
+            if (admins.isEmpty() && !byUser.containsKey(call.getCaller().getUserId())
+                    && !byUser.containsKey(call.getCallee().getUserId())) continue;
+            userIds.add(call.getCaller().getUserId());
+            userIds.add(call.getCallee().getUserId());
+        }
+        if (userIds.isEmpty()) return;
+
+        Map<UUID, User> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(u -> users.put(u.getId(), u));
+        List<CallRow> rows = new ArrayList<>(calls.size());
+        for (NewCall call : calls) {
+            User caller = users.get(call.getCaller().getUserId());
+            User callee = users.get(call.getCallee().getUserId());
+            if (caller == null || callee == null) continue;
+            rows.add(CallRow.builder()
+                    .id(call.getId())
+                    .callDateTime(call.getCallDateTime())
+                    .durationSeconds(call.getDurationSeconds())
+                    .pricePerMinute(call.getPricePerMinute())
+                    .totalCost(call.getTotalCost())
+                    .callerUserId(caller.getId())
+                    .callerPhone(call.getCaller().getPhone())
+                    .callerFirstName(caller.getFirstName())
+                    .callerLastName(caller.getLastName())
+                    .callerMiddleName(caller.getMiddleName())
+                    .calleeUserId(callee.getId())
+                    .calleePhone(call.getCallee().getPhone())
+                    .calleeFirstName(callee.getFirstName())
+                    .calleeLastName(callee.getLastName())
+                    .calleeMiddleName(callee.getMiddleName())
+                    .build());
+        }
+        publishAfterCommit(rows);
+    }
+
+    // Комментарий SSE раз в интервал, чтобы прокси и балансировщики не закрывали простаивающее соединение
+    @Scheduled(fixedDelayString = "${app.calls.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Set<Subscription> subscriptions : byUser.values()) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.queue.isEmpty()) subscription.offer(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    // Клиент, который не читает, держит поток отправки; emitter не закрыть, пока запись не вернется,
+    // поэтому подписка только снимается, а занятый поток временно замещается новым
+    @Scheduled(fixedDelayString = "${app.calls.stream.write-check-ms:1000}")
+    public void closeStuckSubscriptions() {
+        long now = System.nanoTime();
+        for (Set<Subscription> subscriptions : byUser.values()) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.sendState.get() == SENDING
+                        && now - subscription.sendStarted > TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs)
+                        && subscription.sendState.compareAndSet(SENDING, STUCK)) {
+                    logger.debug("Call stream of user {} did not accept a write in {} ms, closing", subscription.userId, writeTimeoutMs);
+                    subscription.closed = true;
+                    subscription.queue.clear();
+                    subscription.unregister();
+                    resizeSenders(1);
+                }
+            }
+        }
+    }
+
+    private synchronized void resizeSenders(int delta) {
+        stuckSenders += delta;
+        int size = senderThreads + stuckSenders;
+        // Ядро не может превышать максимум: при росте сначала максимум, при уменьшении сначала ядро
+        if (delta > 0) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private void publishAfterCommit(List<CallRow> rows) {
+        if (rows.isEmpty()) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(rows);
+                }
+            });
+        } else {
+            deliver(rows);
+        }
+    }
+
+    private void deliver(List<CallRow> rows) {
+        for (CallRow row : rows) {
+            Set<Subscription> targets = new HashSet<>(admins);
+            targets.addAll(byUser.getOrDefault(row.getCallerUserId(), Set.of()));
+            targets.addAll(byUser.getOrDefault(row.getCalleeUserId(), Set.of()));
+            for (Subscription subscription : targets) {
+                CallDto dto = callDtoMapper.toDto(row, subscription.viewer);
+                subscription.offer(SseEmitter.event().name("call").id(row.getId().toString())
+                        .data(dto, MediaType.APPLICATION_JSON));
+            }
+        }
+    }
+
+    private static final int IDLE = 0;
+    private static final int SENDING = 1;
+    private static final int STUCK = 2;
+
+    private class Subscription {
+        final SseEmitter emitter;
+        // null для админа: звонки показываются от caller к callee
+        final User viewer;
+        final UUID userId;
+        final Queue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(bufferSize);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicInteger sendState = new AtomicInteger(IDLE);
+        volatile long sendStarted;
+        volatile boolean closed;
+
+        Subscription(SseEmitter emitter, User viewer, UUID userId) {
+            this.emitter = emitter;
+            this.viewer = viewer;
+            this.userId = userId;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed) return;
+            while (!queue.offer(event)) {
+                if ("disconnect".equalsIgnoreCase(overflow)) {
+                    logger.debug("Call stream of user {} overflowed, disconnecting", userId);
+                    close();
+                    return;
+                }
+                if (queue.poll() != null) dropped.incrementAndGet();
+            }
+            if (scheduled.compareAndSet(false, true)) senders.execute(this::drain);
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = queue.poll()) != null) {
+                    long missed = dropped.getAndSet(0);
+                    // Клиент узнает о пропуске и может перечитать первую страницу
+                    if (missed > 0) send(SseEmitter.event().name("dropped").data(missed));
+                    send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                scheduled.set(false);
+                // Событие могло прийти между последним poll и сбросом флага
+                if (!closed && !queue.isEmpty() && scheduled.compareAndSet(false, true)) senders.execute(this::drain);
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            sendStarted = System.nanoTime();
+            sendState.set(SENDING);
+            try {
+                emitter.send(event);
+            } finally {
+                // Запись вернулась после того, как подписку сочли зависшей: поток возвращается пулу
+                if (!sendState.compareAndSet(SENDING, IDLE)) {
+                    sendState.set(IDLE);
+                    complete();
+                    resizeSenders(-1);
+                }
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            unregister();
+            complete();
+        }
+
+        private void complete() {
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // Соединение уже завершено
+            }
+        }
+
+        void unregister() {
+            closed = true;
+            admins.remove(this);
+            byUser.computeIfPresent(userId, (id, subscriptions) -> {
+                subscriptions.remove(this);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+        }
+    }
+}
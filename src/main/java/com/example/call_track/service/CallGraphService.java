@@ -0,0 +1,411 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.call.CallGraphSummaryDto;
+import com.example.call_track.dto.call.CallGraphUserDto;
+import com.example.call_track.entity.call.Call;
+import com.example.call_track.entity.user.User;
+import com.example.call_track.repository.CallBatchRepository.NewCall;
+import com.example.call_track.repository.UserRepository;
+import com.example.call_track.utils.LongCounterMap;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory who-calls-whom graph for admin analytics.
+ * Users are mapped to dense int indices and each directed pair is a long key
+ * {@code caller << 32 | callee} in a per-day {@link LongCounterMap} of call count, seconds and cost in kopecks.
+ * New calls are added after their transaction commits; the last {@code retention-days} are loaded from
+ * the database at startup. A window query merges the day buckets and derives degree, mutual-contact
+ * and connected-component metrics from the merged edges without touching the calls table.
+ */
+@Service
+@RequiredArgsConstructor
+public class CallGraphService {
+    private static final Logger logger = LoggerFactory.getLogger(CallGraphService.class);
+
+    private static final int CALLS = 0;
+    private static final int SECONDS = 1;
+    private static final int COST = 2;
+    private static final int COLUMNS = 3;
+
+    private static final String LOAD_SQL =
+            "SELECT c.id, c.start_time, c.created_at, caller.user_id AS caller_user_id, callee.user_id AS callee_user_id, " +
+                    "c.duration_seconds, c.total_cost FROM calls c " +
+                    "JOIN phone_numbers caller ON caller.id = c.caller_phone_id " +
+                    "JOIN phone_numbers callee ON callee.id = c.callee_phone_id " +
+                    "WHERE c.start_time >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+
+    @Value("${app.calls.graph.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.calls.graph.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${app.calls.graph.load-fetch-size:10000}")
+    private int loadFetchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Graph graph = new Graph();
+    // Пока идет загрузка из базы, новые звонки копятся здесь и применяются после нее
+    private List<Edge> pending;
+
+    /**
+     * Rebuilds the graph from the calls of the last {@code retention-days}.
+     */
+    public void reload() {
+        if (!enabled) return;
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long started = System.currentTimeMillis();
+        LocalDateTime loadStarted = LocalDateTime.now();
+        // Звонок, закоммиченный во время загрузки, может попасть и в выборку, и в pending
+        LocalDateTime raceFrom = loadStarted.minusMinutes(5);
+        Set<UUID> recentIds = new HashSet<>();
+        Graph loaded = new Graph();
+        LocalDate oldest = LocalDate.now().minusDays(retentionDays - 1L);
+
+        try {
+            JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+            streaming.setFetchSize(loadFetchSize);
+            transactionTemplate.executeWithoutResult(status -> streaming.query(LOAD_SQL, rs -> {
+                UUID id = rs.getObject("id", UUID.class);
+                LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+                if (!createdAt.isBefore(raceFrom)) recentIds.add(id);
+                loaded.add(new Edge(id, rs.getTimestamp("start_time").toLocalDateTime().toLocalDate(),
+                        rs.getObject("caller_user_id", UUID.class), rs.getObject("callee_user_id", UUID.class),
+                        rs.getLong("duration_seconds"), rs.getBigDecimal("total_cost")));
+            }, Timestamp.valueOf(oldest.atStartOfDay())));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending.forEach(graph::add);
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Edge edge : pending) {
+                if (!recentIds.contains(edge.callId)) loaded.add(edge);
+            }
+            pending = null;
+            graph = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Call graph loaded: {} users, {} day buckets in {} ms",
+                loaded.users.size(), loaded.days.size(), System.currentTimeMillis() - started);
+    }
+
+    public void record(Call call) {
+        if (call.getCallerPhone() == null || call.getCalleePhone() == null) return;
+        recordAfterCommit(List.of(new Edge(call.getId(), call.getCallDateTime().toLocalDate(),
+                call.getCallerPhone().getUser().getId(), call.getCalleePhone().getUser().getId(),
+                call.getDurationSeconds(), call.getTotalCost())));
+    }
+
+    public void record(List<NewCall> calls) {
+        List<Edge> edges = new ArrayList<>(calls.size());
+        for (NewCall call : calls) {
+            edges.add(new Edge(call.getId(), call.getCallDateTime().toLocalDate(), call.getCaller().getUserId(),
+                    call.getCallee().getUserId(), call.getDurationSeconds(), call.getTotalCost()));
+        }
+        recordAfterCommit(edges);
+    }
+
+    public CallGraphSummaryDto summary(LocalDate from, LocalDate to, int largest) {
+        long started = System.currentTimeMillis();
+        Window window = window(from, to);
+        int[] sizes = window.componentSizes();
+        List<Integer> largestComponents = new ArrayList<>();
+        for (int i = sizes.length - 1; i >= 0 && largestComponents.size() < largest; i--) {
+            largestComponents.add(sizes[i]);
+        }
+        return CallGraphSummaryDto.builder()
+                .from(from)
+                .to(to)
+                .users(window.activeUsers)
+                .edges(window.edges.size())
+                .mutualPairs(window.mutualPairs)
+                .components(sizes.length)
+                .largestComponents(largestComponents)
+                .computeMillis(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    /**
+     * Users with the most calls, seconds or cost (outgoing plus incoming) in the window.
+     */
+    public List<CallGraphUserDto> topTalkers(LocalDate from, LocalDate to, String by, int limit) {
+        Window window = window(from, to);
+        ToLongFunction<Integer> metric = switch (by == null ? "calls" : by.toLowerCase()) {
+            case "calls" -> i -> window.outCalls[i] + window.inCalls[i];
+            case "seconds", "minutes", "duration" -> i -> window.outSeconds[i] + window.inSeconds[i];
+            case "cost" -> i -> window.outCost[i] + window.inCost[i];
+            default -> throw new IllegalArgumentException("Unsupported ranking: " + by);
+        };
+
+        List<Integer> ranked = new ArrayList<>();
+        for (int i = 0; i < window.users.size(); i++) {
+            if (window.outDegree[i] + window.inDegree[i] > 0) ranked.add(i);
+        }
+        ranked.sort(Comparator.comparingLong(metric).reversed());
+        List<Integer> top = ranked.subList(0, Math.min(limit, ranked.size()));
+
+        Map<UUID, User> users = new HashMap<>();
+        List<UUID> ids = top.stream().map(window.users::get).toList();
+        userRepository.findAllById(ids).forEach(u -> users.put(u.getId(), u));
+        return top.stream().map(i -> window.toDto(i, users.get(window.users.get(i)))).toList();
+    }
+
+    public CallGraphUserDto user(UUID userId, LocalDate from, LocalDate to) {
+        Window window = window(from, to);
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
+        Integer index = window.index.get(userId);
+        if (index == null) {
+            return CallGraphUserDto.builder()
+                    .userId(userId)
+                    .fullName(fullName(user))
+                    .outgoingCost(BigDecimal.ZERO)
+                    .incomingCost(BigDecimal.ZERO)
+                    .build();
+        }
+        return window.toDto(index, user);
+    }
+
+    private void recordAfterCommit(List<Edge> edges) {
+        if (!enabled || edges.isEmpty()) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // В граф попадают только закоммиченные звонки
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(edges);
+                }
+            });
+        } else {
+            apply(edges);
+        }
+    }
+
+    private void apply(List<Edge> edges) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.addAll(edges);
+                return;
+            }
+            edges.forEach(graph::add);
+            graph.evictBefore(LocalDate.now().minusDays(retentionDays - 1L));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Window window(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) throw new IllegalArgumentException("Start date must not be after end date");
+        if (from.isBefore(LocalDate.now().minusDays(retentionDays - 1L))) {
+            throw new IllegalArgumentException("The call graph keeps only the last " + retentionDays + " days");
+        }
+        lock.readLock().lock();
+        try {
+            LongCounterMap merged = new LongCounterMap(COLUMNS, 1024);
+            for (LongCounterMap day : graph.days.subMap(from, true, to, true).values()) {
+                merged.addAll(day);
+            }
+            return new Window(new ArrayList<>(graph.users), new HashMap<>(graph.index), merged);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String fullName(User user) {
+        if (user == null) return null;
+        String name = (user.getFirstName() != null ? user.getFirstName() : "")
+                + " " + (user.getLastName() != null ? user.getLastName() : "")
+                + (user.getMiddleName() != null ? " " + user.getMiddleName() : "");
+        return name.trim();
+    }
+
+    private static long key(int caller, int callee) {
+        return (long) caller << 32 | callee;
+    }
+
+    private static class Edge {
+        final UUID callId;
+        final LocalDate day;
+        final UUID callerUserId;
+        final UUID calleeUserId;
+        final long durationSeconds;
+        final long costKopecks;
+
+        Edge(UUID callId, LocalDate day, UUID callerUserId, UUID calleeUserId, long durationSeconds, BigDecimal cost) {
+            this.callId = callId;
+            this.day = day;
+            this.callerUserId = callerUserId;
+            this.calleeUserId = calleeUserId;
+            this.durationSeconds = durationSeconds;
+            this.costKopecks = cost.movePointRight(2).longValue();
+        }
+    }
+
+    // Изменяется только под write lock
+    private static class Graph {
+        final Map<UUID, Integer> index = new HashMap<>();
+        final List<UUID> users = new ArrayList<>();
+        final NavigableMap<LocalDate, LongCounterMap> days = new TreeMap<>();
+
+        void add(Edge edge) {
+            long key = key(indexOf(edge.callerUserId), indexOf(edge.calleeUserId));
+            LongCounterMap day = days.computeIfAbsent(edge.day, d -> new LongCounterMap(COLUMNS));
+            day.add(key, CALLS, 1);
+            day.add(key, SECONDS, edge.durationSeconds);
+            day.add(key, COST, edge.costKopecks);
+        }
+
+        void evictBefore(LocalDate oldest) {
+            days.headMap(oldest, false).clear();
+        }
+
+        private int indexOf(UUID userId) {
+            return index.computeIfAbsent(userId, id -> {
+                users.add(id);
+                return users.size() - 1;
+            });
+        }
+    }
+
+    // Метрики по объединенным ребрам окна; строится на копии и читается без блокировок
+    private static class Window {
+        final List<UUID> users;
+        final Map<UUID, Integer> index;
+        final LongCounterMap edges;
+        final long[] outCalls, inCalls, outSeconds, inSeconds, outCost, inCost;
+        final int[] outDegree, inDegree, mutual;
+        final int[] parent;
+        final int[] componentSize;
+        int mutualPairs;
+        int activeUsers;
+
+        Window(List<UUID> users, Map<UUID, Integer> index, LongCounterMap edges) {
+            this.users = users;
+            this.index = index;
+            this.edges = edges;
+            int n = users.size();
+            outCalls = new long[n];
+            inCalls = new long[n];
+            outSeconds = new long[n];
+            inSeconds = new long[n];
+            outCost = new long[n];
+            inCost = new long[n];
+            outDegree = new int[n];
+            inDegree = new int[n];
+            mutual = new int[n];
+            parent = new int[n];
+            for (int i = 0; i < n; i++) parent[i] = i;
+
+            edges.forEach((key, entry) -> {
+                int caller = (int) (key >>> 32);
+                int callee = (int) key;
+                outCalls[caller] += entry.get(CALLS);
+                inCalls[callee] += entry.get(CALLS);
+                outSeconds[caller] += entry.get(SECONDS);
+                inSeconds[callee] += entry.get(SECONDS);
+                outCost[caller] += entry.get(COST);
+                inCost[callee] += entry.get(COST);
+                outDegree[caller]++;
+                inDegree[callee]++;
+                // Каждую взаимную пару считаем один раз — со стороны меньшего индекса
+                if (caller < callee && edges.containsKey(key(callee, caller))) {
+                    mutual[caller]++;
+                    mutual[callee]++;
+                    mutualPairs++;
+                }
+                union(caller, callee);
+            });
+            // Размер компоненты хранится в ячейке ее корня
+            componentSize = new int[n];
+            for (int i = 0; i < n; i++) {
+                if (outDegree[i] + inDegree[i] > 0) {
+                    activeUsers++;
+                    componentSize[find(i)]++;
+                }
+            }
+        }
+
+        // Размеры компонент связности (без учета направления) по возрастанию
+        int[] componentSizes() {
+            return Arrays.stream(componentSize).filter(s -> s > 0).sorted().toArray();
+        }
+
+        CallGraphUserDto toDto(int i, User user) {
+            return CallGraphUserDto.builder()
+                    .userId(users.get(i))
+                    .fullName(fullName(user))
+                    .outgoingCalls(outCalls[i])
+                    .incomingCalls(inCalls[i])
+                    .outgoingSeconds(outSeconds[i])
+                    .incomingSeconds(inSeconds[i])
+                    .outgoingCost(BigDecimal.valueOf(outCost[i], 2))
+                    .incomingCost(BigDecimal.valueOf(inCost[i], 2))
+                    .outDegree(outDegree[i])
+                    .inDegree(inDegree[i])
+                    .mutualContacts(mutual[i])
+                    .componentSize(componentSize[find(i)])
+                    .build();
+        }
+
+        private int find(int i) {
+            while (parent[i] != i) {
+                parent[i] = parent[parent[i]];
+                i = parent[i];
+            }
+            return i;
+        }
+
+        private void union(int a, int b) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA != rootB) parent[rootA] = rootB;
+        }
+    }
+}
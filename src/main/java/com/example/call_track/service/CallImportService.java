@@ -0,0 +1,294 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.call.CallImportReport;
+import com.example.call_track.entity.call.CallType;
+import com.example.call_track.repository.CallBatchRepository;
+import com.example.call_track.repository.CallBatchRepository.NewCall;
+import com.example.call_track.repository.CallBatchRepository.PhoneRef;
+import com.example.call_track.utils.TariffTable;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Bulk import of call detail records from CSV or NDJSON.
+ * The input is read line by line and written in JDBC batches, one transaction per batch,
+ * so memory use does not depend on the size of the upload. Every imported call also gets
+ * its two call_party rows, like {@link CallService#createCall}.
+ *
+ * <p>CSV columns: {@code caller,callee,start_time,duration_seconds,price_per_minute[,call_type]},
+ * an optional header line starting with {@code caller} is skipped.
+ * NDJSON objects use the fields {@code caller, callee, startTime, durationSeconds, pricePerMinute, callType}.
+ * An empty price rates the call by the callee's tariff ({@link TariffService}), one table snapshot per batch;
+ * amounts stay in kopecks until the row is built. Prices and costs that would not fit the numeric(10,2)
+ * columns are rejected per line, and a batch that fails on one bad row is split until only that row is rejected.
+ */
+@Service
+@RequiredArgsConstructor
+public class CallImportService {
+    private static final Logger logger = LoggerFactory.getLogger(CallImportService.class);
+
+    private static final PhoneRef UNKNOWN_PHONE = new PhoneRef(null, null, null);
+    private static final long BY_TARIFF = Long.MIN_VALUE;
+
+    public enum Format { CSV, NDJSON }
+
+    private final CallBatchRepository callBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CallGraphService callGraphService;
+    private final TariffService tariffService;
+    private final JsonMapper jsonMapper;
+
+    @Value("${app.calls.import.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.calls.import.max-reported-rejects:1000}")
+    private int maxReportedRejects;
+
+    @Value("${app.calls.import.progress-interval:100000}")
+    private long progressInterval;
+
+    // Ограничение кэша телефонов на один импорт; при переполнении кэш сбрасывается
+    @Value("${app.calls.import.phone-cache-size:1000000}")
+    private int phoneCacheSize;
+
+    /**
+     * Imports the whole input; progress is reported in lines read, and a cancelled import stops
+     * before its next batch, keeping the batches already written.
+     */
+    public CallImportReport importCalls(InputStream input, Format format, JobContext context) throws IOException {
+        Run run = new Run();
+        List<ParsedCall> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                run.linesRead++;
+                if (line.isBlank()) continue;
+                if (format == Format.CSV && run.linesRead == 1 && line.trim().toLowerCase().startsWith("caller")) continue;
+
+                try {
+                    batch.add(format == Format.CSV ? parseCsv(line, run.linesRead) : parseJson(line, run.linesRead));
+                } catch (IllegalArgumentException | ArithmeticException | DateTimeParseException | JacksonException e) {
+                    run.reject(run.linesRead, e.getMessage());
+                }
+
+                if (batch.size() >= batchSize) {
+                    context.checkCancelled();
+                    flush(batch, run);
+                    batch.clear();
+                    context.setProgress(run.linesRead);
+                    context.setMessage(run.imported + " imported, " + run.rejected + " rejected");
+                }
+                if (run.linesRead % progressInterval == 0) {
+                    logger.info("Call import: {} lines read, {} imported, {} rejected",
+                            run.linesRead, run.imported, run.rejected);
+                }
+            }
+        }
+        if (!batch.isEmpty()) flush(batch, run);
+        context.setProgress(run.linesRead);
+
+        long elapsed = System.currentTimeMillis() - run.startedAt;
+        logger.info("Call import finished: {} lines, {} imported, {} rejected in {} ms",
+                run.linesRead, run.imported, run.rejected, elapsed);
+
+        return CallImportReport.builder()
+                .linesRead(run.linesRead)
+                .imported(run.imported)
+                .rejected(run.rejected)
+                .elapsedMillis(elapsed)
+                .rejects(run.rejects)
+                .build();
+    }
+
+    private void flush(List<ParsedCall> batch, Run run) {
+        resolvePhones(batch, run.phones);
+
+        TariffTable tariffs = tariffService.getTable();
+        List<NewCall> calls = new ArrayList<>(batch.size());
+        List<Long> lines = new ArrayList<>(batch.size());
+        for (ParsedCall call : batch) {
+            PhoneRef caller = run.phones.get(call.caller);
+            PhoneRef callee = run.phones.get(call.callee);
+            if (caller == null || caller == UNKNOWN_PHONE) {
+                run.reject(call.line, "Unknown caller phone: " + call.caller);
+                continue;
+            }
+            if (callee == null || callee == UNKNOWN_PHONE) {
+                run.reject(call.line, "Unknown callee phone: " + call.callee);
+                continue;
+            }
+
+            long price = call.pricePerMinute;
+            long cost;
+            try {
+                if (price == BY_TARIFF) {
+                    int band = tariffs.match(call.callee, TariffService.secondOfDay(call.start));
+                    if (band == TariffTable.NO_MATCH) {
+                        run.reject(call.line, "No tariff for callee phone: " + call.callee);
+                        continue;
+                    }
+                    price = tariffs.pricePerMinute(band);
+                    cost = tariffs.cost(band, call.durationSeconds);
+                } else {
+                    cost = TariffTable.perSecondCost(price, call.durationSeconds);
+                }
+            } catch (ArithmeticException e) {
+                cost = Long.MAX_VALUE;
+            }
+            // Стоимость не влезла бы в total_cost и сорвала бы вставку всего пакета
+            if (cost > TariffService.MAX_AMOUNT_MINOR) {
+                run.reject(call.line, "Call cost must not exceed " + TariffService.MAX_AMOUNT.toPlainString());
+                continue;
+            }
+
+            calls.add(NewCall.builder()
+                    .id(UUID.randomUUID())
+                    .callDateTime(call.start)
+                    .caller(caller)
+                    .callee(callee)
+                    .callType(call.callType)
+                    .durationSeconds(call.durationSeconds)
+                    .pricePerMinute(TariffService.fromMinorUnits(price))
+                    .totalCost(TariffService.fromMinorUnits(cost))
+                    .build());
+            lines.add(call.line);
+        }
+        if (calls.isEmpty()) return;
+        insertOrSplit(calls, lines, run);
+    }
+
+    // Детерминированная ошибка (например, нарушение ограничения одной строкой) делит пакет пополам,
+    // пока плохая строка не останется одна: отклоняется только она, остальные строки пакета записываются
+    private void insertOrSplit(List<NewCall> calls, List<Long> lines, Run run) {
+        try {
+            // Исторические звонки в поток дашборда (CallEventHub) не отправляются
+            transactionTemplate.executeWithoutResult(status -> callGraphService.record(callBatchRepository.insert(calls)));
+            run.imported += calls.size();
+        } catch (RuntimeException e) {
+            if (calls.size() > 1 && CallIngestionService.isDeterministic(e)) {
+                int half = calls.size() / 2;
+                insertOrSplit(calls.subList(0, half), lines.subList(0, half), run);
+                insertOrSplit(calls.subList(half, calls.size()), lines.subList(half, lines.size()), run);
+                return;
+            }
+            logger.warn("Call import batch of {} rows failed: {}", calls.size(), e.getMessage());
+            for (Long line : lines) run.reject(line, (calls.size() > 1 ? "Batch failed: " : "Insert failed: ") + e.getMessage());
+        }
+    }
+
+    // Телефоны, которых еще нет в кэше, ищутся одним запросом на пакет; промахи тоже кэшируются
+    private void resolvePhones(List<ParsedCall> batch, Map<String, PhoneRef> phones) {
+        Set<String> missing = new HashSet<>();
+        for (ParsedCall call : batch) {
+            if (!phones.containsKey(call.caller)) missing.add(call.caller);
+            if (!phones.containsKey(call.callee)) missing.add(call.callee);
+        }
+        if (missing.isEmpty()) return;
+        if (phones.size() + missing.size() > phoneCacheSize) phones.clear();
+
+        phones.putAll(callBatchRepository.findPhoneRefs(missing));
+        for (String phone : missing) phones.putIfAbsent(phone, UNKNOWN_PHONE);
+    }
+
+    private static ParsedCall parseCsv(String line, long lineNumber) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 5 || fields.length > 6) {
+            throw new IllegalArgumentException("Expected 5 or 6 columns, got " + fields.length);
+        }
+        return parsed(lineNumber, fields[0], fields[1], fields[2], fields[3], fields[4],
+                fields.length == 6 ? fields[5] : null);
+    }
+
+    private ParsedCall parseJson(String line, long lineNumber) {
+        JsonNode node = jsonMapper.readTree(line);
+        if (!node.isObject()) throw new IllegalArgumentException("Expected a JSON object");
+        return parsed(lineNumber, text(node, "caller"), text(node, "callee"), text(node, "startTime"),
+                text(node, "durationSeconds"), text(node, "pricePerMinute"), text(node, "callType"));
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asString();
+    }
+
+    private static ParsedCall parsed(long lineNumber, String caller, String callee, String start,
+                                     String duration, String price, String callType) {
+        ParsedCall call = new ParsedCall();
+        call.line = lineNumber;
+        call.caller = required(caller, "caller");
+        call.callee = required(callee, "callee");
+        call.start = LocalDateTime.parse(required(start, "start time"));
+        call.durationSeconds = Long.parseLong(required(duration, "duration"));
+        call.pricePerMinute = price == null || price.isBlank() ? BY_TARIFF : parsePrice(price.trim());
+        call.callType = callType == null || callType.isBlank() ? CallType.OUTGOING : CallType.valueOf(callType.trim());
+        if (call.durationSeconds < 0) throw new IllegalArgumentException("Duration must not be negative");
+        return call;
+    }
+
+    // Масштаб проверяется до округления: setScale числа вида 1e-999999999 стоит миллиард цифр
+    private static long parsePrice(String value) {
+        BigDecimal price = new BigDecimal(value);
+        if (price.signum() < 0) throw new IllegalArgumentException("Price per minute must not be negative");
+        if (price.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("Price per minute must have at most 2 decimal places");
+        }
+        if (price.compareTo(TariffService.MAX_AMOUNT) > 0) {
+            throw new IllegalArgumentException("Price per minute must not exceed " + TariffService.MAX_AMOUNT.toPlainString());
+        }
+        return TariffService.toMinorUnits(price);
+    }
+
+    private static String required(String value, String name) {
+        if (value == null || value.isBlank()) throw new IllegalArgumentException("Missing " + name);
+        return value.trim();
+    }
+
+    private class Run {
+        final long startedAt = System.currentTimeMillis();
+        final Map<String, PhoneRef> phones = new HashMap<>();
+        final List<CallImportReport.RejectedLine> rejects = new ArrayList<>();
+        long linesRead;
+        long imported;
+        long rejected;
+
+        void reject(long line, String reason) {
+            rejected++;
+            if (rejects.size() < maxReportedRejects) rejects.add(new CallImportReport.RejectedLine(line, reason));
+        }
+    }
+
+    private static class ParsedCall {
+        long line;
+        String caller;
+        String callee;
+        LocalDateTime start;
+        long durationSeconds;
+        // В копейках; BY_TARIFF — цена не указана
+        long pricePerMinute;
+        CallType callType;
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.call_track.service;
+
+import com.example.call_track.entity.call.CallType;
+import com.example.call_track.repository.CallBatchRepository;
+import com.example.call_track.repository.CallBatchRepository.NewCall;
+import com.example.call_track.repository.CallBatchRepository.PhoneRef;
+import com.example.call_track.utils.TariffTable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind ingestion of call events.
+ * An event is acknowledged as soon as it is durable in {@link CallWriteAheadLog}; a single drainer
+ * writes queued events to the database in batched transactions and then advances the WAL checkpoint.
+ * Events left in the log by a crash are replayed on startup. Call ids are assigned at ingestion (or taken
+ * from the client as an idempotency key) and the batch insert skips existing rows, so replaying an event
+ * that already reached the database, or a client retrying one, is harmless.
+ * <p>
+ * Only transient failures (connection, timeout) are retried. An error that would repeat on every attempt,
+ * such as a constraint or numeric overflow, is narrowed down by splitting the batch; the offending event
+ * goes to the rejected file and the checkpoint moves past it, so one bad event cannot stall the drainer.
+ */
+@Service
+@RequiredArgsConstructor
+public class CallIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(CallIngestionService.class);
+
+    private final CallWriteAheadLog wal;
+    private final CallBatchRepository callBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CallGraphService callGraphService;
+    private final CallEventHub callEventHub;
+    private final TariffService tariffService;
+
+    @Value("${app.calls.ingest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.calls.ingest.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${app.calls.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.calls.ingest.fsync-interval-ms:2}")
+    private long fsyncIntervalMs;
+
+    // Сколько ждать места в очереди, прежде чем отказать клиенту
+    @Value("${app.calls.ingest.offer-timeout-ms:500}")
+    private long offerTimeoutMs;
+
+    @Value("${app.calls.ingest.max-duration-seconds:86400}")
+    private long maxDurationSeconds;
+
+    // События с неизвестными номерами или без тарифа в формате CSV импорта, чтобы их можно было загрузить повторно
+    @Value("${app.calls.ingest.rejected-file:data/wal/rejected.csv}")
+    private String rejectedFile;
+
+    private final Object enqueueLock = new Object();
+    private final BlockingQueue<CallWriteAheadLog.Entry> queue = new LinkedBlockingQueue<>();
+    private Semaphore capacity;
+    private volatile boolean running;
+    private Thread flusher;
+    private Thread drainer;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        capacity = new Semaphore(queueCapacity);
+        wal.open();
+        running = true;
+
+        flusher = new Thread(this::flushLoop, "call-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        drainer = new Thread(this::drainLoop, "call-wal-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (!running) return;
+        running = false;
+        drainer.interrupt();
+        drainer.join(10_000);
+        flusher.join(1_000);
+        // Необработанные события остаются в журнале и будут повторены при следующем запуске
+        wal.close();
+    }
+
+    /**
+     * Appends the event to the WAL and returns once it is on disk; the database write happens later.
+     * Without a price the call is rated by the callee's tariff when it is written. The id, if given,
+     * becomes the call id: an event sent again with the same id is stored once.
+     *
+     * @throws IllegalArgumentException if the duration, price or resulting cost is out of range
+     * @throws IllegalStateException if ingestion is disabled, the queue stays full for the offer timeout or
+     *                               the fsync times out; in the last case the event may already be accepted,
+     *                               so it must be retried with the same id
+     */
+    public CallWriteAheadLog.Entry ingest(UUID id, String callerPhone, String calleePhone, CallType callType,
+                                          long durationSeconds, BigDecimal pricePerMinute, LocalDateTime callDateTime)
+            throws InterruptedException {
+        if (!running) throw new IllegalStateException("Call ingestion is not running");
+        checkLimits(durationSeconds, pricePerMinute);
+
+        if (!capacity.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Call ingestion queue is full");
+        }
+
+        CallWriteAheadLog.Entry entry;
+        // Порядок в очереди совпадает с порядком номеров в журнале — от этого зависит checkpoint
+        synchronized (enqueueLock) {
+            try {
+                entry = wal.append(CallWriteAheadLog.Entry.builder()
+                        .id(id != null ? id : UUID.randomUUID())
+                        .callDateTime(callDateTime != null ? callDateTime : LocalDateTime.now())
+                        .callerPhone(callerPhone.trim())
+                        .calleePhone(calleePhone.trim())
+                        .callType(callType != null ? callType : CallType.OUTGOING)
+                        .durationSeconds(durationSeconds)
+                        .pricePerMinute(pricePerMinute)
+                        .build());
+            } catch (RuntimeException e) {
+                // Событие не попало ни в журнал, ни в очередь — место в ней возвращается
+                capacity.release();
+                throw e;
+            }
+            queue.add(entry);
+        }
+
+        if (!wal.awaitDurable(entry.getSeq(), 5_000)) {
+            throw new IllegalStateException("Timed out waiting for the call WAL fsync");
+        }
+        return entry;
+    }
+
+    // Значения, которые не поместятся в столбцы calls, отклоняются до журнала: из него событие уже не убрать
+    private void checkLimits(long durationSeconds, BigDecimal pricePerMinute) {
+        if (durationSeconds < 0) throw new IllegalArgumentException("Duration must not be negative");
+        if (durationSeconds > maxDurationSeconds) {
+            throw new IllegalArgumentException("Duration must not exceed " + maxDurationSeconds + " seconds");
+        }
+        if (pricePerMinute == null) return;
+        if (pricePerMinute.signum() < 0) throw new IllegalArgumentException("Price per minute must not be negative");
+        if (pricePerMinute.compareTo(TariffService.MAX_AMOUNT) > 0) {
+            throw new IllegalArgumentException("Price per minute must not exceed " + TariffService.MAX_AMOUNT.toPlainString());
+        }
+        long cost;
+        try {
+            cost = TariffTable.perSecondCost(TariffService.toMinorUnits(pricePerMinute), durationSeconds);
+        } catch (ArithmeticException e) {
+            cost = Long.MAX_VALUE;
+        }
+        if (cost > TariffService.MAX_AMOUNT_MINOR) {
+            throw new IllegalArgumentException("Call cost must not exceed " + TariffService.MAX_AMOUNT.toPlainString());
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    // Group commit: один fsync на все записи, накопившиеся за интервал
+    private void flushLoop() {
+        while (running) {
+            try {
+                wal.force();
+            } catch (IOException e) {
+                logger.error("Call WAL fsync failed", e);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs));
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            replay();
+            List<CallWriteAheadLog.Entry> batch = new ArrayList<>(batchSize);
+            while (running) {
+                CallWriteAheadLog.Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                long lastSeq = batch.get(batch.size() - 1).getSeq();
+                while (!wal.awaitDurable(lastSeq, 1_000)) {
+                    if (!running) return;
+                }
+                writeWithRetry(batch);
+                capacity.release(batch.size());
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Call WAL replay failed, ingestion stopped", e);
+            running = false;
+        }
+    }
+
+    private void replay() throws IOException, InterruptedException {
+        List<CallWriteAheadLog.Entry> batch = new ArrayList<>(batchSize);
+        long[] replayed = { 0 };
+        try {
+            wal.replay(entry -> {
+                batch.add(entry);
+                if (batch.size() >= batchSize) {
+                    writeWithRetryUnchecked(batch);
+                    replayed[0] += batch.size();
+                    batch.clear();
+                }
+            });
+        } catch (ReplayInterruptedException e) {
+            throw (InterruptedException) e.getCause();
+        }
+        if (!batch.isEmpty()) {
+            writeWithRetry(batch);
+            replayed[0] += batch.size();
+        }
+        if (replayed[0] > 0) logger.info("Replayed {} call events from the WAL", replayed[0]);
+    }
+
+    private void writeWithRetryUnchecked(List<CallWriteAheadLog.Entry> batch) {
+        try {
+            writeWithRetry(batch);
+        } catch (InterruptedException e) {
+            throw new ReplayInterruptedException(e);
+        }
+    }
+
+    // База недоступна — повторяем с нарастающей паузой; события не теряются, т.к. лежат в журнале.
+    // Повтор начинается после checkpoint: уже записанные или отклоненные части пакета не повторяются
+    private void writeWithRetry(List<CallWriteAheadLog.Entry> batch) throws InterruptedException {
+        long backoff = 100;
+        List<CallWriteAheadLog.Entry> pending = batch;
+        while (true) {
+            try {
+                writeOrSplit(pending);
+                return;
+            } catch (IOException | RuntimeException e) {
+                long checkpoint = wal.getCheckpointSeq();
+                pending = pending.stream().filter(entry -> entry.getSeq() > checkpoint).toList();
+                if (pending.isEmpty()) return;
+                logger.warn("Failed to write {} call events, retrying in {} ms: {}", pending.size(), backoff, e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, 30_000);
+            }
+        }
+    }
+
+    // Детерминированная ошибка повторится при любом числе попыток: пакет делится пополам, пока виновное
+    // событие не останется одно, и оно уходит в файл отклоненных. Части пишутся по порядку номеров журнала
+    private void writeOrSplit(List<CallWriteAheadLog.Entry> batch) throws IOException {
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            if (!isDeterministic(e)) throw e;
+            if (batch.size() > 1) {
+                int half = batch.size() / 2;
+                writeOrSplit(batch.subList(0, half));
+                writeOrSplit(batch.subList(half, batch.size()));
+                return;
+            }
+            recordRejected(batch, "write failed: " + e.getMessage());
+        }
+        wal.checkpoint(batch.get(batch.size() - 1).getSeq());
+    }
+
+    static boolean isDeterministic(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof DataIntegrityViolationException || t instanceof ArithmeticException
+                    || t instanceof IllegalArgumentException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(List<CallWriteAheadLog.Entry> batch) throws IOException {
+        Set<String> phones = new HashSet<>();
+        for (CallWriteAheadLog.Entry entry : batch) {
+            phones.add(entry.getCallerPhone());
+            phones.add(entry.getCalleePhone());
+        }
+        Map<String, PhoneRef> refs = callBatchRepository.findPhoneRefs(phones);
+
+        TariffTable tariffs = tariffService.getTable();
+        List<NewCall> calls = new ArrayList<>(batch.size());
+        List<CallWriteAheadLog.Entry> unknown = new ArrayList<>();
+        List<CallWriteAheadLog.Entry> tooExpensive = new ArrayList<>();
+        for (CallWriteAheadLog.Entry entry : batch) {
+            PhoneRef caller = refs.get(entry.getCallerPhone());
+            PhoneRef callee = refs.get(entry.getCalleePhone());
+            if (caller == null || callee == null) {
+                unknown.add(entry);
+                continue;
+            }
+
+            long price;
+            long cost;
+            if (entry.getPricePerMinute() == null) {
+                int band = tariffs.match(entry.getCalleePhone(), TariffService.secondOfDay(entry.getCallDateTime()));
+                if (band == TariffTable.NO_MATCH) {
+                    unknown.add(entry);
+                    continue;
+                }
+                price = tariffs.pricePerMinute(band);
+                cost = tariffs.cost(band, entry.getDurationSeconds());
+            } else {
+                price = TariffService.toMinorUnits(entry.getPricePerMinute());
+                cost = TariffTable.perSecondCost(price, entry.getDurationSeconds());
+            }
+            // Цена по тарифу на входе неизвестна, поэтому предел стоимости проверяется и здесь
+            if (cost > TariffService.MAX_AMOUNT_MINOR) {
+                tooExpensive.add(entry);
+                continue;
+            }
+            calls.add(NewCall.builder()
+                    .id(entry.getId())
+                    .callDateTime(entry.getCallDateTime())
+                    .caller(caller)
+                    .callee(callee)
+                    .callType(entry.getCallType())
+                    .durationSeconds(entry.getDurationSeconds())
+                    .pricePerMinute(TariffService.fromMinorUnits(price))
+                    .totalCost(TariffService.fromMinorUnits(cost))
+                    .build());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<NewCall> inserted = callBatchRepository.insert(calls);
+            callGraphService.record(inserted);
+            callEventHub.publish(inserted);
+        });
+        if (!unknown.isEmpty()) recordRejected(unknown, "unknown phone or no tariff for the callee");
+        if (!tooExpensive.isEmpty()) recordRejected(tooExpensive, "cost exceeds " + TariffService.MAX_AMOUNT.toPlainString());
+    }
+
+    // Событие уже подтверждено клиенту, поэтому не выбрасывается молча, а сохраняется рядом с журналом
+    private void recordRejected(List<CallWriteAheadLog.Entry> rejected, String reason) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (CallWriteAheadLog.Entry entry : rejected) {
+            logger.warn("Call event {} rejected ({} -> {}): {}",
+                    entry.getId(), entry.getCallerPhone(), entry.getCalleePhone(), reason);
+            lines.append(entry.getCallerPhone()).append(',')
+                    .append(entry.getCalleePhone()).append(',')
+                    .append(entry.getCallDateTime()).append(',')
+                    .append(entry.getDurationSeconds()).append(',')
+                    .append(entry.getPricePerMinute() != null ? entry.getPricePerMinute().toPlainString() : "").append(',')
+                    .append(entry.getCallType().name()).append('\n');
+        }
+        Path file = Paths.get(rejectedFile).toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, lines.toString(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static class ReplayInterruptedException extends RuntimeException {
+        ReplayInterruptedException(InterruptedException cause) {
+            super(cause);
+        }
+    }
+}
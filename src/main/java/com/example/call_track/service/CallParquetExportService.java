@@ -0,0 +1,218 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.call.CallRow;
+import com.example.call_track.entity.call.Call;
+import com.example.call_track.repository.CallRepository;
+import lombok.RequiredArgsConstructor;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Nightly columnar export of all calls, joined with phone and user columns, for offline analytics.
+ * Each month is read by its own cursor in its own transaction, in start_time order, and written to one
+ * Parquet file ({@code month=yyyy-MM/calls.parquet}), so a long export never holds a single snapshot. Only the current row group is held in memory; phones and
+ * names repeat a lot and are dictionary-encoded.
+ */
+@Service
+@RequiredArgsConstructor
+public class CallParquetExportService {
+    private static final Logger logger = LoggerFactory.getLogger(CallParquetExportService.class);
+
+    private static final MessageType SCHEMA = Types.buildMessage()
+            .required(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("id")
+            .required(PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.timestampType(false, LogicalTypeAnnotation.TimeUnit.MILLIS)).named("start_time")
+            .required(PrimitiveTypeName.INT64).named("duration_seconds")
+            .required(PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.decimalType(2, 18)).named("price_per_minute")
+            .required(PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.decimalType(2, 18)).named("total_cost")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("caller_user_id")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("caller_phone")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("caller_first_name")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("caller_last_name")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("caller_middle_name")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("callee_user_id")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("callee_phone")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("callee_first_name")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("callee_last_name")
+            .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("callee_middle_name")
+            .named("call");
+
+    private final CallRepository callRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.calls.parquet.output-dir:data/parquet}")
+    private String outputDir;
+
+    @Value("${app.calls.parquet.row-group-bytes:67108864}")
+    private long rowGroupBytes;
+
+    @Value("${app.calls.parquet.fetch-size:5000}")
+    private int fetchSize;
+
+    /**
+     * Writes every call into monthly Parquet files and returns the number of rows per month.
+     * Each month is written to a temporary file and moved into place when complete; a cancelled export
+     * stops at the next fetch and leaves the files of completed months. Runs as the parquet-export job,
+     * which {@link AdminJobService} also submits on schedule.
+     */
+    public Map<YearMonth, Long> exportAll(JobContext context) throws IOException {
+        Path root = Paths.get(outputDir).toAbsolutePath();
+        Files.createDirectories(root);
+        long started = System.currentTimeMillis();
+
+        Map<YearMonth, Long> written = new LinkedHashMap<>();
+        SimpleGroupFactory groups = new SimpleGroupFactory(SCHEMA);
+        LocalDateTime first = callRepository.findFirstCallDateTime();
+        if (first != null) {
+            YearMonth last = YearMonth.from(callRepository.findLastCallDateTime());
+            for (YearMonth month = YearMonth.from(first); !month.isAfter(last); month = month.plusMonths(1)) {
+                context.checkCancelled();
+                long rows = exportMonth(root, month, groups, context);
+                if (rows > 0) written.put(month, rows);
+            }
+        }
+
+        logger.info("Parquet export of {} months, {} rows finished in {} ms", written.size(),
+                written.values().stream().mapToLong(Long::longValue).sum(), System.currentTimeMillis() - started);
+        return written;
+    }
+
+    // Своя транзакция на месяц: снимок живет, пока читается один месяц, и не задерживает vacuum на всю выгрузку
+    private long exportMonth(Path root, YearMonth month, SimpleGroupFactory groups, JobContext context) throws IOException {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        Specification<Call> inMonth = (r, q, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(r.get("callDateTime"), from), cb.lessThan(r.get("callDateTime"), to));
+        try {
+            Long rows = transactionTemplate.execute(status -> {
+                MonthWriter current = null;
+                try (Stream<CallRow> stream = callRepository.streamRows(inMonth, Sort.by("callDateTime").ascending(), fetchSize)) {
+                    for (CallRow row : (Iterable<CallRow>) stream::iterator) {
+                        if (current == null) {
+                            current = new MonthWriter(root, month);
+                            context.setMessage("Writing " + month);
+                        }
+                        current.writer.write(toGroup(groups, row));
+                        current.rows++;
+                        if (current.rows % fetchSize == 0) {
+                            context.advance(fetchSize);
+                            context.checkCancelled();
+                        }
+                    }
+                    if (current == null) return 0L;
+                    long count = current.commit();
+                    // Строки сверх последнего полного fetchSize учитываются при закрытии месяца
+                    context.advance(count % fetchSize);
+                    return count;
+                } catch (IOException e) {
+                    if (current != null) current.abort();
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException e) {
+                    if (current != null) current.abort();
+                    throw e;
+                }
+            });
+            return rows != null ? rows : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Group toGroup(SimpleGroupFactory groups, CallRow row) {
+        Group group = groups.newGroup()
+                .append("id", row.getId().toString())
+                .append("start_time", row.getCallDateTime().toInstant(ZoneOffset.UTC).toEpochMilli())
+                .append("duration_seconds", row.getDurationSeconds())
+                .append("price_per_minute", unscaled(row.getPricePerMinute()))
+                .append("total_cost", unscaled(row.getTotalCost()));
+        appendOptional(group, "caller_user_id", row.getCallerUserId() != null ? row.getCallerUserId().toString() : null);
+        appendOptional(group, "caller_phone", row.getCallerPhone());
+        appendOptional(group, "caller_first_name", row.getCallerFirstName());
+        appendOptional(group, "caller_last_name", row.getCallerLastName());
+        appendOptional(group, "caller_middle_name", row.getCallerMiddleName());
+        appendOptional(group, "callee_user_id", row.getCalleeUserId() != null ? row.getCalleeUserId().toString() : null);
+        appendOptional(group, "callee_phone", row.getCalleePhone());
+        appendOptional(group, "callee_first_name", row.getCalleeFirstName());
+        appendOptional(group, "callee_last_name", row.getCalleeLastName());
+        appendOptional(group, "callee_middle_name", row.getCalleeMiddleName());
+        return group;
+    }
+
+    private static void appendOptional(Group group, String field, String value) {
+        if (value != null) group.append(field, value);
+    }
+
+    private static long unscaled(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private class MonthWriter {
+        final YearMonth month;
+        final Path target;
+        final Path tmp;
+        final ParquetWriter<Group> writer;
+        long rows;
+
+        MonthWriter(Path root, YearMonth month) throws IOException {
+            this.month = month;
+            Path dir = root.resolve("month=" + month);
+            Files.createDirectories(dir);
+            this.target = dir.resolve("calls.parquet");
+            this.tmp = dir.resolve("calls.parquet.tmp");
+            this.writer = ExampleParquetWriter.builder(new LocalOutputFile(tmp))
+                    .withType(SCHEMA)
+                    .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                    .withCompressionCodec(CompressionCodecName.SNAPPY)
+                    .withRowGroupSize(rowGroupBytes)
+                    .withDictionaryEncoding(true)
+                    // id уникален, словарь для него только раздувает страницы
+                    .withDictionaryEncoding("id", false)
+                    .build();
+        }
+
+        long commit() throws IOException {
+            writer.close();
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows;
+        }
+
+        void abort() {
+            try {
+                writer.close();
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                logger.warn("Failed to clean up {}: {}", tmp, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.call_track.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains monthly range partitions of the calls table on start_time
+ * (the partitioned table itself is created by migrations V1/V2).
+ * Keeps partitions created ahead of time and detaches/drops partitions
+ * that fall out of the retention window. Rows of a month that landed in
+ * calls_default before its partition existed are moved into the new partition.
+ */
+@Service
+@RequiredArgsConstructor
+public class CallPartitionService {
+    private static final Logger logger = LoggerFactory.getLogger(CallPartitionService.class);
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.calls.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.calls.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    // 0 — хранить всю историю
+    @Value("${app.calls.partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    @Value("${app.calls.partitioning.drop-detached:true}")
+    private boolean dropDetached;
+
+    @Value("${app.calls.partitioning.delete-batch-size:10000}")
+    private int deleteBatchSize;
+
+    public boolean isPartitioned() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_partitioned_table WHERE partrelid = to_regclass('calls')", Integer.class);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Creates partitions up to {@code months-ahead} and applies retention.
+     * Runs nightly as the partition-maintenance job (see AdminJobService).
+     *
+     * @throws IllegalStateException if a partition could not be created; the other months are still processed
+     */
+    public void maintain() {
+        if (!enabled || !isPartitioned()) return;
+
+        YearMonth current = YearMonth.now();
+        createPartitions(current, current.plusMonths(monthsAhead));
+
+        if (retentionMonths > 0) {
+            applyRetention(current.minusMonths(retentionMonths));
+        }
+    }
+
+    /**
+     * Creates the partitions of months [from, to], e.g. before loading historical calls.
+     *
+     * @throws IllegalStateException if a partition could not be created
+     */
+    public void ensurePartitions(YearMonth from, YearMonth to) {
+        if (!enabled || !isPartitioned()) return;
+        createPartitions(from, to);
+    }
+
+    private void createPartitions(YearMonth from, YearMonth to) {
+        List<String> failures = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            try {
+                createPartition(month);
+            } catch (Exception e) {
+                logger.error("Failed to create partition for {}: {}", month, e.getMessage());
+                failures.add(month + ": " + e.getMessage());
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Failed to create call partitions: " + String.join("; ", failures));
+        }
+    }
+
+    // Если строки месяца уже лежат в calls_default, PARTITION OF невозможен: секция создается отдельно,
+    // строки переносятся в нее из calls_default и она присоединяется — все в одной транзакции
+    private void createPartition(YearMonth month) {
+        String partition = "calls_" + month.format(PARTITION_SUFFIX);
+        LocalDate start = month.atDay(1);
+        LocalDate end = month.plusMonths(1).atDay(1);
+        String bounds = "FOR VALUES FROM ('" + start + "') TO ('" + end + "')";
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?::text) IS NOT NULL", Boolean.class, partition);
+            if (Boolean.TRUE.equals(exists)) return;
+
+            Boolean stray = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM calls_default WHERE start_time >= ? AND start_time < ?)",
+                    Boolean.class, start.atStartOfDay(), end.atStartOfDay());
+            if (!Boolean.TRUE.equals(stray)) {
+                jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF calls " + bounds);
+                return;
+            }
+
+            jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE calls INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM calls_default WHERE start_time >= ? AND start_time < ? " +
+                    "RETURNING *) INSERT INTO " + partition + " SELECT * FROM moved", start.atStartOfDay(), end.atStartOfDay());
+            jdbcTemplate.execute("ALTER TABLE calls ATTACH PARTITION " + partition + " " + bounds);
+            logger.warn("Partition {} created with {} rows moved from calls_default", partition, moved);
+        });
+    }
+
+    // Отсоединение — операция над метаданными, но держит ACCESS EXCLUSIVE на calls до конца транзакции,
+    // поэтому каждая секция отсоединяется (и удаляется) в своей короткой транзакции. CONCURRENTLY
+    // недоступен: у calls есть секция по умолчанию. Строки call_party ушедших месяцев удаляются после,
+    // порциями без блокировки calls
+    private void applyRetention(YearMonth oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'calls'::regclass AND c.relname ~ '^calls_[0-9]{4}_[0-9]{2}$'",
+                String.class);
+
+        for (String partition : partitions) {
+            YearMonth month = YearMonth.parse(partition.substring("calls_".length()), PARTITION_SUFFIX);
+            if (!month.isBefore(oldestKept)) continue;
+
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.execute("ALTER TABLE calls DETACH PARTITION " + partition));
+            if (dropDetached) {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute("DROP TABLE " + partition));
+            }
+            logger.info("Partition {} {}", partition, dropDetached ? "dropped" : "detached");
+        }
+
+        long deleted = deleteOrphanedParties(oldestKept.atDay(1).atStartOfDay());
+        if (deleted > 0) {
+            logger.info("Deleted {} call_party rows of calls out of the retention window", deleted);
+        }
+    }
+
+    // Удаляются только строки без звонка: прерванная очистка продолжится при следующем обслуживании,
+    // а старые звонки, оставшиеся в calls_default, сохраняют свои строки
+    private long deleteOrphanedParties(LocalDateTime before) {
+        long total = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> jdbcTemplate.update(
+                    "DELETE FROM call_party WHERE id IN (SELECT p.id FROM call_party p WHERE p.call_time < ? " +
+                            "AND NOT EXISTS (SELECT 1 FROM calls c WHERE c.id = p.call_id AND c.start_time = p.call_time) " +
+                            "LIMIT ?)",
+                    before, deleteBatchSize));
+            if (deleted == null || deleted == 0) return total;
+            total += deleted;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.call.CallReratingJobDto;
+import com.example.call_track.entity.call.CallType;
+import com.example.call_track.repository.CallReratingRepository;
+import com.example.call_track.repository.CallReratingRepository.RatedCall;
+import com.example.call_track.repository.CallStatsRepository;
+import com.example.call_track.utils.TariffTable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-rating of historical calls with the current tariffs, e.g. after a tariff change.
+ * A coordinator thread reads calls of the range in keyset chunks by (start_time, id) and hands each chunk
+ * to a fork-join pool, which rates it in kopecks and writes only the changed rows in one short transaction:
+ * calls, their call_party rows, the cost in user_daily_call_stats and the cost histograms in
+ * user_daily_call_sketches. Only the touched rows are locked.
+ *
+ * <p>Chunks finish out of order, so the persisted checkpoint is the key of the last chunk before which
+ * every chunk is done. A cancelled, failed or killed run resumes from it; a chunk redone after a restart
+ * changes nothing because its calls already carry the new prices. A dry run rates without writing and
+ * reports the cost before and after.
+ */
+@Service
+@RequiredArgsConstructor
+public class CallReratingService {
+    private static final Logger logger = LoggerFactory.getLogger(CallReratingService.class);
+
+    private final CallReratingRepository callReratingRepository;
+    private final CallStatsRepository callStatsRepository;
+    private final TariffService tariffService;
+    private final CallGraphService callGraphService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.calls.rerate.chunk-size:5000}")
+    private int chunkSize;
+
+    // Каждый поток держит соединение во время записи порции — не больше размера пула соединений
+    @Value("${app.calls.rerate.parallelism:4}")
+    private int parallelism;
+
+    private final Map<UUID, Run> runs = new ConcurrentHashMap<>();
+    private ForkJoinPool pool;
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void start() {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Запуски останавливаются как INTERRUPTED и продолжатся с checkpoint при следующем старте
+        stopping = true;
+        runs.values().forEach(run -> run.cancelled = true);
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts re-rating the calls of days [from, to] in the background.
+     */
+    public CallReratingJobDto start(LocalDate from, LocalDate to, boolean dryRun) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        CallReratingJobDto job = CallReratingJobDto.builder()
+                .id(UUID.randomUUID())
+                .status(Status.RUNNING.name())
+                .dryRun(dryRun)
+                .rangeFrom(from.atStartOfDay())
+                .rangeTo(to.plusDays(1).atStartOfDay())
+                .costBefore(BigDecimal.ZERO)
+                .costAfter(BigDecimal.ZERO)
+                .costDelta(BigDecimal.ZERO)
+                .startedAt(now)
+                .updatedAt(now)
+                .build();
+        callReratingRepository.insertJob(job);
+        launch(job);
+        return job;
+    }
+
+    /**
+     * Continues a stopped run from its checkpoint.
+     *
+     * @throws IllegalArgumentException if the run does not exist, is running or has completed
+     */
+    public CallReratingJobDto resume(UUID id) {
+        CallReratingJobDto job = get(id);
+        if (runs.containsKey(id)) throw new IllegalArgumentException("Re-rating job is already running");
+        if (Status.COMPLETED.name().equals(job.getStatus())) throw new IllegalArgumentException("Re-rating job has completed");
+        job.setStatus(Status.RUNNING.name());
+        job.setError(null);
+        job.setFinishedAt(null);
+        job.setUpdatedAt(LocalDateTime.now());
+        callReratingRepository.saveJob(job);
+        launch(job);
+        return job;
+    }
+
+    public void cancel(UUID id) {
+        Run run = runs.get(id);
+        if (run == null) throw new IllegalArgumentException("Re-rating job is not running");
+        run.cancelled = true;
+    }
+
+    public CallReratingJobDto get(UUID id) {
+        return callReratingRepository.findJob(id)
+                .orElseThrow(() -> new IllegalArgumentException("Re-rating job not found: " + id));
+    }
+
+    public List<CallReratingJobDto> findRecent(int limit) {
+        return callReratingRepository.findRecentJobs(limit);
+    }
+
+    /**
+     * Marks runs left RUNNING by a stopped process as INTERRUPTED and, if asked, resumes them.
+     */
+    public void recoverInterrupted(boolean resume) {
+        int interrupted = callReratingRepository.markInterrupted();
+        if (interrupted > 0) logger.info("Marked {} call re-rating jobs of a stopped process as interrupted", interrupted);
+        if (!resume) return;
+        for (CallReratingJobDto job : callReratingRepository.findJobsByStatus(Status.INTERRUPTED.name())) {
+            resume(job.getId());
+        }
+    }
+
+    private void launch(CallReratingJobDto job) {
+        Run run = new Run(job);
+        if (runs.putIfAbsent(job.getId(), run) != null) throw new IllegalArgumentException("Re-rating job is already running");
+        Thread thread = new Thread(() -> execute(run), "call-rerating-" + job.getId().toString().substring(0, 8));
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void execute(Run run) {
+        CallReratingJobDto job = run.job;
+        // Один снимок тарифов на весь запуск
+        TariffTable tariffs = tariffService.getTable();
+        long started = System.currentTimeMillis();
+        long changedBefore = job.getCallsChanged();
+        Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = pool.getParallelism() * 2;
+        LocalDateTime afterTime = job.getCheckpointTime();
+        UUID afterId = job.getCheckpointId();
+        logger.info("Call re-rating {} started from {}, dry run: {}", job.getId(),
+                afterTime != null ? afterTime : job.getRangeFrom(), job.isDryRun());
+        try {
+            while (!run.cancelled) {
+                List<RatedCall> calls = callReratingRepository.findChunk(job.getRangeFrom(), job.getRangeTo(),
+                        afterTime, afterId, chunkSize);
+                if (calls.isEmpty()) break;
+                RatedCall last = calls.get(calls.size() - 1);
+                afterTime = last.getStartTime();
+                afterId = last.getId();
+                inFlight.add(pool.submit(() -> rate(calls, tariffs, job.isDryRun())));
+                // Checkpoint сдвигается только по непрерывному префиксу завершенных порций
+                while (!inFlight.isEmpty() && (inFlight.size() >= maxInFlight || inFlight.peek().isDone())) {
+                    checkpoint(job, inFlight.poll().join());
+                }
+            }
+            while (!inFlight.isEmpty()) checkpoint(job, inFlight.poll().join());
+            Status status = !run.cancelled ? Status.COMPLETED : stopping ? Status.INTERRUPTED : Status.CANCELLED;
+            job.setStatus(status.name());
+        } catch (RuntimeException e) {
+            logger.error("Call re-rating {} failed", job.getId(), e);
+            // Порции в работе не попадут в checkpoint и будут пересчитаны при продолжении
+            inFlight.forEach(task -> task.cancel(false));
+            job.setStatus(Status.FAILED.name());
+            job.setError(e.getMessage());
+        } finally {
+            job.setUpdatedAt(LocalDateTime.now());
+            if (!Status.RUNNING.name().equals(job.getStatus())) job.setFinishedAt(job.getUpdatedAt());
+            try {
+                callReratingRepository.saveJob(job);
+            } finally {
+                runs.remove(job.getId());
+            }
+        }
+        logger.info("Call re-rating {} {}: {} calls scanned, {} changed, cost {} -> {} in {} ms", job.getId(),
+                job.getStatus().toLowerCase(), job.getCallsScanned(), job.getCallsChanged(),
+                job.getCostBefore(), job.getCostAfter(), System.currentTimeMillis() - started);
+
+        // Граф держит стоимость звонков в памяти
+        if (!job.isDryRun() && job.getCallsChanged() > changedBefore) {
+            try {
+                callGraphService.reload();
+            } catch (RuntimeException e) {
+                logger.error("Failed to reload the call graph after re-rating", e);
+            }
+        }
+    }
+
+    private Chunk rate(List<RatedCall> calls, TariffTable tariffs, boolean dryRun) {
+        Chunk chunk = new Chunk();
+        RatedCall last = calls.get(calls.size() - 1);
+        chunk.lastTime = last.getStartTime();
+        chunk.lastId = last.getId();
+        List<RatedCall> changed = new ArrayList<>();
+        for (RatedCall call : calls) {
+            chunk.scanned++;
+            chunk.costBefore += call.getTotalCost();
+            int band = call.getCalleePhone() == null ? TariffTable.NO_MATCH
+                    : tariffs.match(call.getCalleePhone(), TariffService.secondOfDay(call.getStartTime()));
+            if (band == TariffTable.NO_MATCH) {
+                chunk.skipped++;
+                chunk.costAfter += call.getTotalCost();
+                continue;
+            }
+            call.setNewPricePerMinute(tariffs.pricePerMinute(band));
+            call.setNewTotalCost(tariffs.cost(band, call.getDurationSeconds()));
+            chunk.costAfter += call.getNewTotalCost();
+            if (call.getNewTotalCost() != call.getTotalCost() || call.getNewPricePerMinute() != call.getPricePerMinute()) {
+                changed.add(call);
+            }
+        }
+        if (dryRun || changed.isEmpty()) {
+            chunk.changed = changed.size();
+            return chunk;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<RatedCall> updated = callReratingRepository.updateRates(changed);
+            CallStatsRepository.CostDeltas deltas = new CallStatsRepository.CostDeltas();
+            for (RatedCall call : updated) {
+                LocalDate day = call.getStartTime().toLocalDate();
+                if (call.getCallerUserId() != null) {
+                    deltas.add(call.getCallerUserId(), day, CallType.OUTGOING, call.getTotalCost(), call.getNewTotalCost());
+                }
+                if (call.getCalleeUserId() != null) {
+                    deltas.add(call.getCalleeUserId(), day, CallType.INCOMING, call.getTotalCost(), call.getNewTotalCost());
+                }
+            }
+            callStatsRepository.apply(deltas);
+            chunk.changed = updated.size();
+        });
+        return chunk;
+    }
+
+    private void checkpoint(CallReratingJobDto job, Chunk chunk) {
+        job.setCheckpointTime(chunk.lastTime);
+        job.setCheckpointId(chunk.lastId);
+        job.setCallsScanned(job.getCallsScanned() + chunk.scanned);
+        job.setCallsChanged(job.getCallsChanged() + chunk.changed);
+        job.setCallsSkipped(job.getCallsSkipped() + chunk.skipped);
+        job.setCostBefore(job.getCostBefore().add(TariffService.fromMinorUnits(chunk.costBefore)));
+        job.setCostAfter(job.getCostAfter().add(TariffService.fromMinorUnits(chunk.costAfter)));
+        job.setCostDelta(job.getCostAfter().subtract(job.getCostBefore()));
+        job.setUpdatedAt(LocalDateTime.now());
+        callReratingRepository.saveJob(job);
+    }
+
+    private enum Status { RUNNING, COMPLETED, CANCELLED, FAILED, INTERRUPTED }
+
+    private static class Run {
+        final CallReratingJobDto job;
+        volatile boolean cancelled;
+
+        Run(CallReratingJobDto job) {
+            this.job = job;
+        }
+    }
+
+    // Итог одной порции; суммы в копейках
+    private static class Chunk {
+        LocalDateTime lastTime;
+        UUID lastId;
+        long scanned;
+        long changed;
+        long skipped;
+        long costBefore;
+        long costAfter;
+    }
+}
@@ -1,24 +1,61 @@
 package com.example.call_track.service;
 
+import com.example.call_track.dto.call.CallRow;
+import com.example.call_track.dto.call.CallSketchStatsDto;
+import com.example.call_track.dto.call.CallStatsDto;
+import com.example.call_track.dto.call.DailyCallStatsDto;
 import com.example.call_track.entity.PhoneNumber;
 import com.example.call_track.entity.call.Call;
+import com.example.call_track.entity.call.CallParty;
 import com.example.call_track.entity.call.CallType;
 import com.example.call_track.entity.user.User;
+import com.example.call_track.repository.CallPartyRepository;
 import com.example.call_track.repository.CallRepository;
+import com.example.call_track.repository.CallStatsRepository;
+import com.example.call_track.spec.CallCursor;
+import com.example.call_track.spec.CallFilter;
+import com.example.call_track.spec.CallSpecifications;
+import com.example.call_track.spec.CallWindow;
+import com.example.call_track.utils.LogHistogram;
+import com.example.call_track.utils.TariffTable;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class CallService {
     private final CallRepository callRepository;
+    private final CallPartyRepository callPartyRepository;
+    private final CallCountCache callCountCache;
+    private final CallStatsRepository callStatsRepository;
+    private final CallGraphService callGraphService;
+    private final CallEventHub callEventHub;
+    private final TariffService tariffService;
+
+    @Value("${app.calls.export.max-seconds:900}")
+    private long exportMaxSeconds;
 
     public Call saveCall(Call call) {
         return callRepository.save(call);
@@ -57,12 +94,32 @@ public class CallService {
         return callRepository.findByCallDateTimeBetween(start, end);
     }
 
-    public Call createCall(PhoneNumber callerPhone, PhoneNumber calleePhone, CallType callType, long durationSeconds, BigDecimal pricePerMinute) {
-        BigDecimal totalCost = calculateTotalCost(durationSeconds, pricePerMinute);
+    /**
+     * Записывает звонок, тарифицированный по префиксу номера вызываемого абонента (см. {@link TariffService}).
+     *
+     * @throws IllegalArgumentException если для номера нет тарифа
+     */
+    @Transactional
+    public Call createCall(PhoneNumber callerPhone, PhoneNumber calleePhone, CallType callType, long durationSeconds) {
+        LocalDateTime callTime = randomRecentTime();
+        TariffTable tariffs = tariffService.getTable();
+        int band = tariffs.match(calleePhone.getPhone(), TariffService.secondOfDay(callTime));
+        if (band == TariffTable.NO_MATCH) {
+            throw new IllegalArgumentException("No tariff for number " + calleePhone.getPhone());
+        }
+        return createCall(callerPhone, calleePhone, callType, durationSeconds, callTime,
+                TariffService.fromMinorUnits(tariffs.pricePerMinute(band)),
+                TariffService.fromMinorUnits(tariffs.cost(band, durationSeconds)));
+    }
 
-        // Set call time to a random time in the past hour to spread out calls
-        LocalDateTime callTime = LocalDateTime.now().minusSeconds((long) (Math.random() * 3600));
+    @Transactional
+    public Call createCall(PhoneNumber callerPhone, PhoneNumber calleePhone, CallType callType, long durationSeconds, BigDecimal pricePerMinute) {
+        return createCall(callerPhone, calleePhone, callType, durationSeconds, randomRecentTime(),
+                pricePerMinute, calculateTotalCost(durationSeconds, pricePerMinute));
+    }
 
+    private Call createCall(PhoneNumber callerPhone, PhoneNumber calleePhone, CallType callType, long durationSeconds,
+                            LocalDateTime callTime, BigDecimal pricePerMinute, BigDecimal totalCost) {
         Call call = Call.builder()
                 .callDateTime(callTime)
                 .callerPhone(callerPhone)
@@ -73,18 +130,103 @@ public class CallService {
                 .totalCost(totalCost)
                 .build();
 
-        return saveCall(call);
+        call = saveCall(call);
+        List<CallParty> parties = CallParty.forCall(call);
+        callPartyRepository.saveAll(parties);
+
+        CallStatsRepository.Increments stats = new CallStatsRepository.Increments();
+        for (CallParty party : parties) {
+            stats.add(party.getUser().getId(), party.getCounterpartyUser().getId(), party.getCallDateTime().toLocalDate(),
+                    party.getDirection(), party.getDurationSeconds(), party.getTotalCost());
+        }
+        callStatsRepository.apply(stats);
+        callGraphService.record(call);
+        callEventHub.publish(call);
+        return call;
     }
 
-    private BigDecimal calculateTotalCost(long durationSeconds, BigDecimal pricePerMinute) {
-        BigDecimal durationMinutes = BigDecimal.valueOf(durationSeconds).divide(BigDecimal.valueOf(60), 2, BigDecimal.ROUND_UP);
-        return durationMinutes.multiply(pricePerMinute);
+    /**
+     * Итоги звонков пользователя за дни [from, to] включительно. Читаются только строки
+     * user_daily_call_stats — не больше одной на день, независимо от числа звонков.
+     */
+    public CallStatsDto getUserStats(User user, LocalDate from, LocalDate to, boolean daily) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        List<DailyCallStatsDto> days = callStatsRepository.findByUserAndDays(user.getId(), from, to);
+
+        long incomingCalls = 0, outgoingCalls = 0, incomingSeconds = 0, outgoingSeconds = 0;
+        BigDecimal incomingCost = BigDecimal.ZERO, outgoingCost = BigDecimal.ZERO;
+        for (DailyCallStatsDto day : days) {
+            incomingCalls += day.getIncomingCalls();
+            outgoingCalls += day.getOutgoingCalls();
+            incomingSeconds += day.getIncomingSeconds();
+            outgoingSeconds += day.getOutgoingSeconds();
+            incomingCost = incomingCost.add(day.getIncomingCost());
+            outgoingCost = outgoingCost.add(day.getOutgoingCost());
+        }
+        return CallStatsDto.builder()
+                .from(from)
+                .to(to)
+                .totalCalls(incomingCalls + outgoingCalls)
+                .incomingCalls(incomingCalls)
+                .outgoingCalls(outgoingCalls)
+                .totalSeconds(incomingSeconds + outgoingSeconds)
+                .incomingSeconds(incomingSeconds)
+                .outgoingSeconds(outgoingSeconds)
+                .totalCost(incomingCost.add(outgoingCost))
+                .incomingCost(incomingCost)
+                .outgoingCost(outgoingCost)
+                .days(daily ? days : List.of())
+                .build();
+    }
+
+    /**
+     * Приблизительные показатели за дни [from, to]: число разных собеседников и перцентили длительности
+     * и стоимости звонков. Без пользователя — по всей системе (собеседники — все участвовавшие в звонках).
+     * Считается объединением суточных sketch-ей: время пользователю не зависит от числа звонков,
+     * общий по системе читает одну строку на закрытый день и строки пользователей за текущий.
+     */
+    public CallSketchStatsDto getSketchStats(User user, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        CallStatsRepository.DaySketch sketch = user != null
+                ? callStatsRepository.findSketch(user.getId(), from, to)
+                : callStatsRepository.findGlobalSketch(from, to);
+        LogHistogram durations = sketch.getDurations();
+        LogHistogram costs = sketch.getCosts();
+        return CallSketchStatsDto.builder()
+                .userId(user != null ? user.getId() : null)
+                .from(from)
+                .to(to)
+                // В общем sketch-е звонок учтен у обеих сторон
+                .calls(user != null ? durations.getTotalCount() : durations.getTotalCount() / 2)
+                .distinctCounterparties(sketch.getCounterparties().estimate())
+                .durationP50(durations.quantile(0.50))
+                .durationP95(durations.quantile(0.95))
+                .durationP99(durations.quantile(0.99))
+                .costP50(BigDecimal.valueOf(costs.quantile(0.50), 2))
+                .costP95(BigDecimal.valueOf(costs.quantile(0.95), 2))
+                .costP99(BigDecimal.valueOf(costs.quantile(0.99), 2))
+                .build();
+    }
+
+    // Посекундная тарификация по явной цене за минуту, с округлением вверх до копейки
+    static BigDecimal calculateTotalCost(long durationSeconds, BigDecimal pricePerMinute) {
+        return TariffService.fromMinorUnits(
+                TariffTable.perSecondCost(TariffService.toMinorUnits(pricePerMinute), durationSeconds));
+    }
+
+    // Set call time to a random time in the past hour to spread out calls
+    private static LocalDateTime randomRecentTime() {
+        return LocalDateTime.now().minusSeconds((long) (Math.random() * 3600));
     }
 
     /**
      * Универсальный поиск вызовов пользователя с учетом всех возможных фильтров
      */
-    public Page<Call> searchUserCalls(
+    public Page<CallRow> searchUserCalls(
             User user,
             String name, String myNumbers, String phone, String callType,
             String startDate, String endDate,
@@ -92,15 +234,148 @@ public class CallService {
             BigDecimal minCost, BigDecimal maxCost,
             Pageable pageable
     ) {
-        return callRepository.findAll(
-                com.example.call_track.spec.CallSpecifications.filterAll(
-                        user, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost
-                ),
-                org.springframework.data.domain.PageRequest.of(
-                        pageable.getPageNumber(),
-                        pageable.getPageSize(),
-                        com.example.call_track.spec.CallSpecifications.buildSort(sortBy, sortDir)
-                )
-        );
+        CallFilter filter = filter(user, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost);
+        Sort sort = CallSpecifications.buildSort(sortBy, sortDir);
+        List<CallRow> rows = findRows(filter, null, sort, pageable.getOffset(), pageable.getPageSize());
+        return PageableExecutionUtils.getPage(rows,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort),
+                () -> count(filter));
+    }
+
+    /**
+     * Keyset-вариант {@link #searchUserCalls}: вместо OFFSET страница ищется по (ключ сортировки, id)
+     * относительно курсора, поэтому стоимость любой страницы одинакова. Пустой курсор — первая страница.
+     */
+    public CallWindow searchUserCallsByCursor(
+            User user,
+            String name, String myNumbers, String phone, String callType,
+            String startDate, String endDate,
+            String sortBy, String sortDir,
+            BigDecimal minCost, BigDecimal maxCost,
+            String cursor, int size
+    ) {
+        Sort.Order order = CallSpecifications.buildSort(sortBy, sortDir).iterator().next();
+        String field = order.getProperty();
+        CallCursor position = CallCursor.decode(cursor, field);
+        boolean backward = position != null && position.isBackward();
+        // При движении назад идем в обратном порядке, а затем разворачиваем результат
+        boolean ascending = order.isAscending() != backward;
+
+        CallFilter filter = filter(user, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost);
+        Sort seekSort = Sort.by(ascending ? Sort.Direction.ASC : Sort.Direction.DESC, field, "id");
+        List<CallRow> rows = new ArrayList<>(findRows(filter, position, seekSort, 0, size + 1));
+        boolean more = rows.size() > size;
+        if (more) rows = new ArrayList<>(rows.subList(0, size));
+        if (backward) Collections.reverse(rows);
+
+        boolean hasNext = backward || more;
+        boolean hasPrevious = backward ? more : position != null;
+        String nextCursor = hasNext && !rows.isEmpty() ? CallCursor.after(rows.get(rows.size() - 1), field).encode() : null;
+        String prevCursor = hasPrevious && !rows.isEmpty() ? CallCursor.before(rows.get(0), field).encode() : null;
+
+        return new CallWindow(rows, size, nextCursor, prevCursor);
+    }
+
+    /**
+     * Вариант {@link #searchUserCalls} без COUNT: читает pageSize + 1 строк и по лишней строке определяет hasNext.
+     */
+    public Slice<CallRow> searchUserCallsSlice(
+            User user,
+            String name, String myNumbers, String phone, String callType,
+            String startDate, String endDate,
+            String sortBy, String sortDir,
+            BigDecimal minCost, BigDecimal maxCost,
+            Pageable pageable
+    ) {
+        CallFilter filter = filter(user, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost);
+        Sort sort = CallSpecifications.buildSort(sortBy, sortDir);
+        List<CallRow> rows = new ArrayList<>(findRows(filter, null, sort, pageable.getOffset(), pageable.getPageSize() + 1));
+
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        if (hasNext) rows = new ArrayList<>(rows.subList(0, pageable.getPageSize()));
+        return new SliceImpl<>(rows, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort), hasNext);
+    }
+
+    /**
+     * Выгрузка всех звонков под фильтрами {@link #searchUserCalls} без пагинации: строки читаются курсором
+     * порциями по {@code fetchSize} и по одной передаются в {@code sink}, список в памяти не строится.
+     * Транзакция держит курсор, соединение и снимок открытыми до конца выгрузки, поэтому ее длительность
+     * ограничена {@code app.calls.export.max-seconds}: таймаут транзакции ограничивает запросы, а проверка
+     * между строками прерывает выгрузку медленному клиенту.
+     */
+    @Transactional(readOnly = true, timeoutString = "${app.calls.export.max-seconds:900}")
+    public void exportUserCalls(
+            User user,
+            String name, String myNumbers, String phone, String callType,
+            String startDate, String endDate,
+            String sortBy, String sortDir,
+            BigDecimal minCost, BigDecimal maxCost,
+            int fetchSize, Consumer<CallRow> sink
+    ) {
+        CallFilter filter = filter(user, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost);
+        Sort sort = CallSpecifications.buildSort(sortBy, sortDir);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(exportMaxSeconds);
+        try (Stream<CallRow> rows = filter.isUserScoped()
+                ? callRepository.streamPartyRows(filter.toPartySpecification(), sort, fetchSize)
+                : callRepository.streamRows(filter.toCallSpecification(), sort, fetchSize)) {
+            rows.forEach(row -> {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IllegalStateException("Export exceeded " + exportMaxSeconds + " seconds and was aborted");
+                }
+                sink.accept(row);
+            });
+        }
+    }
+
+    /**
+     * Приблизительное число звонков под фильтрами. Без фильтров для админа берется оценка планировщика
+     * из pg_class, иначе — точный COUNT, закешированный на короткое время по набору фильтров.
+     */
+    public long estimateUserCallCount(
+            User user,
+            String name, String myNumbers, String phone, String callType,
+            String startDate, String endDate,
+            BigDecimal minCost, BigDecimal maxCost
+    ) {
+        CallFilter filter = filter(user, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost);
+        if (!filter.isUserScoped() && filter.hasNoFilters()) {
+            long estimate = callRepository.estimateRowCount();
+            if (estimate >= 0) return estimate;
+        }
+        return callCountCache.get(filter.cacheKey(), () -> count(filter));
+    }
+
+    // История пользователя читается из call_party, общий список для админа — из calls
+    private List<CallRow> findRows(CallFilter filter, CallCursor position, Sort sort, long offset, int limit) {
+        boolean ascending = sort.iterator().next().isAscending();
+        if (filter.isUserScoped()) {
+            Specification<CallParty> spec = filter.toPartySpecification();
+            if (position != null) spec = spec.and(CallSpecifications.seek(position.getField(), ascending, position.getValue(), position.getId()));
+            return callRepository.findPartyRows(spec, sort, offset, limit);
+        }
+        Specification<Call> spec = filter.toCallSpecification();
+        if (position != null) spec = spec.and(CallSpecifications.seek(position.getField(), ascending, position.getValue(), position.getId()));
+        return callRepository.findRows(spec, sort, offset, limit);
+    }
+
+    private long count(CallFilter filter) {
+        return filter.isUserScoped()
+                ? callPartyRepository.count(filter.toPartySpecification())
+                : callRepository.count(filter.toCallSpecification());
+    }
+
+    private static CallFilter filter(User user, String name, String myNumbers, String phone, String callType,
+                                     String startDate, String endDate, BigDecimal minCost, BigDecimal maxCost) {
+        return CallFilter.builder()
+                .user(user)
+                .name(name)
+                .myNumbers(myNumbers)
+                .phone(phone)
+                .callType(callType)
+                .startDate(startDate)
+                .endDate(endDate)
+                .minCost(minCost)
+                .maxCost(maxCost)
+                .build();
     }
 }
@@ -0,0 +1,136 @@
+package com.example.call_track.service;
+
+import com.example.call_track.entity.call.CallType;
+import com.example.call_track.repository.CallStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Rebuilds user_daily_call_sketches from calls for the days recorded in call_sketch_backfill, which
+ * migration V14 fills for a database that had calls before the sketches existed. Every day is replaced
+ * as a whole, in its own transaction together with the progress row, so an interrupted or cancelled run
+ * resumes at the first day not done, and rebuilding a day twice is harmless.
+ * Also builds the global sketches of closed days ({@link #buildGlobalSketches}), so that system-wide
+ * statistics merge one row per day instead of every user's row.
+ */
+@Service
+@RequiredArgsConstructor
+public class CallSketchBackfillService {
+    private static final Logger logger = LoggerFactory.getLogger(CallSketchBackfillService.class);
+
+    private static final String SELECT_DAY =
+            "SELECT caller.user_id AS caller_user_id, callee.user_id AS callee_user_id, " +
+                    "c.duration_seconds, c.total_cost FROM calls c " +
+                    "JOIN phone_numbers caller ON caller.id = c.caller_phone_id " +
+                    "JOIN phone_numbers callee ON callee.id = c.callee_phone_id " +
+                    "WHERE c.start_time >= ? AND c.start_time < ?";
+    // Попытки перестроить день, если параллельная вставка звонка успела создать одну из его строк
+    private static final int DAY_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CallStatsRepository callStatsRepository;
+
+    @Value("${app.calls.sketch-backfill.fetch-size:10000}")
+    private int fetchSize;
+
+    public boolean isPending() {
+        Boolean pending = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM call_sketch_backfill WHERE finished_at IS NULL)", Boolean.class);
+        return Boolean.TRUE.equals(pending);
+    }
+
+    /**
+     * Rebuilds the remaining days and returns how many were rebuilt by this run; 0 if nothing is pending.
+     */
+    public long backfill(JobContext context) {
+        List<LocalDate[]> ranges = jdbcTemplate.query(
+                "SELECT next_day, until_day FROM call_sketch_backfill WHERE finished_at IS NULL",
+                (rs, rowNum) -> new LocalDate[] { rs.getDate("next_day").toLocalDate(), rs.getDate("until_day").toLocalDate() });
+        if (ranges.isEmpty()) return 0;
+        LocalDate from = ranges.get(0)[0];
+        LocalDate until = ranges.get(0)[1];
+        context.setTotal(Math.max(0, ChronoUnit.DAYS.between(from, until)));
+        long started = System.currentTimeMillis();
+
+        long days = 0;
+        for (LocalDate day = from; day.isBefore(until); day = day.plusDays(1)) {
+            context.checkCancelled();
+            context.setMessage("Rebuilding sketches of " + day);
+            rebuildWithRetry(day);
+            context.advance(1);
+            days++;
+        }
+        jdbcTemplate.update("UPDATE call_sketch_backfill SET finished_at = now() WHERE id = 1");
+        logger.info("Call sketch backfill of {} days finished in {} ms", days, System.currentTimeMillis() - started);
+        return days;
+    }
+
+    /**
+     * Builds the global sketch of every day before today that has none yet, each in its own transaction,
+     * and returns how many were built.
+     */
+    public long buildGlobalSketches(JobContext context) {
+        List<LocalDate> days = callStatsRepository.findDaysWithoutGlobalSketch(LocalDate.now());
+        context.setTotal(days.size());
+        long started = System.currentTimeMillis();
+        for (LocalDate day : days) {
+            context.checkCancelled();
+            context.setMessage("Building the global sketch of " + day);
+            transactionTemplate.executeWithoutResult(status -> callStatsRepository.buildGlobalSketch(day));
+            context.advance(1);
+        }
+        logger.info("Global call sketches of {} days built in {} ms", days.size(), System.currentTimeMillis() - started);
+        return days.size();
+    }
+
+    private void rebuildWithRetry(LocalDate day) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebuild(day));
+                return;
+            } catch (DuplicateKeyException e) {
+                // Строка появилась после DELETE: при повторе она будет удалена, а ее звонок прочитан
+                if (attempt >= DAY_ATTEMPTS) throw e;
+                logger.debug("Sketches of {} changed during the rebuild, retrying", day);
+            }
+        }
+    }
+
+    // Память — sketch-и одного дня. Сначала удаление: строки дня, занятые пишущими транзакциями, дожидаются
+    // их фиксации, и чтение звонков после него видит все, что в эти строки уже попало
+    private void rebuild(LocalDate day) {
+        CallStatsRepository.Increments increments = new CallStatsRepository.Increments();
+        callStatsRepository.deleteSketches(day);
+
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(fetchSize);
+        streaming.query(SELECT_DAY, rs -> {
+            UUID caller = rs.getObject("caller_user_id", UUID.class);
+            UUID callee = rs.getObject("callee_user_id", UUID.class);
+            long duration = rs.getLong("duration_seconds");
+            BigDecimal cost = rs.getBigDecimal("total_cost");
+            increments.add(caller, callee, day, CallType.OUTGOING, duration, cost);
+            increments.add(callee, caller, day, CallType.INCOMING, duration, cost);
+        }, Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+
+        callStatsRepository.insertSketches(increments);
+        // GREATEST — на случай, если задачу запустили и на другом узле
+        jdbcTemplate.update("UPDATE call_sketch_backfill SET next_day = GREATEST(next_day, ?) WHERE id = 1",
+                Date.valueOf(day.plusDays(1)));
+    }
+}
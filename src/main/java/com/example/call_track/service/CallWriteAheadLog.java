@@ -0,0 +1,352 @@
+package com.example.call_track.service;
+
+import com.example.call_track.entity.call.CallType;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only log of accepted call events.
+ * Records are appended to segment files and made durable by {@link #force()}, which the ingestion
+ * flusher calls for all pending appends at once (group commit). The checkpoint file holds the last
+ * sequence written to the database; on startup every record after it is replayed.
+ *
+ * <p>Record layout: {@code int length, int crc32, payload}. A record with a bad checksum or cut
+ * short at the end of the last segment is a torn write from a crash and is truncated away.
+ */
+@Component
+public class CallWriteAheadLog {
+    private static final Logger logger = LoggerFactory.getLogger(CallWriteAheadLog.class);
+    private static final String SEGMENT_PREFIX = "calls-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    @Value("${app.calls.ingest.wal-dir:data/wal}")
+    private String walDir;
+
+    @Value("${app.calls.ingest.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    private final Object appendLock = new Object();
+    private final Object durableLock = new Object();
+
+    private Path dir;
+    private FileChannel channel;
+    private long segmentSize;
+    private long nextSeq;
+    private long writtenSeq;
+    private volatile long durableSeq;
+    private volatile long checkpointSeq;
+    private long recoveredSeq;
+    // Неустранимая ошибка записи: добавлять больше нельзя
+    private IOException failure;
+
+    /**
+     * Opens the log, repairs a torn tail and returns the last sequence that still has to be replayed.
+     */
+    public long open() throws IOException {
+        dir = Paths.get(walDir).toAbsolutePath();
+        Files.createDirectories(dir);
+        checkpointSeq = readCheckpoint();
+
+        long lastSeq = checkpointSeq;
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            lastSeq = Math.max(lastSeq, scan(segments.get(i), i == segments.size() - 1));
+        }
+
+        recoveredSeq = lastSeq;
+        nextSeq = lastSeq + 1;
+        writtenSeq = lastSeq;
+        durableSeq = lastSeq;
+        channel = openSegment(nextSeq);
+        logger.info("Call WAL opened at {}: checkpoint {}, {} records to replay",
+                dir, checkpointSeq, recoveredSeq - checkpointSeq);
+        return recoveredSeq;
+    }
+
+    /**
+     * @throws UncheckedIOException if the record could not be written; a partly written record is cut off,
+     *                              and if that fails too every later append fails
+     */
+    public Entry append(Entry entry) {
+        synchronized (appendLock) {
+            if (failure != null) throw new UncheckedIOException("Call WAL is unusable after a failed append", failure);
+            Entry sequenced = entry.toBuilder().seq(nextSeq).build();
+            try {
+                if (segmentSize >= segmentBytes) roll();
+                long position = channel.position();
+                ByteBuffer record = encode(sequenced);
+                try {
+                    writeRecord(channel, record);
+                } catch (IOException e) {
+                    discardPartialRecord(position, e);
+                    throw e;
+                }
+                segmentSize = position + record.limit();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to call WAL", e);
+            }
+            nextSeq++;
+            writtenSeq = sequenced.getSeq();
+            return sequenced;
+        }
+    }
+
+    // Один fsync на все записи, добавленные с прошлого вызова
+    public void force() throws IOException {
+        long target;
+        FileChannel current;
+        synchronized (appendLock) {
+            target = writtenSeq;
+            current = channel;
+        }
+        if (target <= durableSeq) return;
+
+        try {
+            current.force(false);
+        } catch (ClosedChannelException e) {
+            // Сегмент закрыт при ротации, а roll() уже выполнил force
+        }
+        synchronized (durableLock) {
+            durableSeq = Math.max(durableSeq, target);
+            durableLock.notifyAll();
+        }
+    }
+
+    public boolean awaitDurable(long seq, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (durableLock) {
+            while (durableSeq < seq) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                durableLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records that everything up to {@code seq} is in the database and deletes segments
+     * that contain only checkpointed records.
+     */
+    public void checkpoint(long seq) throws IOException {
+        if (seq <= checkpointSeq) return;
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(Long.toString(seq).getBytes(StandardCharsets.UTF_8)));
+            out.force(true);
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        checkpointSeq = seq;
+
+        List<Path> segments = segments();
+        // Сегмент можно удалить, если следующий начинается не позже seq + 1; текущий не трогаем
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSeq(segments.get(i + 1)) - 1 <= seq) Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    /**
+     * Passes every record after the checkpoint and up to the sequence found by {@link #open()} to the consumer.
+     */
+    public void replay(Consumer<Entry> consumer) throws IOException {
+        long from = checkpointSeq;
+        for (Path segment : segments()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+                Entry entry;
+                while ((entry = read(in)) != null && entry.getSeq() <= recoveredSeq) {
+                    if (entry.getSeq() > from) consumer.accept(entry);
+                }
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (channel != null && channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    public long getCheckpointSeq() {
+        return checkpointSeq;
+    }
+
+    // Отдельный метод, чтобы тест мог подставить сбой посреди записи
+    void writeRecord(FileChannel channel, ByteBuffer record) throws IOException {
+        while (record.hasRemaining()) channel.write(record);
+    }
+
+    // Недописанная запись посреди сегмента сделала бы следующие, уже подтвержденные, нечитаемыми при открытии
+    private void discardPartialRecord(long position, IOException cause) {
+        try {
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+            logger.error("Failed to cut off a partly written call WAL record, refusing further appends", e);
+        }
+    }
+
+    private void roll() throws IOException {
+        channel.force(false);
+        channel.close();
+        channel = openSegment(nextSeq);
+    }
+
+    private FileChannel openSegment(long firstSeq) throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        FileChannel segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segmentSize = segment.size();
+        segment.position(segmentSize);
+        return segment;
+    }
+
+    // Возвращает последний целый номер в сегменте; битый хвост последнего сегмента обрезается
+    private long scan(Path segment, boolean last) throws IOException {
+        long lastSeq = 0;
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+            Entry entry;
+            while ((entry = read(in)) != null) {
+                lastSeq = entry.getSeq();
+                // Кодирование детерминировано, поэтому размер записи равен размеру ее повторного кодирования
+                validBytes += encode(entry).remaining();
+            }
+        }
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            if (validBytes < file.size()) {
+                if (!last) throw new IOException("Corrupted call WAL segment " + segment);
+                logger.warn("Truncating torn tail of {} at {} bytes", segment, validBytes);
+                file.truncate(validBytes);
+                file.force(true);
+            }
+        }
+        return lastSeq;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) return 0;
+        return Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim());
+    }
+
+    private static ByteBuffer encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(entry.getSeq());
+        out.writeLong(entry.getId().getMostSignificantBits());
+        out.writeLong(entry.getId().getLeastSignificantBits());
+        out.writeUTF(entry.getCallDateTime().toString());
+        out.writeUTF(entry.getCallerPhone());
+        out.writeUTF(entry.getCalleePhone());
+        out.writeUTF(entry.getCallType().name());
+        out.writeLong(entry.getDurationSeconds());
+        // Пустая строка — цена не указана, звонок тарифицируется при записи в базу
+        out.writeUTF(entry.getPricePerMinute() != null ? entry.getPricePerMinute().toPlainString() : "");
+        byte[] payload = bytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        return record;
+    }
+
+    // null — конец сегмента или недописанная запись
+    private static Entry read(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > 1 << 20) return null;
+            byte[] payload = in.readNBytes(length);
+            if (payload.length < length) return null;
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) return null;
+
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+            return Entry.builder()
+                    .seq(data.readLong())
+                    .id(new UUID(data.readLong(), data.readLong()))
+                    .callDateTime(LocalDateTime.parse(data.readUTF()))
+                    .callerPhone(data.readUTF())
+                    .calleePhone(data.readUTF())
+                    .callType(CallType.valueOf(data.readUTF()))
+                    .durationSeconds(data.readLong())
+                    .pricePerMinute(price(data.readUTF()))
+                    .build();
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static BigDecimal price(String value) {
+        return value.isEmpty() ? null : new BigDecimal(value);
+    }
+
+    @Getter
+    @Builder(toBuilder = true)
+    public static class Entry {
+        private final long seq;
+        private final UUID id;
+        private final LocalDateTime callDateTime;
+        private final String callerPhone;
+        private final String calleePhone;
+        private final CallType callType;
+        private final long durationSeconds;
+        // null — по тарифу
+        private final BigDecimal pricePerMinute;
+    }
+}
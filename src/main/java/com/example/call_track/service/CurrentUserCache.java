@@ -0,0 +1,101 @@
+package com.example.call_track.service;
+
+import com.example.call_track.entity.user.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the authenticated user keyed by username.
+ * The user is memoized for the rest of the current request and kept in a short-lived,
+ * size-bounded map across requests, so API calls don't query users just to identify the caller.
+ * Cached instances are detached and shared between requests: treat them as read-only
+ * and call {@link #evict(String)} after changing the user; inside a transaction the entry
+ * is evicted again after commit.
+ */
+@Component
+public class CurrentUserCache {
+    private static final String REQUEST_ATTRIBUTE = CurrentUserCache.class.getName() + ".user";
+
+    @Value("${app.users.current-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${app.users.current-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public Optional<User> get(String username, Supplier<Optional<User>> loader) {
+        User memoized = fromRequest(username);
+        if (memoized != null) return Optional.of(memoized);
+
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(username);
+        if (entry != null && entry.expiresAt > now) {
+            toRequest(entry.user);
+            return Optional.of(entry.user);
+        }
+
+        Optional<User> loaded = loader.get();
+        loaded.ifPresent(user -> {
+            if (entries.size() >= maxEntries) {
+                entries.values().removeIf(e -> e.expiresAt <= now);
+                if (entries.size() >= maxEntries) entries.clear();
+            }
+            entries.put(username, new Entry(user, now + ttlSeconds * 1000));
+            toRequest(user);
+        });
+        return loaded;
+    }
+
+    public void evict(String username) {
+        if (username == null) return;
+        entries.remove(username);
+        // Запрос, прочитавший пользователя до коммита, мог вернуть в кэш старую версию
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(username);
+                }
+            });
+        }
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null && fromRequest(username) != null) {
+            attributes.removeAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private User fromRequest(String username) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) return null;
+        Object user = attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return user instanceof User u && username.equals(u.getUsername()) ? u : null;
+    }
+
+    private void toRequest(User user) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private static class Entry {
+        final User user;
+        final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
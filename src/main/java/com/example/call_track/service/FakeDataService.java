@@ -4,7 +4,6 @@ import com.example.call_track.dto.user.RegistrationDto;
 import com.example.call_track.entity.PhoneNumber;
 import com.example.call_track.entity.call.CallType;
 import com.example.call_track.entity.user.User;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import net.datafaker.Faker;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,10 +12,10 @@ import org.springframework.stereotype.Service;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.google.i18n.phonenumbers.Phonenumber;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
@@ -39,8 +38,10 @@ public class FakeDataService {
     private final Faker fakerEn = new Faker(new Locale("en"));
     private final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
 
-    public void generateFakeData() throws IOException {
+    public void generateFakeData(JobContext context) throws IOException {
         List<FakeUserData> fakeUsers = createFakeUserData();
+        context.setMessage("Registering users");
+        context.setTotal(fakeUsers.size());
 
         Path usersFile = Path.of(credentialsFilePath);
         // Create file with header if it doesn't exist
@@ -49,6 +50,7 @@ public class FakeDataService {
         }
 
         for (FakeUserData data : fakeUsers) {
+            context.checkCancelled();
             try {
                 User user = userService.registerUser(data.toRegistrationDto());
                 if (data.publicContactInfo != null) {
@@ -64,10 +66,11 @@ public class FakeDataService {
                 }
                 // Continue with other users even if one fails
             }
+            context.advance(1);
         }
 
         // Generate calls between users
-        generateFakeCalls(fakeUsers);
+        generateFakeCalls(fakeUsers, context);
     }
 
     private List<FakeUserData> createFakeUserData() {
@@ -152,32 +155,36 @@ public class FakeDataService {
         return "+375" + operator + String.format("%07d", subscriber);
     }
 
-    @Transactional
-    private void generateFakeCalls(List<FakeUserData> users) {
+    private void generateFakeCalls(List<FakeUserData> users, JobContext context) {
         Random random = new Random();
-        BigDecimal pricePerMinute = BigDecimal.valueOf(0.10); // 0.10 per minute
 
         // Get all active users to generate calls between them
         List<User> allUsers = userService.findAllActive();
 
-        for (int i = 0; i < allUsers.size(); i++) {
-            for (int j = 0; j < allUsers.size(); j++) {
-                if (i == j) continue;
-
-                User caller = allUsers.get(i);
-                User callee = allUsers.get(j);
-
-                // Get primary phones using service to avoid lazy loading issues
-                Optional<PhoneNumber> callerPhoneOpt = phoneNumberService.getPrimaryPhoneForUser(caller);
-                Optional<PhoneNumber> calleePhoneOpt = phoneNumberService.getPrimaryPhoneForUser(callee);
+        // Primary phones are looked up once per user, not once per pair;
+        // users without a primary phone (admin, users without phones) are skipped
+        List<User> callers = new ArrayList<>();
+        List<PhoneNumber> phones = new ArrayList<>();
+        for (User user : allUsers) {
+            Optional<PhoneNumber> phone = phoneNumberService.getPrimaryPhoneForUser(user);
+            if (phone.isEmpty()) continue;
+            callers.add(user);
+            phones.add(phone.get());
+        }
 
-                if (callerPhoneOpt.isEmpty() || calleePhoneOpt.isEmpty()) {
-                    // Silently skip users without primary phone - this is expected for admin or users without phones
-                    continue;
-                }
+        // Progress is counted in callers whose calls are done
+        context.setMessage("Generating calls");
+        context.setProgress(0);
+        context.setTotal(callers.size());
+        for (int i = 0; i < callers.size(); i++) {
+            context.checkCancelled();
+            for (int j = 0; j < callers.size(); j++) {
+                if (i == j) continue;
 
-                PhoneNumber callerPhone = callerPhoneOpt.get();
-                PhoneNumber calleePhone = calleePhoneOpt.get();
+                User caller = callers.get(i);
+                User callee = callers.get(j);
+                PhoneNumber callerPhone = phones.get(i);
+                PhoneNumber calleePhone = phones.get(j);
 
                 // Generate 1-2 calls per pair to reduce volume
                 int numCalls = 1 + random.nextInt(2);
@@ -187,13 +194,14 @@ public class FakeDataService {
                     long durationSeconds = 60 + random.nextInt(300); // 1-5 minutes
 
                     try {
-                        callService.createCall(callerPhone, calleePhone, callType, durationSeconds, pricePerMinute);
+                        callService.createCall(callerPhone, calleePhone, callType, durationSeconds);
                     } catch (Exception e) {
                         System.err.println("Failed to create call between " + caller.getUsername() + " and " + callee.getUsername() + ": " + e.getMessage());
                         e.printStackTrace();
                     }
                 }
             }
+            context.advance(1);
         }
     }
 
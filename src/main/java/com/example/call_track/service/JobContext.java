@@ -0,0 +1,87 @@
+package com.example.call_track.service;
+
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handle a running job uses to report progress and to notice cancellation. Cancellation is cooperative:
+ * long tasks call {@link #checkCancelled()} between units of work (a batch, a day, a month), so a cancelled
+ * job stops at a consistent point instead of being interrupted in the middle of a JDBC call.
+ *
+ * <p>Services that also run outside the job framework (scheduled tasks, startup) take {@link #detached()}.
+ */
+public class JobContext {
+    private final UUID jobId;
+    private final AtomicLong done = new AtomicLong();
+    private volatile long total = -1;
+    private volatile String message;
+    private volatile boolean cancelled;
+    // Меняется при каждом обновлении, чтобы неизменившийся прогресс не записывался в базу
+    private final AtomicLong version = new AtomicLong();
+
+    JobContext(UUID jobId) {
+        this.jobId = jobId;
+    }
+
+    public static JobContext detached() {
+        return new JobContext(null);
+    }
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+        version.incrementAndGet();
+    }
+
+    public void setProgress(long done) {
+        this.done.set(done);
+        version.incrementAndGet();
+    }
+
+    // Безопасно из нескольких потоков одной задачи
+    public void advance(long delta) {
+        done.addAndGet(delta);
+        version.incrementAndGet();
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+        version.incrementAndGet();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if cancellation was requested
+     */
+    public void checkCancelled() {
+        if (cancelled) throw new CancellationException("Job was cancelled");
+    }
+
+    long getDone() {
+        return done.get();
+    }
+
+    // null — объем работы неизвестен
+    Long getTotal() {
+        return total >= 0 ? total : null;
+    }
+
+    String getMessage() {
+        return message;
+    }
+
+    long getVersion() {
+        return version.get();
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.JobDto;
+import com.example.call_track.exception.CustomBusinessException;
+import com.example.call_track.repository.JobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs long admin tasks (fake and synthetic data, imports, exports, maintenance) in the background, so the
+ * request that starts one returns at once with a job id. Jobs run on a fixed pool of workers with a bounded
+ * queue; when the queue is full a new job is refused instead of piling up. Every job has a row in
+ * background_jobs: progress is kept in memory and written periodically, the final state and the task's
+ * report when it ends. Cancellation is cooperative, see {@link JobContext}.
+ */
+@Service
+@RequiredArgsConstructor
+public class JobService {
+    private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+
+    private enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED, INTERRUPTED }
+
+    /**
+     * Work of a job; the returned report, if any, is stored as JSON.
+     */
+    @FunctionalInterface
+    public interface Task {
+        Object run(JobContext context) throws Exception;
+    }
+
+    private final JobRepository jobRepository;
+    private final JsonMapper jsonMapper;
+
+    @Value("${app.jobs.workers:2}")
+    private int workerCount;
+
+    @Value("${app.jobs.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${app.jobs.retention-days:30}")
+    private int retentionDays;
+
+    private final Map<UUID, Run> runs = new ConcurrentHashMap<>();
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private ThreadPoolExecutor workers;
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threads = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "job-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Задачи останавливаются как INTERRUPTED; недождавшиеся отмечаются при следующем старте
+        stopping = true;
+        runs.values().forEach(run -> run.context.cancel());
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues a job. An {@code exclusive} job is refused while another job of the same type is queued or running.
+     *
+     * @throws CustomBusinessException if the queue is full or an exclusive job of this type is active
+     */
+    public JobDto submit(String type, String description, boolean exclusive, Task task) {
+        if (stopping) throw new CustomBusinessException("Application is shutting down");
+        JobDto job = JobDto.builder()
+                .id(UUID.randomUUID())
+                .type(type)
+                .status(Status.QUEUED.name())
+                .description(description)
+                .createdBy(currentUsername())
+                .createdAt(LocalDateTime.now())
+                .build();
+        Run run = new Run(job, task);
+
+        // Проверка и регистрация под одной блокировкой, чтобы две эксклюзивные задачи не прошли одновременно
+        synchronized (runs) {
+            if (exclusive) {
+                for (Run active : runs.values()) {
+                    if (active.job.getType().equals(type)) {
+                        throw new CustomBusinessException("A " + type + " job is already queued or running: " + active.job.getId());
+                    }
+                }
+            }
+            jobRepository.insert(job);
+            runs.put(job.getId(), run);
+            try {
+                workers.execute(run);
+            } catch (RejectedExecutionException e) {
+                runs.remove(job.getId());
+                job.setStatus(Status.FAILED.name());
+                job.setError("Job queue is full");
+                job.setFinishedAt(LocalDateTime.now());
+                job.setUpdatedAt(job.getFinishedAt());
+                jobRepository.save(job, null);
+                throw new CustomBusinessException("Too many background jobs, try again later");
+            }
+        }
+        logger.info("Job {} ({}) queued by {}", job.getId(), type, job.getCreatedBy());
+        return snapshot(run);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no such job
+     */
+    public JobDto get(UUID id) {
+        Run run = runs.get(id);
+        if (run != null) return snapshot(run);
+        return jobRepository.find(id).map(this::withParsedResult)
+                .orElseThrow(() -> new IllegalArgumentException("Job not found"));
+    }
+
+    public List<JobDto> findRecent(String type, String status, int limit) {
+        List<JobDto> jobs = jobRepository.findRecent(type, status, limit);
+        for (int i = 0; i < jobs.size(); i++) {
+            Run run = runs.get(jobs.get(i).getId());
+            jobs.set(i, run != null ? snapshot(run) : withParsedResult(jobs.get(i)));
+        }
+        return jobs;
+    }
+
+    /**
+     * Requests cancellation: a queued job is dropped at once, a running one stops at its next check.
+     *
+     * @throws IllegalArgumentException if there is no such job or it has already finished
+     */
+    public JobDto cancel(UUID id) {
+        Run run = runs.get(id);
+        if (run == null) {
+            JobDto job = get(id);
+            throw new IllegalArgumentException("Job is already " + job.getStatus().toLowerCase());
+        }
+        run.context.cancel();
+        if (workers.remove(run)) run.finish(Status.CANCELLED, null, null);
+        return snapshot(run);
+    }
+
+    /**
+     * Marks jobs of the previous process as INTERRUPTED: their tasks lived in memory and cannot be resumed.
+     */
+    public void recoverInterrupted() {
+        int interrupted = jobRepository.markInterrupted(startedAt);
+        if (interrupted > 0) logger.warn("{} background jobs were interrupted by the previous shutdown", interrupted);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jobs.progress-flush-ms:2000}")
+    public void flushProgress() {
+        for (Run run : runs.values()) {
+            if (run.started) run.flushProgress();
+        }
+    }
+
+    @Scheduled(cron = "${app.jobs.purge-cron:0 45 3 * * *}")
+    public void purge() {
+        int deleted = jobRepository.deleteFinishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) logger.info("Deleted {} background jobs older than {} days", deleted, retentionDays);
+    }
+
+    private JobDto snapshot(Run run) {
+        synchronized (run) {
+            JobDto job = run.job;
+            return JobDto.builder()
+                    .id(job.getId())
+                    .type(job.getType())
+                    .status(job.getStatus())
+                    .description(job.getDescription())
+                    .createdBy(job.getCreatedBy())
+                    .progressDone(run.context.getDone())
+                    .progressTotal(run.context.getTotal())
+                    .message(run.context.getMessage())
+                    .result(job.getResult())
+                    .error(job.getError())
+                    .cancelRequested(run.context.isCancelled())
+                    .createdAt(job.getCreatedAt())
+                    .startedAt(job.getStartedAt())
+                    .updatedAt(job.getUpdatedAt())
+                    .finishedAt(job.getFinishedAt())
+                    .build();
+        }
+    }
+
+    private JobDto withParsedResult(JobDto job) {
+        if (job.getResult() instanceof String json) {
+            try {
+                job.setResult(jsonMapper.readTree(json));
+            } catch (JacksonException e) {
+                // Оставляем как текст
+            }
+        }
+        return job;
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+
+    private class Run implements Runnable {
+        final JobDto job;
+        final Task task;
+        final JobContext context;
+        volatile boolean started;
+        long flushedVersion = -1;
+
+        Run(JobDto job, Task task) {
+            this.job = job;
+            this.task = task;
+            this.context = new JobContext(job.getId());
+        }
+
+        @Override
+        public void run() {
+            if (context.isCancelled()) {
+                finish(stopping ? Status.INTERRUPTED : Status.CANCELLED, null, null);
+                return;
+            }
+            synchronized (this) {
+                job.setStatus(Status.RUNNING.name());
+                job.setStartedAt(LocalDateTime.now());
+                job.setUpdatedAt(job.getStartedAt());
+            }
+            jobRepository.save(job, null);
+            started = true;
+            logger.info("Job {} ({}) started", job.getId(), job.getType());
+
+            try {
+                Object result = task.run(context);
+                finish(Status.COMPLETED, result, null);
+            } catch (CancellationException e) {
+                finish(stopping ? Status.INTERRUPTED : Status.CANCELLED, null, null);
+            } catch (Exception e) {
+                logger.error("Job {} ({}) failed", job.getId(), job.getType(), e);
+                finish(Status.FAILED, null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        }
+
+        synchronized void flushProgress() {
+            long version = context.getVersion();
+            if (version == flushedVersion || isFinished()) return;
+            jobRepository.updateProgress(job.getId(), context.getDone(), context.getTotal(), context.getMessage());
+            flushedVersion = version;
+        }
+
+        void finish(Status status, Object result, String error) {
+            String json = null;
+            if (result != null) {
+                try {
+                    json = jsonMapper.writeValueAsString(result);
+                } catch (JacksonException e) {
+                    logger.warn("Failed to serialize the report of job {}: {}", job.getId(), e.getMessage());
+                }
+            }
+            try {
+                synchronized (this) {
+                    job.setStatus(status.name());
+                    job.setResult(result);
+                    job.setError(error);
+                    job.setProgressDone(context.getDone());
+                    job.setProgressTotal(context.getTotal());
+                    job.setMessage(context.getMessage());
+                    job.setFinishedAt(LocalDateTime.now());
+                    job.setUpdatedAt(job.getFinishedAt());
+                    jobRepository.save(job, json);
+                }
+                logger.info("Job {} ({}) finished as {}", job.getId(), job.getType(), status);
+            } finally {
+                runs.remove(job.getId());
+            }
+        }
+
+        private boolean isFinished() {
+            return !Status.RUNNING.name().equals(job.getStatus());
+        }
+    }
+}
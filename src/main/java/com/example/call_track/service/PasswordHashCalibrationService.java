@@ -0,0 +1,180 @@
+package com.example.call_track.service;
+
+import com.example.call_track.config.Argon2Encoder;
+import com.example.call_track.config.BoundedPasswordEncoder;
+import com.example.call_track.dto.PasswordHashSettingsDto;
+import com.example.call_track.repository.PasswordHashSettingsRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Chooses the Argon2 cost from measurements instead of hand-picked properties: memory and iterations are
+ * set so that verifying one password takes about the target time on the hardware we run on. As RFC 9106
+ * recommends, memory is preferred to passes: one pass at the maximum memory is measured first, memory is
+ * halved (down to the minimum) while even that is too slow, then passes are added up to the target.
+ *
+ * <p>The result is stored in password_hash_settings and used by every node, so the cost is the same across
+ * the cluster; nodes pick up a recalibration within the refresh interval. Until a result exists the
+ * parameters from application.properties apply.
+ */
+@Service
+@RequiredArgsConstructor
+public class PasswordHashCalibrationService {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashCalibrationService.class);
+
+    private static final String PROBE_PASSWORD = "Calibration#Probe1";
+    // Последний шаг может превысить цель на 10%: время прохода меряется с шумом
+    private static final double TOLERANCE = 1.1;
+
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final PasswordHashSettingsRepository settingsRepository;
+
+    @Value("${password.encoder.argon2.calibration.target-ms:50}")
+    private int defaultTargetMillis;
+
+    // 19 МиБ — нижняя граница OWASP для Argon2id
+    @Value("${password.encoder.argon2.calibration.min-memory:19456}")
+    private int minMemory;
+
+    @Value("${password.encoder.argon2.calibration.max-memory:65536}")
+    private int maxMemory;
+
+    @Value("${password.encoder.argon2.calibration.max-iterations:10}")
+    private int maxIterations;
+
+    @Value("${password.encoder.argon2.calibration.samples:5}")
+    private int samples;
+
+    public int getDefaultTargetMillis() {
+        return defaultTargetMillis;
+    }
+
+    public Optional<PasswordHashSettingsDto> findStored() {
+        return settingsRepository.find();
+    }
+
+    /**
+     * Measures candidate parameters on this node and returns the chosen ones without applying them.
+     * Takes a few seconds: every candidate is hashed once and verified {@code samples} times.
+     *
+     * @throws IllegalArgumentException if the target is out of range
+     */
+    public PasswordHashSettingsDto calibrate(int targetMillis) {
+        if (targetMillis < 1 || targetMillis > 10_000) {
+            throw new IllegalArgumentException("Target verify time must be between 1 and 10000 ms");
+        }
+        Argon2Encoder current = currentEncoder();
+        int parallelism = current.getParallelism();
+
+        int memory = Math.max(maxMemory, 8 * parallelism);
+        double onePass = measure(current.withCost(memory, 1, parallelism));
+        while (onePass > targetMillis && memory / 2 >= Math.max(minMemory, 8 * parallelism)) {
+            memory /= 2;
+            onePass = measure(current.withCost(memory, 1, parallelism));
+        }
+
+        // Время растет с числом проходов почти линейно; оценка уточняется замером
+        int iterations = (int) Math.max(1, Math.min(maxIterations, Math.floor(targetMillis / onePass)));
+        double measured = iterations == 1 ? onePass : measure(current.withCost(memory, iterations, parallelism));
+        while (measured > targetMillis * TOLERANCE && iterations > 1) {
+            iterations--;
+            measured = measure(current.withCost(memory, iterations, parallelism));
+        }
+
+        logger.info("Argon2 calibration for {} ms: m={} KiB, t={}, p={} verify in {} ms",
+                targetMillis, memory, iterations, parallelism, String.format("%.1f", measured));
+        return PasswordHashSettingsDto.builder()
+                .memoryKib(memory)
+                .iterations(iterations)
+                .parallelism(parallelism)
+                .targetMillis(targetMillis)
+                .measuredMillis(measured)
+                .calibratedOn(hostName())
+                .calibratedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Calibrates, stores the result for all nodes and applies it on this one.
+     */
+    public PasswordHashSettingsDto calibrateAndApply(int targetMillis) {
+        PasswordHashSettingsDto settings = calibrate(targetMillis);
+        settingsRepository.save(settings);
+        apply(settings);
+        return settings;
+    }
+
+    /**
+     * Applies the stored parameters; without them, calibrates first when {@code calibrateIfMissing}
+     * (the first node to store a result wins, the others apply it).
+     */
+    public void initialize(boolean calibrateIfMissing) {
+        Optional<PasswordHashSettingsDto> stored = settingsRepository.find();
+        if (stored.isEmpty() && calibrateIfMissing) {
+            settingsRepository.insertIfAbsent(calibrate(defaultTargetMillis));
+            stored = settingsRepository.find();
+        }
+        stored.ifPresent(this::apply);
+    }
+
+    // Перекалибровка на другом узле доходит сюда
+    @Scheduled(fixedDelayString = "${password.encoder.argon2.calibration.refresh-ms:60000}",
+            initialDelayString = "${password.encoder.argon2.calibration.refresh-ms:60000}")
+    public void refresh() {
+        try {
+            settingsRepository.find().ifPresent(this::apply);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to refresh Argon2 parameters: {}", e.getMessage());
+        }
+    }
+
+    private void apply(PasswordHashSettingsDto settings) {
+        Argon2Encoder current = currentEncoder();
+        if (current.getMemory() == settings.getMemoryKib() && current.getIterations() == settings.getIterations()
+                && current.getParallelism() == settings.getParallelism()) return;
+        Argon2Encoder encoder = current.withCost(settings.getMemoryKib(), settings.getIterations(), settings.getParallelism());
+        passwordEncoder.setDelegate(encoder);
+        logger.info("Password encoder switched to {} (calibrated on {} at {})",
+                encoder, settings.getCalibratedOn(), settings.getCalibratedAt());
+    }
+
+    private Argon2Encoder currentEncoder() {
+        PasswordEncoder delegate = passwordEncoder.getDelegate();
+        if (!(delegate instanceof Argon2Encoder argon2)) {
+            throw new IllegalStateException("Password encoder is not Argon2: " + delegate);
+        }
+        return argon2;
+    }
+
+    // Медиана времени проверки в миллисекундах; хэширование перед замером служит прогревом
+    private double measure(Argon2Encoder encoder) {
+        String hash = encoder.encode(PROBE_PASSWORD);
+        long[] nanos = new long[Math.max(1, samples)];
+        for (int i = 0; i < nanos.length; i++) {
+            long started = System.nanoTime();
+            encoder.matches(PROBE_PASSWORD, hash);
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        return nanos[nanos.length / 2] / 1_000_000.0;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -89,6 +90,9 @@ public class PhoneNumberService {
     }
 
     public Optional<PhoneNumber> findByPhone(String phone) { return phoneNumberRepository.findByPhone(phone); }
+    public List<PhoneNumber> findByPhonesWithUser(Collection<String> phones) {
+        return phones.isEmpty() ? List.of() : phoneNumberRepository.findByPhoneInWithUser(phones);
+    }
 
     public boolean existsByPhone(String phone) { return phoneNumberRepository.existsByPhone(phone); }
 }
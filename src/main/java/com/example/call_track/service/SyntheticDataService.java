@@ -0,0 +1,389 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.SyntheticDataReport;
+import com.example.call_track.entity.call.CallType;
+import com.example.call_track.repository.CallBatchRepository;
+import com.example.call_track.repository.CallBatchRepository.NewCall;
+import com.example.call_track.repository.CallBatchRepository.PhoneRef;
+import com.example.call_track.repository.CallStatsRepository;
+import com.example.call_track.utils.SearchKeys;
+import com.example.call_track.utils.TariffTable;
+import lombok.RequiredArgsConstructor;
+import net.datafaker.Faker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deterministic generator of a production-sized dataset (e.g. 100k users, 100M calls) for load tests
+ * and for reproducing query plans locally. The same seed and parameters always give the same rows and ids.
+ *
+ * <p>Who calls is power-law distributed: a few users make most calls, and most calls go to the caller's
+ * small circle of contacts. Calls follow an hourly profile with morning and evening peaks and fewer calls
+ * at weekends; durations are log-normal and rated by the current tariffs. Users are written first with one
+ * precomputed password hash and no avatar; days are then generated in parallel, each from its own seeded
+ * random source, and written through batched JDBC together with call_party and the daily totals.
+ */
+@Service
+@RequiredArgsConstructor
+public class SyntheticDataService {
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataService.class);
+
+    private static final String USERNAME_PREFIX = "load_";
+    private static final String INSERT_USER =
+            "INSERT INTO users (id, username, password, last_name, first_name, middle_name, role, created_at, " +
+                    "force_password_change, account_non_expired, account_non_locked, credentials_non_expired, " +
+                    "enabled, deleted, search_key) VALUES (?, ?, ?, ?, ?, ?, 'USER', ?, false, true, true, true, true, false, ?)";
+    private static final String INSERT_PHONE =
+            "INSERT INTO phone_numbers (id, user_id, phone, is_primary, created_at, search_key) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Виды сгенерированных id, чтобы id пользователей, номеров и звонков не пересекались
+    private static final long USER_IDS = 1, PHONE_IDS = 2, CALL_IDS = 3, CONTACTS_SEED = 4, DAYS_SEED = 5;
+
+    private static final int CONTACTS = 20;
+    private static final double CONTACT_SHARE = 0.75;
+    private static final double SECOND_PHONE_SHARE = 0.2;
+    private static final double UNANSWERED_SHARE = 0.08;
+    private static final double MEDIAN_DURATION_SECONDS = 60;
+    private static final long MAX_DURATION_SECONDS = 4 * 3600;
+    // Относительная доля звонков по часам суток
+    private static final double[] HOURLY = {
+            0.20, 0.10, 0.05, 0.05, 0.05, 0.10, 0.30, 0.80, 1.50, 2.20, 2.60, 2.60,
+            2.30, 2.20, 2.40, 2.40, 2.50, 2.70, 2.60, 2.20, 1.80, 1.40, 0.90, 0.50 };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CallBatchRepository callBatchRepository;
+    private final CallStatsRepository callStatsRepository;
+    private final CallPartitionService callPartitionService;
+    private final CallGraphService callGraphService;
+    private final TariffService tariffService;
+    private final PasswordEncoder passwordEncoder;
+
+    // Каждый поток держит соединение во время записи пакета — не больше размера пула соединений
+    @Value("${app.synthetic.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.synthetic.batch-size:10000}")
+    private int batchSize;
+
+    // Итоги дня копятся в памяти и записываются, когда пар (пользователь, день) становится столько
+    @Value("${app.synthetic.stats-flush-rows:20000}")
+    private int statsFlushRows;
+
+    @Value("${app.synthetic.password:LoadTest1!}")
+    private String password;
+
+    /**
+     * @throws IllegalArgumentException if the parameters are out of range
+     */
+    public void checkParameters(int userCount, long callCount, int days) {
+        if (userCount < 2 || userCount > 1_000_000) throw new IllegalArgumentException("Users must be between 2 and 1000000");
+        if (callCount < 0) throw new IllegalArgumentException("Calls must not be negative");
+        if (days < 1 || days > 3660) throw new IllegalArgumentException("Days must be between 1 and 3660");
+    }
+
+    /**
+     * Generates {@code userCount} users and {@code callCount} calls over the {@code days} days ending with {@code lastDay}.
+     * Progress is counted in calls; a cancelled run stops after its current batches and keeps what is written.
+     *
+     * @throws IllegalArgumentException if the parameters are out of range or synthetic users already exist
+     */
+    public SyntheticDataReport generate(int userCount, long callCount, int days, LocalDate lastDay, long seed,
+                                        JobContext context) {
+        checkParameters(userCount, callCount, days);
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE username = ?", Integer.class, username(0));
+        if (existing != null && existing > 0) {
+            throw new IllegalArgumentException("Synthetic users already exist, remove them before generating again");
+        }
+
+        long started = System.currentTimeMillis();
+        LocalDate firstDay = lastDay.minusDays(days - 1L);
+        context.setMessage("Writing users");
+        context.setTotal(userCount);
+        Population population = insertUsers(userCount, seed, context);
+        logger.info("Synthetic data: {} users with {} phones written in {} ms",
+                userCount, population.phoneCount, System.currentTimeMillis() - started);
+
+        callPartitionService.ensurePartitions(YearMonth.from(firstDay), YearMonth.from(lastDay));
+        context.setMessage("Writing calls");
+        context.setProgress(0);
+        context.setTotal(callCount);
+        long calls = insertCalls(population, callCount, firstDay, days, seed, context);
+        long elapsed = System.currentTimeMillis() - started;
+        logger.info("Synthetic data: {} calls over {} days written in {} ms", calls, days, elapsed);
+
+        callGraphService.reload();
+        return SyntheticDataReport.builder()
+                .seed(seed)
+                .users(userCount)
+                .phones(population.phoneCount)
+                .calls(calls)
+                .fromDay(firstDay)
+                .toDay(lastDay)
+                .password(password)
+                .elapsedMillis(elapsed)
+                .build();
+    }
+
+    private Population insertUsers(int userCount, long seed, JobContext context) {
+        // Argon2 — сотни миллисекунд на хэш, поэтому один хэш на всех пользователей
+        String hash = passwordEncoder.encode(password);
+        Faker faker = new Faker(new Locale("ru"), new Random(seed));
+        SplittableRandom random = new SplittableRandom(seed);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Population population = new Population(userCount, seed);
+
+        List<Object[]> users = new ArrayList<>(batchSize);
+        List<Object[]> phones = new ArrayList<>(batchSize);
+        for (int i = 0; i < userCount; i++) {
+            UUID userId = uuid(seed, USER_IDS, i);
+            String firstName = faker.name().firstName();
+            String lastName = faker.name().lastName();
+            String middleName = faker.name().lastName();
+            users.add(new Object[] { userId, username(i), hash, lastName, firstName, middleName, now,
+                    SearchKeys.name(lastName, firstName, middleName) });
+
+            int phoneCount = random.nextDouble() < SECOND_PHONE_SHARE ? 2 : 1;
+            population.phones[i] = new PhoneRef[phoneCount];
+            for (int j = 0; j < phoneCount; j++) {
+                int index = population.phoneCount++;
+                // Минские городские номера: генератор тестовых пользователей выдает только мобильные
+                String phone = "+37517" + (1_000_000 + index);
+                UUID phoneId = uuid(seed, PHONE_IDS, index);
+                phones.add(new Object[] { phoneId, userId, phone, j == 0, now, SearchKeys.phone(phone) });
+                population.phones[i][j] = new PhoneRef(phoneId, userId, phone);
+            }
+
+            if (users.size() >= batchSize || i == userCount - 1) {
+                context.checkCancelled();
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(INSERT_USER, users);
+                    jdbcTemplate.batchUpdate(INSERT_PHONE, phones);
+                });
+                users.clear();
+                phones.clear();
+                context.setProgress(i + 1L);
+            }
+        }
+        return population;
+    }
+
+    private long insertCalls(Population population, long callCount, LocalDate firstDay, int days, long seed,
+                             JobContext context) {
+        // Будни нагружены сильнее выходных; число звонков дня — разность округленных нарастающих итогов
+        double[] cumulative = new double[days + 1];
+        for (int d = 0; d < days; d++) {
+            DayOfWeek dayOfWeek = firstDay.plusDays(d).getDayOfWeek();
+            double weight = dayOfWeek == DayOfWeek.SATURDAY ? 0.7 : dayOfWeek == DayOfWeek.SUNDAY ? 0.6 : 1.0;
+            cumulative[d + 1] = cumulative[d] + weight;
+        }
+
+        TariffTable tariffs = tariffService.getTable();
+        AtomicLong written = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "synthetic-data");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(days);
+            for (int d = 0; d < days; d++) {
+                int dayIndex = d;
+                long count = Math.round(callCount * cumulative[d + 1] / cumulative[days])
+                        - Math.round(callCount * cumulative[d] / cumulative[days]);
+                futures.add(workers.submit(() -> {
+                    writeDay(population, tariffs, firstDay.plusDays(dayIndex), dayIndex, count, seed, context);
+                    long total = written.addAndGet(count);
+                    logger.info("Synthetic data: {} written, {} of {} calls", firstDay.plusDays(dayIndex), total, callCount);
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Synthetic data generation was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException cancelled) throw cancelled;
+            throw new IllegalStateException("Synthetic data generation failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        return written.get();
+    }
+
+    // День генерируется одним потоком, поэтому строки итогов этого дня не делятся между транзакциями потоков
+    private void writeDay(Population population, TariffTable tariffs, LocalDate day, int dayIndex, long count, long seed,
+                          JobContext context) {
+        context.checkCancelled();
+        SplittableRandom random = new SplittableRandom(mix(mix(seed ^ DAYS_SEED) + dayIndex));
+        CallStatsRepository.Increments[] stats = { new CallStatsRepository.Increments() };
+        List<NewCall> batch = new ArrayList<>(batchSize);
+        for (long n = 0; n < count; n++) {
+            batch.add(nextCall(population, tariffs, random, day, uuid(seed, CALL_IDS, ((long) dayIndex << 32) | n)));
+            boolean last = n == count - 1;
+            if (batch.size() < batchSize && !last) continue;
+
+            // При отмене пакет дописывается вместе с накопленными итогами, чтобы итоги совпадали со звонками
+            boolean stop = context.isCancelled();
+            List<NewCall> calls = batch;
+            transactionTemplate.executeWithoutResult(status -> {
+                callBatchRepository.write(calls, stats[0]);
+                if (last || stop || stats[0].size() >= statsFlushRows) {
+                    callStatsRepository.apply(stats[0]);
+                    stats[0] = new CallStatsRepository.Increments();
+                }
+            });
+            context.advance(calls.size());
+            if (stop) context.checkCancelled();
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private NewCall nextCall(Population population, TariffTable tariffs, SplittableRandom random, LocalDate day, UUID id) {
+        int caller = population.callers.sample(random.nextDouble());
+        int callee;
+        if (random.nextDouble() < CONTACT_SHARE) {
+            // Ближние контакты звонят чаще дальних
+            double u = random.nextDouble();
+            callee = population.contact(caller, (int) (CONTACTS * u * u));
+        } else {
+            callee = population.popularity.sample(random.nextDouble());
+        }
+        if (callee == caller) callee = (caller + 1) % population.phones.length;
+
+        PhoneRef from = phone(population.phones[caller], random);
+        PhoneRef to = phone(population.phones[callee], random);
+        int secondOfDay = hour(random.nextDouble()) * 3600 + random.nextInt(3600);
+        long duration = random.nextDouble() < UNANSWERED_SHARE ? 0
+                : Math.min(MAX_DURATION_SECONDS, Math.round(MEDIAN_DURATION_SECONDS * Math.exp(random.nextGaussian())));
+
+        int band = tariffs.match(to.getPhone(), secondOfDay);
+        long price = band == TariffTable.NO_MATCH ? 0 : tariffs.pricePerMinute(band);
+        long cost = band == TariffTable.NO_MATCH ? 0 : tariffs.cost(band, duration);
+        return NewCall.builder()
+                .id(id)
+                .callDateTime(day.atStartOfDay().plusSeconds(secondOfDay))
+                .caller(from)
+                .callee(to)
+                .callType(CallType.OUTGOING)
+                .durationSeconds(duration)
+                .pricePerMinute(TariffService.fromMinorUnits(price))
+                .totalCost(TariffService.fromMinorUnits(cost))
+                .build();
+    }
+
+    // Второй номер, если он есть, используется в трети звонков
+    private static PhoneRef phone(PhoneRef[] phones, SplittableRandom random) {
+        return phones.length > 1 && random.nextInt(3) == 0 ? phones[1] : phones[0];
+    }
+
+    private static int hour(double u) {
+        double total = 0;
+        for (double weight : HOURLY) total += weight;
+        double target = u * total;
+        for (int h = 0; h < HOURLY.length; h++) {
+            target -= HOURLY[h];
+            if (target < 0) return h;
+        }
+        return HOURLY.length - 1;
+    }
+
+    private static String username(int index) {
+        return USERNAME_PREFIX + String.format("%06d", index);
+    }
+
+    // Версия 4 в битах UUID, чтобы id не отличались по виду от UUID.randomUUID()
+    private static UUID uuid(long seed, long kind, long index) {
+        long base = mix(seed ^ mix(kind));
+        long high = mix(base + index);
+        long low = mix(high ^ base);
+        return new UUID((high & ~0xF000L) | 0x4000L, (low & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+    }
+
+    // Финализатор SplitMix64: хорошо перемешивает соседние значения
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static class Population {
+        final PhoneRef[][] phones;
+        final PowerLaw callers;
+        final PowerLaw popularity;
+        final long contactsSeed;
+        int phoneCount;
+
+        Population(int userCount, long seed) {
+            phones = new PhoneRef[userCount][];
+            callers = new PowerLaw(userCount, 1.0, new SplittableRandom(mix(seed + 1)));
+            popularity = new PowerLaw(userCount, 0.8, new SplittableRandom(mix(seed + 2)));
+            contactsSeed = mix(seed ^ CONTACTS_SEED);
+        }
+
+        // Контакты вычисляются из (пользователь, номер контакта), а не хранятся: 100k x 20 int — лишние 8 МБ
+        int contact(int user, int index) {
+            return popularity.sample(unit(mix(contactsSeed + (long) user * CONTACTS + index)));
+        }
+    }
+
+    /**
+     * Ранг r выбирается с вероятностью ~ 1 / (r + 1)^exponent, ранги случайно распределены по пользователям.
+     */
+    private static class PowerLaw {
+        final double[] cumulative;
+        final int[] users;
+
+        PowerLaw(int size, double exponent, SplittableRandom random) {
+            cumulative = new double[size];
+            double total = 0;
+            for (int r = 0; r < size; r++) {
+                total += 1 / Math.pow(r + 1, exponent);
+                cumulative[r] = total;
+            }
+            for (int r = 0; r < size; r++) cumulative[r] /= total;
+
+            users = new int[size];
+            for (int i = 0; i < size; i++) users[i] = i;
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = users[i];
+                users[i] = users[j];
+                users[j] = swap;
+            }
+        }
+
+        int sample(double u) {
+            int rank = Arrays.binarySearch(cumulative, u);
+            if (rank < 0) rank = -rank - 1;
+            return users[Math.min(rank, users.length - 1)];
+        }
+    }
+}
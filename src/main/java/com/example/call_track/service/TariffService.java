@@ -0,0 +1,113 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.call.TariffDto;
+import com.example.call_track.dto.call.TariffQuoteDto;
+import com.example.call_track.entity.call.Tariff;
+import com.example.call_track.repository.TariffRepository;
+import com.example.call_track.utils.TariffTable;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rating of calls by destination prefix. Tariff rows are compiled into an immutable {@link TariffTable}
+ * that is swapped atomically on {@link #reload()}, so rating needs no locks and a batch keeps one
+ * consistent snapshot by calling {@link #getTable()} once. Amounts inside the table are kopecks;
+ * {@link #toMinorUnits} and {@link #fromMinorUnits} convert at the persistence boundary.
+ */
+@Service
+@RequiredArgsConstructor
+public class TariffService {
+    // Предел столбцов numeric(10, 2) цены и стоимости звонка
+    public static final BigDecimal MAX_AMOUNT = new BigDecimal("99999999.99");
+    public static final long MAX_AMOUNT_MINOR = toMinorUnits(MAX_AMOUNT);
+
+    private static final Logger logger = LoggerFactory.getLogger(TariffService.class);
+
+    private final TariffRepository tariffRepository;
+
+    private volatile TariffTable table = TariffTable.empty();
+
+    @PostConstruct
+    public void load() {
+        reload();
+    }
+
+    /**
+     * Rebuilds the table from the tariffs table, e.g. after tariffs were edited in the database.
+     *
+     * @return the number of loaded tariff bands
+     * @throws IllegalArgumentException if the rows are inconsistent (overlapping bands); the old table stays in use
+     */
+    public int reload() {
+        List<Tariff> tariffs = tariffRepository.findAllByOrderByPrefixAscBandStartAsc();
+        TariffTable.Builder builder = TariffTable.builder();
+        for (Tariff tariff : tariffs) {
+            builder.band(tariff.getPrefix(), tariff.getBandStart().toSecondOfDay(), tariff.getBandEnd().toSecondOfDay(),
+                    toMinorUnits(tariff.getPricePerMinute()), tariff.getFirstIncrementSeconds(),
+                    tariff.getNextIncrementSeconds(), toDto(tariff));
+        }
+        table = builder.build();
+        logger.info("Loaded {} tariff bands", tariffs.size());
+        return tariffs.size();
+    }
+
+    public TariffTable getTable() {
+        return table;
+    }
+
+    public List<TariffDto> findAll() {
+        return tariffRepository.findAllByOrderByPrefixAscBandStartAsc().stream().map(TariffService::toDto).toList();
+    }
+
+    public TariffQuoteDto quote(String callee, LocalDateTime startTime, long durationSeconds) {
+        if (durationSeconds < 0) throw new IllegalArgumentException("Duration must not be negative");
+        TariffTable current = table;
+        int band = current.match(callee, secondOfDay(startTime));
+        if (band == TariffTable.NO_MATCH) throw new IllegalArgumentException("No tariff for number " + callee);
+        TariffDto tariff = (TariffDto) current.source(band);
+        return TariffQuoteDto.builder()
+                .callee(callee)
+                .startTime(startTime)
+                .durationSeconds(durationSeconds)
+                .tariff(tariff)
+                .billedSeconds(TariffTable.billedSeconds(durationSeconds, tariff.getFirstIncrementSeconds(),
+                        tariff.getNextIncrementSeconds()))
+                .totalCost(fromMinorUnits(current.cost(band, durationSeconds)))
+                .build();
+    }
+
+    // Без LocalTime, чтобы не создавать объект на каждый звонок пакета
+    public static int secondOfDay(LocalDateTime time) {
+        return time.getHour() * 3600 + time.getMinute() * 60 + time.getSecond();
+    }
+
+    // Цены хранятся с двумя знаками; лишние знаки округляются до копейки
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinorUnits(long amount) {
+        return BigDecimal.valueOf(amount, 2);
+    }
+
+    private static TariffDto toDto(Tariff tariff) {
+        return TariffDto.builder()
+                .id(tariff.getId())
+                .prefix(tariff.getPrefix())
+                .name(tariff.getName())
+                .bandStart(tariff.getBandStart())
+                .bandEnd(tariff.getBandEnd())
+                .pricePerMinute(tariff.getPricePerMinute())
+                .firstIncrementSeconds(tariff.getFirstIncrementSeconds())
+                .nextIncrementSeconds(tariff.getNextIncrementSeconds())
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.call_track.service;
 
 import com.example.call_track.dto.user.PasswordChangeDto;
+import com.example.call_track.dto.user.ProfileDto;
 import com.example.call_track.dto.user.RegistrationDto;
 import com.example.call_track.dto.user.ResetPasswordDto;
 import com.example.call_track.dto.user.UpdateDto;
@@ -13,6 +14,7 @@ import org.jspecify.annotations.NonNull;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,10 +25,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -35,13 +33,14 @@ import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final PhoneNumberService phoneNumberService;
     private final AvatarService avatarService;
+    private final CurrentUserCache currentUserCache;
 
     @Override
     public UserDetails loadUserByUsername(@NonNull String username) throws UsernameNotFoundException {
@@ -49,6 +48,24 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
     }
 
+    /**
+     * Stores the password re-encoded after a successful login whose hash had other Argon2 parameters than
+     * the current ones. Called by Spring Security's DaoAuthenticationProvider; {@code newPassword} is encoded.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User current = userRepository.findByUsernameActive(user.getUsername()).orElse(null);
+        // Пароль сменили между проверкой и этим вызовом — старый хэш уже не актуален
+        if (current == null || !current.getPassword().equals(user.getPassword())) return user;
+
+        current.setPassword(newPassword);
+        userRepository.save(current);
+        currentUserCache.evict(current.getUsername());
+        logger.info("Password hash of user {} upgraded to the current Argon2 parameters", current.getUsername());
+        return current;
+    }
+
     @Transactional
     public User registerUser(RegistrationDto registrationDto) {
         if (userRepository.existsByUsername(registrationDto.getUsername()))
@@ -82,7 +99,8 @@ public class UserService implements UserDetailsService {
 
     @Transactional
     public void updateUserProfile(UpdateDto updateDto) {
-        User currentUser = getCurrentAuthenticatedUser();
+        User currentUser = loadCurrentUser();
+        String previousUsername = currentUser.getUsername();
 
         if (updateDto.getFirstName() != null && !updateDto.getFirstName().isBlank())
             currentUser.setFirstName(updateDto.getFirstName());
@@ -105,11 +123,32 @@ public class UserService implements UserDetailsService {
             currentUser.setPublicContactInfo(updateDto.getPublicContactInfo());
 
         userRepository.save(currentUser);
+        currentUserCache.evict(previousUsername);
+        currentUserCache.evict(currentUser.getUsername());
     }
 
-    @Transactional
-    public void updateAvatar(MultipartFile file) {
-        User currentUser = getCurrentAuthenticatedUser();
+    /**
+     * Profile of the current user read from the database rather than the user cache, so that an avatar
+     * replaced in the background shows up on the next call.
+     */
+    public ProfileDto getProfile() {
+        User user = loadCurrentUser();
+        return ProfileDto.builder()
+                .username(user.getUsername())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .middleName(user.getMiddleName())
+                .publicContactInfo(user.getPublicContactInfo())
+                .avatarPath(user.getAvatarPath())
+                .avatarProcessing(avatarService.isProcessing(user.getId()))
+                .build();
+    }
+
+    /**
+     * @return the avatar path the user will have once the upload is processed
+     */
+    public String updateAvatar(MultipartFile file) {
+        User currentUser = loadCurrentUser();
         logger.info("Updating avatar for user {}", currentUser.getUsername());
 
         // Validate file
@@ -128,39 +167,24 @@ public class UserService implements UserDetailsService {
         String originalFilename = file.getOriginalFilename();
         boolean isImageByContentType = contentType != null && contentType.startsWith("image/");
         boolean isImageByExtension = originalFilename != null &&
-                originalFilename.toLowerCase().matches(".*\\.(jpg|jpeg|png|gif|bmp|webp)$");
+                originalFilename.toLowerCase().matches(".*\\.(jpg|jpeg|png|gif|bmp)$");
 
         if (!isImageByContentType && !isImageByExtension) {
-            throw new IllegalArgumentException("Only image files are allowed (jpg, jpeg, png, gif, bmp, webp)");
+            throw new IllegalArgumentException("Only image files are allowed (jpg, jpeg, png, gif, bmp)");
         }
 
-        // Delete old avatar if exists
-        avatarService.deleteAvatar(currentUser.getAvatarPath());
-
-        // Save new avatar
+        // Размеры готовятся в фоне; старый аватар удаляется, когда новый записан
         try {
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            String fileName = UUID.randomUUID().toString() + extension;
-            Path uploadDir = Paths.get("uploads").toAbsolutePath();
-            Path avatarPath = uploadDir.resolve("avatars").resolve(fileName);
-            Files.createDirectories(avatarPath.getParent());
-            Files.copy(file.getInputStream(), avatarPath, StandardCopyOption.REPLACE_EXISTING);
-
-            currentUser.setAvatarPath("avatars/" + fileName);
-            userRepository.save(currentUser);
-            logger.info("Avatar updated successfully for user {}", currentUser.getUsername());
+            return avatarService.processUpload(currentUser, file.getBytes());
         } catch (IOException e) {
-            logger.error("Failed to save avatar for user {}", currentUser.getUsername(), e);
+            logger.error("Failed to read avatar upload of user {}", currentUser.getUsername(), e);
             throw new RuntimeException("Failed to save avatar", e);
         }
     }
 
     @Transactional
     public void changePassword(PasswordChangeDto passwordChangeDto) {
-        User currentUser = getCurrentAuthenticatedUser();
+        User currentUser = loadCurrentUser();
 
         if (!passwordEncoder.matches(passwordChangeDto.getCurrentPassword(), currentUser.getPassword()))
             throw new IllegalArgumentException("Current password is incorrect");
@@ -171,17 +195,34 @@ public class UserService implements UserDetailsService {
         currentUser.setPassword(passwordEncoder.encode(passwordChangeDto.getPassword()));
         currentUser.setForcePasswordChange(false); // Reset the flag after password change
         userRepository.save(currentUser);
+        currentUserCache.evict(currentUser.getUsername());
     }
 
+    /**
+     * Returns the authenticated user from {@link CurrentUserCache}.
+     * The instance is shared between requests and must not be modified;
+     * use {@link #loadCurrentUser()} when the user is going to be changed.
+     */
     public User getCurrentAuthenticatedUser() {
+        String username = currentUsername();
+        return currentUserCache.get(username, () -> userRepository.findByUsernameActive(username))
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+    }
+
+    // Managed copy straight from the database, safe to modify and save
+    private User loadCurrentUser() {
+        String username = currentUsername();
+        return userRepository.findByUsernameActive(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+    }
+
+    private String currentUsername() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
         if (authentication == null || !authentication.isAuthenticated())
             throw new UsernameNotFoundException("User not authenticated");
 
-        String username = authentication.getName();
-        return userRepository.findByUsernameActive(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        return authentication.getName();
     }
 
     public String initiatePasswordReset(String username) {
@@ -215,16 +256,28 @@ public class UserService implements UserDetailsService {
         user.setResetCode(null);
         user.setResetCodeExpiry(null);
         userRepository.save(user);
+        currentUserCache.evict(user.getUsername());
     }
 
     public List<User> findAll() { return userRepository.findAll(); }
     public List<User> findAllActive() { return userRepository.findAllActive(); }
-    public User save(User user) { return userRepository.save(user); }
+    public User save(User user) {
+        User saved = userRepository.save(user);
+        currentUserCache.evict(saved.getUsername());
+        return saved;
+    }
 
     public Optional<User> findById(UUID id) { return userRepository.findById(id); }
     public Optional<User> findByIdActive(UUID id) { return userRepository.findByIdActive(id); }
     public boolean existsByUsername(String username) { return userRepository.existsByUsername(username); }
 
+    @Transactional
+    public void changeRole(User user, UserRole newRole) {
+        user.setRole(newRole);
+        userRepository.save(user);
+        currentUserCache.evict(user.getUsername());
+    }
+
     @Transactional
     public void deleteUser(UUID userId) {
         User currentUser = getCurrentAuthenticatedUser();
@@ -250,7 +303,7 @@ public class UserService implements UserDetailsService {
 
     @Transactional
     public void deleteOwnAccount() {
-        User currentUser = getCurrentAuthenticatedUser();
+        User currentUser = loadCurrentUser();
         logger.info("deleteOwnAccount called by {}", currentUser.getUsername());
 
         softDeleteUser(currentUser);
@@ -261,6 +314,7 @@ public class UserService implements UserDetailsService {
         user.setDeleted(true);
         user.setDeletedAt(LocalDateTime.now());
         userRepository.save(user);
+        currentUserCache.evict(user.getUsername());
         // Optionally, soft delete phone numbers or leave them
         // For now, leave phone numbers as they are associated with the user
     }
@@ -0,0 +1,78 @@
+package com.example.call_track.spec;
+
+import com.example.call_track.dto.call.CallRow;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Непрозрачный курсор для keyset-пагинации звонков.
+ * Хранит значение ключа сортировки и id последней (или первой) строки страницы,
+ * чтобы следующая страница начиналась с seek-условия, а не с OFFSET.
+ */
+@Getter
+public class CallCursor {
+    private static final String SEPARATOR = "|";
+
+    private final String field;
+    private final Comparable<?> value;
+    private final UUID id;
+    private final boolean backward;
+
+    private CallCursor(String field, Comparable<?> value, UUID id, boolean backward) {
+        this.field = field;
+        this.value = value;
+        this.id = id;
+        this.backward = backward;
+    }
+
+    public static CallCursor after(CallRow row, String field) {
+        return new CallCursor(field, CallSpecifications.sortValue(row, field), row.getId(), false);
+    }
+
+    public static CallCursor before(CallRow row, String field) {
+        return new CallCursor(field, CallSpecifications.sortValue(row, field), row.getId(), true);
+    }
+
+    public String encode() {
+        String raw = (backward ? "p" : "n") + SEPARATOR + field + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает курсор, выданный для сортировки по {@code expectedField}.
+     * Пустой курсор означает первую страницу и возвращает {@code null}.
+     */
+    public static CallCursor decode(String cursor, String expectedField) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != 4 || !parts[1].equals(expectedField)) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+            boolean backward = parts[0].equals("p");
+            return new CallCursor(parts[1], parseValue(parts[1], parts[2]), UUID.fromString(parts[3]), backward);
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private static Comparable<?> parseValue(String field, String value) {
+        switch (field) {
+            case "totalCost":
+            case "pricePerMinute":
+                return new BigDecimal(value);
+            case "durationSeconds":
+                return Long.valueOf(value);
+            case "callDateTime":
+                return LocalDateTime.parse(value);
+            default:
+                throw new IllegalArgumentException("Unsupported cursor field: " + field);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.call_track.spec;
+
+import com.example.call_track.entity.call.Call;
+import com.example.call_track.entity.call.CallParty;
+import com.example.call_track.entity.user.User;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+/**
+ * Набор фильтров поиска звонков. Если задан пользователь, поиск идет по call_party,
+ * иначе (админ) — по всей таблице calls.
+ */
+@Getter
+@Builder
+public class CallFilter {
+    private final User user;
+    private final String name;
+    private final String myNumbers;
+    private final String phone;
+    private final String callType;
+    private final String startDate;
+    private final String endDate;
+    private final BigDecimal minCost;
+    private final BigDecimal maxCost;
+
+    public boolean isUserScoped() {
+        return user != null;
+    }
+
+    public Specification<Call> toCallSpecification() {
+        return CallSpecifications.filterAll(user, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost);
+    }
+
+    public Specification<CallParty> toPartySpecification() {
+        return CallPartySpecifications.filterUser(user, name, myNumbers, phone, callType, startDate, endDate, minCost, maxCost);
+    }
+
+    public boolean hasNoFilters() {
+        return isBlank(name) && isBlank(myNumbers) && isBlank(phone) && isBlank(callType)
+                && isBlank(startDate) && isBlank(endDate) && minCost == null && maxCost == null;
+    }
+
+    // Ключ для кеширования результатов, зависящих только от фильтров
+    public String cacheKey() {
+        return String.join("|",
+                user != null ? user.getId().toString() : "*",
+                String.valueOf(name), String.valueOf(myNumbers), String.valueOf(phone), String.valueOf(callType),
+                String.valueOf(startDate), String.valueOf(endDate), String.valueOf(minCost), String.valueOf(maxCost));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
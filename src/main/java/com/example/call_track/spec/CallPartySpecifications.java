@@ -0,0 +1,92 @@
+package com.example.call_track.spec;
+
+import com.example.call_track.entity.PhoneNumber;
+import com.example.call_track.entity.call.CallParty;
+import com.example.call_track.entity.call.CallType;
+import com.example.call_track.entity.user.User;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Те же фильтры, что и {@link CallSpecifications#filterAll}, но для истории одного пользователя
+ * поверх денормализованной таблицы call_party: без OR по двум сторонам звонка.
+ */
+public class CallPartySpecifications {
+    public static Specification<CallParty> filterUser(
+            User user,
+            String name,
+            String myNumbers,
+            String phone,
+            String callType,
+            String startDate,
+            String endDate,
+            BigDecimal minCost,
+            BigDecimal maxCost
+    ) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            Join<CallParty, PhoneNumber> ownPhone = CallSpecifications.join(root, "phone");
+            Join<CallParty, PhoneNumber> otherPhone = CallSpecifications.join(root, "counterpartyPhone");
+            Join<CallParty, User> otherUser = CallSpecifications.join(root, "counterpartyUser");
+
+            predicates.add(cb.equal(root.get("user"), user));
+
+            // Фильтр по имени оппонента
+            if (name != null && !name.isBlank()) {
+                predicates.add(CallSpecifications.nameMatches(cb, otherUser, name));
+            }
+
+            // Фильтр по своим номерам
+            if (myNumbers != null && !myNumbers.isBlank()) {
+                List<String> nums = Arrays.stream(myNumbers.split(","))
+                        .map(String::trim)
+                        .filter(s -> !s.isEmpty())
+                        .collect(Collectors.toList());
+                if (!nums.isEmpty()) {
+                    predicates.add(ownPhone.get("phone").in(nums));
+                }
+            }
+
+            // Фильтр по телефону оппонента
+            if (phone != null && !phone.isBlank()) {
+                predicates.add(CallSpecifications.phoneMatches(cb, otherPhone, phone));
+            }
+
+            // Направление звонка хранится колонкой
+            if (callType != null && !callType.isBlank()) {
+                if (callType.equals("OUTGOING")) {
+                    predicates.add(cb.equal(root.get("direction"), CallType.OUTGOING));
+                } else if (callType.equals("INCOMING")) {
+                    predicates.add(cb.equal(root.get("direction"), CallType.INCOMING));
+                }
+            }
+
+            // Диапазон дат
+            if (startDate != null && !startDate.isBlank()) {
+                try {
+                    LocalDateTime start = LocalDateTime.parse(startDate, java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"));
+                    predicates.add(cb.greaterThanOrEqualTo(root.get("callDateTime"), start));
+                } catch (DateTimeParseException ignore) {}
+            }
+            if (endDate != null && !endDate.isBlank()) {
+                try {
+                    LocalDateTime end = LocalDateTime.parse(endDate, java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"));
+                    predicates.add(cb.lessThanOrEqualTo(root.get("callDateTime"), end));
+                } catch (DateTimeParseException ignore) {}
+            }
+
+            // Стоимость звонка
+            if (minCost != null) predicates.add(cb.greaterThanOrEqualTo(root.get("totalCost"), minCost));
+            if (maxCost != null) predicates.add(cb.lessThanOrEqualTo(root.get("totalCost"), maxCost));
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.call_track.spec;
 
+import com.example.call_track.dto.call.CallRow;
 import com.example.call_track.entity.call.Call;
 import com.example.call_track.entity.call.CallType;
 import com.example.call_track.entity.PhoneNumber;
 import com.example.call_track.entity.user.User;
+import com.example.call_track.utils.SearchKeys;
 import jakarta.persistence.criteria.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.domain.Sort;
@@ -28,10 +30,10 @@ public class CallSpecifications {
         return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
-            Join<Call, PhoneNumber> callerPhone = root.join("callerPhone");
-            Join<Call, PhoneNumber> calleePhone = root.join("calleePhone");
-            Join<PhoneNumber, User> callerUser = callerPhone.join("user");
-            Join<PhoneNumber, User> calleeUser = calleePhone.join("user");
+            Join<Call, PhoneNumber> callerPhone = join(root, "callerPhone");
+            Join<Call, PhoneNumber> calleePhone = join(root, "calleePhone");
+            Join<PhoneNumber, User> callerUser = join(callerPhone, "user");
+            Join<PhoneNumber, User> calleeUser = join(calleePhone, "user");
 
             // Фильтр: текущий пользователь — или вызывающий, или вызываемый (только если не админ)
             if (user != null) {
@@ -41,39 +43,16 @@ public class CallSpecifications {
                 ));
             }
 
-            // Фильтр по имени (ищет по имени, фамилии и отчеству оппонента или всех для админа)
+            // Фильтр по имени (ищет по ФИО оппонента или всех участников для админа)
             if (name != null && !name.isBlank()) {
-                String likeName = "%" + name.trim().toLowerCase() + "%";
                 if (user != null) {
                     // Для обычного пользователя — только оппонент
-                    Predicate otherPartyMatchCaller = cb.and(
-                            cb.notEqual(callerUser, user),
-                            cb.or(
-                                    cb.like(cb.lower(callerUser.get("firstName")), likeName),
-                                    cb.like(cb.lower(callerUser.get("lastName")), likeName),
-                                    cb.like(cb.lower(callerUser.get("middleName")), likeName)
-                            ));
-                    Predicate otherPartyMatchCallee = cb.and(
-                            cb.notEqual(calleeUser, user),
-                            cb.or(
-                                    cb.like(cb.lower(calleeUser.get("firstName")), likeName),
-                                    cb.like(cb.lower(calleeUser.get("lastName")), likeName),
-                                    cb.like(cb.lower(calleeUser.get("middleName")), likeName)
-                            ));
+                    Predicate otherPartyMatchCaller = cb.and(cb.notEqual(callerUser, user), nameMatches(cb, callerUser, name));
+                    Predicate otherPartyMatchCallee = cb.and(cb.notEqual(calleeUser, user), nameMatches(cb, calleeUser, name));
                     predicates.add(cb.or(otherPartyMatchCaller, otherPartyMatchCallee));
                 } else {
                     // Для админа — поиск по всем участникам звонка
-                    Predicate callerMatch = cb.or(
-                            cb.like(cb.lower(callerUser.get("firstName")), likeName),
-                            cb.like(cb.lower(callerUser.get("lastName")), likeName),
-                            cb.like(cb.lower(callerUser.get("middleName")), likeName)
-                    );
-                    Predicate calleeMatch = cb.or(
-                            cb.like(cb.lower(calleeUser.get("firstName")), likeName),
-                            cb.like(cb.lower(calleeUser.get("lastName")), likeName),
-                            cb.like(cb.lower(calleeUser.get("middleName")), likeName)
-                    );
-                    predicates.add(cb.or(callerMatch, calleeMatch));
+                    predicates.add(cb.or(nameMatches(cb, callerUser, name), nameMatches(cb, calleeUser, name)));
                 }
             }
 
@@ -93,14 +72,13 @@ public class CallSpecifications {
 
             // Фильтр по телефону оппонента (абонента) или всем для админа
             if (phone != null && !phone.isBlank()) {
-                String likePhone = "%" + phone.trim() + "%";
                 if (user != null) {
-                    Predicate callerIsOther = cb.and(cb.notEqual(callerUser, user), cb.like(callerPhone.get("phone"), likePhone));
-                    Predicate calleeIsOther = cb.and(cb.notEqual(calleeUser, user), cb.like(calleePhone.get("phone"), likePhone));
+                    Predicate callerIsOther = cb.and(cb.notEqual(callerUser, user), phoneMatches(cb, callerPhone, phone));
+                    Predicate calleeIsOther = cb.and(cb.notEqual(calleeUser, user), phoneMatches(cb, calleePhone, phone));
                     predicates.add(cb.or(callerIsOther, calleeIsOther));
                 } else {
                     // Для админа — поиск по любому телефону в звонке
-                    predicates.add(cb.or(cb.like(callerPhone.get("phone"), likePhone), cb.like(calleePhone.get("phone"), likePhone)));
+                    predicates.add(cb.or(phoneMatches(cb, callerPhone, phone), phoneMatches(cb, calleePhone, phone)));
                 }
             }
 
@@ -135,25 +113,91 @@ public class CallSpecifications {
         };
     }
 
+    /**
+     * Подстрочный поиск по ФИО через users.search_key с триграммным GIN-индексом.
+     * Каждое слово запроса должно встречаться в ключе, поэтому "иван петров" находит "Петров Иван".
+     */
+    public static Predicate nameMatches(CriteriaBuilder cb, Path<User> user, String name) {
+        List<Predicate> parts = new ArrayList<>();
+        for (String token : SearchKeys.tokens(name)) {
+            parts.add(cb.like(user.get("searchKey"), SearchKeys.contains(token), '\\'));
+        }
+        return cb.and(parts.toArray(new Predicate[0]));
+    }
+
+    // Подстрочный поиск по цифрам номера через phone_numbers.search_key
+    public static Predicate phoneMatches(CriteriaBuilder cb, Path<PhoneNumber> phoneNumber, String phone) {
+        String digits = SearchKeys.phone(phone);
+        if (digits.isEmpty()) return cb.disjunction();
+        return cb.like(phoneNumber.get("searchKey"), SearchKeys.contains(digits), '\\');
+    }
+
+    /**
+     * Возвращает уже существующий inner join по атрибуту или создает новый.
+     * Позволяет проекционным запросам выбирать колонки из тех же join'ов, что использует спецификация.
+     */
+    @SuppressWarnings("unchecked")
+    public static <X, Y> Join<X, Y> join(From<?, X> from, String attribute) {
+        for (Join<X, ?> existing : from.getJoins()) {
+            if (existing.getAttribute().getName().equals(attribute) && existing.getJoinType() == JoinType.INNER) {
+                return (Join<X, Y>) existing;
+            }
+        }
+        return from.join(attribute);
+    }
+
     public static Sort buildSort(String sortBy, String sortDir) {
-        String field = "callDateTime";
-        if (sortBy == null || sortBy.isBlank()) sortBy = "date";
+        String field = sortField(sortBy);
         if (sortDir == null || sortDir.isBlank()) sortDir = "desc";
+        return sortDir.equalsIgnoreCase("asc") ? Sort.by(field).ascending() : Sort.by(field).descending();
+    }
+
+    public static String sortField(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) sortBy = "date";
 
         switch (sortBy) {
             case "cost":
-                field = "totalCost";
-                break;
+                return "totalCost";
             case "duration":
-                field = "durationSeconds";
-                break;
+                return "durationSeconds";
             case "price":
-                field = "pricePerMinute";
-                break;
+                return "pricePerMinute";
             case "date":
             default:
-                field = "callDateTime";
+                return "callDateTime";
         }
-        return sortDir.equalsIgnoreCase("asc") ? Sort.by(field).ascending() : Sort.by(field).descending();
+    }
+
+    // Значение ключа сортировки для строки — используется при формировании курсора
+    public static Comparable<?> sortValue(CallRow row, String field) {
+        switch (field) {
+            case "totalCost":
+                return row.getTotalCost();
+            case "durationSeconds":
+                return row.getDurationSeconds();
+            case "pricePerMinute":
+                return row.getPricePerMinute();
+            case "callDateTime":
+            default:
+                return row.getCallDateTime();
+        }
+    }
+
+    /**
+     * Seek-условие для keyset-пагинации: строки строго после (field, id) в заданном направлении.
+     * id используется как tie-breaker, поэтому сортировка должна включать его вторым ключом.
+     * Записано как {@code field <= v AND (field < v OR id < x)}: внешнее условие — простой диапазон
+     * по ключу, поэтому при сортировке по дате отсекаются секции calls и используется индекс.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> Specification<T> seek(String field, boolean ascending, Comparable value, UUID id) {
+        return (root, query, cb) -> {
+            Path<Comparable> key = root.get(field);
+            Path<UUID> rowId = root.get("id");
+            Predicate beyondKey = ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+            Predicate beyondId = ascending ? cb.greaterThan(rowId, id) : cb.lessThan(rowId, id);
+            Predicate notBeforeKey = ascending ? cb.greaterThanOrEqualTo(key, value) : cb.lessThanOrEqualTo(key, value);
+            return cb.and(notBeforeKey, cb.or(beyondKey, beyondId));
+        };
     }
 }
@@ -0,0 +1,28 @@
+package com.example.call_track.spec;
+
+import com.example.call_track.dto.call.CallRow;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Страница звонков, полученная через keyset-пагинацию.
+ * Курсоры равны {@code null}, если в соответствующем направлении строк больше нет.
+ */
+@Getter
+@AllArgsConstructor
+public class CallWindow {
+    private final List<CallRow> content;
+    private final int size;
+    private final String nextCursor;
+    private final String prevCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return prevCursor != null;
+    }
+}
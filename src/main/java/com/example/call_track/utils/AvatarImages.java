@@ -0,0 +1,203 @@
+package com.example.call_track.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Image operations of the avatar pipeline, on plain ImageIO and Java2D. An upload is decoded once, and only
+ * the central square of it, subsampled by the decoder to no less than twice the largest size, so a 5 MB
+ * photo does not become a full-resolution bitmap. Sizes are then produced from that square by repeated
+ * halving (a single large bicubic step aliases), and written without any of the source metadata.
+ */
+public final class AvatarImages {
+    private static final int EXIF_ORIENTATION = 0x0112;
+    private static final int APP1 = 0xE1;
+    private static final int SOS = 0xDA;
+
+    private AvatarImages() {
+    }
+
+    /**
+     * Reads only the header: the format must be decodable and the image not larger than {@code maxPixels}.
+     *
+     * @throws IllegalArgumentException otherwise
+     */
+    public static void check(byte[] data, long maxPixels) throws IOException {
+        withReader(data, reader -> {
+            long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+            if (pixels > maxPixels) {
+                throw new IllegalArgumentException("Image is too large: " + reader.getWidth(0) + "x" + reader.getHeight(0));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Decodes the central square of the image, upright per its EXIF orientation, flattened onto white and
+     * at least {@code minSide} pixels wide unless the source is smaller.
+     *
+     * @throws IllegalArgumentException if the format is not supported
+     */
+    public static BufferedImage decodeSquare(byte[] data, int minSide) throws IOException {
+        return withReader(data, reader -> {
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int side = Math.min(width, height);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle((width - side) / 2, (height - side) / 2, side, side));
+            int step = Math.max(1, side / (2 * minSide));
+            param.setSourceSubsampling(step, step, 0, 0);
+            BufferedImage image = reader.read(0, param);
+            return upright(image, orientation(data));
+        });
+    }
+
+    /**
+     * Scales a square image down to {@code size} pixels; never scales up.
+     */
+    public static BufferedImage resize(BufferedImage square, int size) {
+        BufferedImage current = square;
+        int side = square.getWidth();
+        // Уменьшение вдвое за шаг, последний шаг — до точного размера
+        while (side > size) {
+            side = Math.max(size, side / 2);
+            BufferedImage next = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    side == size ? RenderingHints.VALUE_INTERPOLATION_BICUBIC : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, side, side, null);
+            g.dispose();
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Encodes as baseline JPEG with the given quality (0..1), or as PNG; nothing but the pixels is written.
+     */
+    public static byte[] encode(BufferedImage image, String format, float jpegQuality) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (!"jpg".equals(format)) {
+            if (!ImageIO.write(image, format, bytes)) throw new IOException("No ImageIO writer for " + format);
+            return bytes.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface ReaderFunction<T> {
+        T apply(ImageReader reader) throws IOException;
+    }
+
+    private static <T> T withReader(byte[] data, ReaderFunction<T> function) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format, use JPEG, PNG, GIF or BMP");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return function.apply(reader);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Браузер поворачивал оригинал по EXIF сам; метаданные не сохраняются, поэтому поворот делается здесь
+    private static BufferedImage upright(BufferedImage image, int orientation) {
+        int s = image.getWidth();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, s, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, s, s);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, s);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, s, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, s, s);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, s);
+            default -> new AffineTransform();
+        };
+        BufferedImage result = new BufferedImage(s, image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = result.createGraphics();
+        // Прозрачные области PNG/GIF — на белом фоне, JPEG без альфа-канала
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, s, image.getHeight());
+        g.drawImage(image, transform, null);
+        g.dispose();
+        return result;
+    }
+
+    // Тег Orientation из сегмента APP1 (Exif) JPEG; 1, если его нет. Сегменты разбираются прямо из байтов:
+    // разбор метаданных ImageIO отвергает JPEG камер без JFIF
+    private static int orientation(byte[] data) {
+        if (data.length < 4 || (data[0] & 0xFF) != 0xFF || (data[1] & 0xFF) != 0xD8) return 1;
+        int offset = 2;
+        while (offset + 4 <= data.length && (data[offset] & 0xFF) == 0xFF) {
+            int marker = data[offset + 1] & 0xFF;
+            int length = (int) read(data, offset + 2, 2, false);
+            // Дальше SOS идут сжатые данные
+            if (marker == SOS || length < 2) break;
+            int end = Math.min(data.length, offset + 2 + length);
+            if (marker == APP1 && end - offset > 10 && data[offset + 4] == 'E' && data[offset + 5] == 'x'
+                    && data[offset + 6] == 'i' && data[offset + 7] == 'f') {
+                return exifOrientation(data, offset + 10, end);
+            }
+            offset = end;
+        }
+        return 1;
+    }
+
+    // TIFF с начала tiff: порядок байтов, смещение IFD0, записи по 12 байт
+    private static int exifOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end) return 1;
+        boolean little = data[tiff] == 'I';
+        long ifd = tiff + read(data, tiff + 4, 4, little);
+        if (ifd + 2 > end) return 1;
+        int entries = (int) read(data, (int) ifd, 2, little);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > end) break;
+            if (read(data, entry, 2, little) == EXIF_ORIENTATION) {
+                int value = (int) read(data, entry + 8, 2, little);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static long read(byte[] bytes, int offset, int length, boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int b = bytes[offset + (littleEndian ? length - 1 - i : i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.call_track.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * HyperLogLog distinct-count sketch with 2^11 registers (standard error about 2.3%).
+ * Small sketches keep only their non-zero registers, so a user who talked to a handful of people
+ * in a day costs a few bytes rather than the full 2 KB register array. Sketches are merged by taking
+ * the register-wise maximum, which makes per-day sketches combinable over any window.
+ */
+public final class HyperLogLog {
+    private static final int P = 11;
+    private static final int M = 1 << P;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / M);
+    // Разреженная форма выгоднее плотной, пока ненулевых регистров меньше M / 4
+    private static final int SPARSE_LIMIT = M / 4;
+    private static final byte SPARSE = 1;
+    private static final byte DENSE = 2;
+
+    // Плотная форма: ранг по индексу регистра; null, пока sketch разреженный
+    private byte[] registers;
+    // Разреженная форма: index << 8 | rank, отсортировано по индексу
+    private int[] sparse = new int[0];
+
+    public void add(UUID value) {
+        add(mix(value.getMostSignificantBits() ^ mix(value.getLeastSignificantBits())));
+    }
+
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - P));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << P | 1L << (P - 1)) + 1, 64 - P + 1);
+        set(index, rank);
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.registers != null) {
+            for (int i = 0; i < M; i++) {
+                if (other.registers[i] != 0) set(i, other.registers[i]);
+            }
+        } else {
+            for (int entry : other.sparse) set(entry >>> 8, entry & 0xFF);
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < M; i++) {
+            int rank = rank(i);
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) zeros++;
+        }
+        double estimate = ALPHA * M * M / sum;
+        // Для малых значений точнее linear counting по пустым регистрам
+        if (estimate <= 2.5 * M && zeros > 0) {
+            estimate = M * Math.log((double) M / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        if (registers != null) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + M);
+            buffer.put(DENSE).put(registers);
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + sparse.length * 3);
+        buffer.put(SPARSE).putInt(sparse.length);
+        for (int entry : sparse) {
+            buffer.putShort((short) (entry >>> 8)).put((byte) entry);
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog();
+        if (bytes == null || bytes.length == 0) return sketch;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        if (format == DENSE) {
+            sketch.registers = new byte[M];
+            buffer.get(sketch.registers);
+        } else if (format == SPARSE) {
+            int[] entries = new int[buffer.getInt()];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = (buffer.getShort() & 0xFFFF) << 8 | buffer.get() & 0xFF;
+            }
+            sketch.sparse = entries;
+        } else {
+            throw new IllegalArgumentException("Unknown HyperLogLog format " + format);
+        }
+        return sketch;
+    }
+
+    private int rank(int index) {
+        if (registers != null) return registers[index];
+        int position = Arrays.binarySearch(sparse, index << 8);
+        if (position < 0) position = -position - 1;
+        return position < sparse.length && sparse[position] >>> 8 == index ? sparse[position] & 0xFF : 0;
+    }
+
+    private void set(int index, int rank) {
+        if (registers != null) {
+            if (registers[index] < rank) registers[index] = (byte) rank;
+            return;
+        }
+        int position = Arrays.binarySearch(sparse, index << 8);
+        if (position < 0) position = -position - 1;
+        if (position < sparse.length && sparse[position] >>> 8 == index) {
+            if ((sparse[position] & 0xFF) < rank) sparse[position] = index << 8 | rank;
+            return;
+        }
+        if (sparse.length >= SPARSE_LIMIT) {
+            toDense();
+            set(index, rank);
+            return;
+        }
+        int[] grown = new int[sparse.length + 1];
+        System.arraycopy(sparse, 0, grown, 0, position);
+        grown[position] = index << 8 | rank;
+        System.arraycopy(sparse, position, grown, position + 1, sparse.length - position);
+        sparse = grown;
+    }
+
+    private void toDense() {
+        registers = new byte[M];
+        for (int entry : sparse) registers[entry >>> 8] = (byte) (entry & 0xFF);
+        sparse = null;
+    }
+
+    // Финализатор MurmurHash3: UUID v4 и так случайны, но id из nameUUIDFromBytes — нет
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.call_track.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mergeable histogram of non-negative longs with log-linear buckets, in the spirit of HdrHistogram:
+ * values below 32 are exact, above that every power of two is split into 32 sub-buckets, so a
+ * percentile is off by at most about 3% of the value. Merging adds bucket counts, so a negative count
+ * removes a value exactly. Serialized as varint (bucket, count) pairs of the non-empty buckets only.
+ */
+public final class LogHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private long[] counts = new long[SUB_BUCKETS * 2];
+    private long total;
+
+    public void add(long value) {
+        add(value, 1);
+    }
+
+    public void add(long value, long count) {
+        if (value < 0) throw new IllegalArgumentException("Value must not be negative: " + value);
+        int bucket = bucket(value);
+        if (bucket >= counts.length) counts = Arrays.copyOf(counts, Math.max(bucket + 1, counts.length * 2));
+        counts[bucket] += count;
+        total += count;
+    }
+
+    public void merge(LogHistogram other) {
+        if (other.counts.length > counts.length) counts = Arrays.copyOf(counts, other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) counts[i] += other.counts[i];
+        total += other.total;
+    }
+
+    public long getTotalCount() {
+        return total;
+    }
+
+    /**
+     * Value at the given quantile (0..1): the midpoint of the bucket holding that rank, or 0 if empty.
+     */
+    public long quantile(double q) {
+        if (q < 0 || q > 1) throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return midpoint(i);
+        }
+        return midpoint(counts.length - 1);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            writeVarLong(out, i);
+            writeVarLong(out, counts[i]);
+        }
+        return out.toByteArray();
+    }
+
+    public static LogHistogram fromBytes(byte[] bytes) {
+        LogHistogram histogram = new LogHistogram();
+        if (bytes == null) return histogram;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            int bucket = (int) readVarLong(buffer);
+            long count = readVarLong(buffer);
+            if (bucket >= histogram.counts.length) histogram.counts = Arrays.copyOf(histogram.counts, bucket + 1);
+            histogram.counts[bucket] += count;
+            histogram.total += count;
+        }
+        return histogram;
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long midpoint(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+}
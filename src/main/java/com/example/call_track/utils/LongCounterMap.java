@@ -0,0 +1,154 @@
+package com.example.call_track.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from a primitive long key to a fixed number of long counters.
+ * Keys and counters live in flat arrays, so a million entries cost a few tens of megabytes
+ * instead of the boxed keys, entry objects and value objects of a {@code HashMap<Long, long[]>}.
+ * Not thread-safe.
+ */
+public final class LongCounterMap {
+    // Ключ-маркер пустой ячейки; сам этот ключ хранить нельзя
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final int columns;
+    private long[] keys;
+    private long[] counters;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public LongCounterMap(int columns) {
+        this(columns, 16);
+    }
+
+    public LongCounterMap(int columns, int expectedSize) {
+        if (columns <= 0) throw new IllegalArgumentException("At least one counter column is required");
+        this.columns = columns;
+        allocate(tableSize(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Returns the counter of {@code key} in {@code column}, or 0 if the key is absent.
+     */
+    public long get(long key, int column) {
+        int slot = find(key);
+        return slot < 0 ? 0 : counters[slot * columns + column];
+    }
+
+    public void add(long key, int column, long delta) {
+        // insert() может пересоздать массив counters, поэтому слот вычисляется до обращения к нему
+        int slot = insert(key);
+        counters[slot * columns + column] += delta;
+    }
+
+    /**
+     * Adds every counter of {@code other} to this map.
+     */
+    public void addAll(LongCounterMap other) {
+        if (other.columns != columns) throw new IllegalArgumentException("Column count mismatch");
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] == EMPTY) continue;
+            int target = insert(other.keys[slot]) * columns;
+            int source = slot * columns;
+            for (int c = 0; c < columns; c++) counters[target + c] += other.counters[source + c];
+        }
+    }
+
+    public void forEach(EntryVisitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) visitor.visit(keys[slot], new Entry(slot));
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long key, Entry entry);
+    }
+
+    /**
+     * Counters of one key during {@link #forEach}; valid only inside the callback.
+     */
+    public final class Entry {
+        private final int slot;
+
+        private Entry(int slot) {
+            this.slot = slot;
+        }
+
+        public long get(int column) {
+            return counters[slot * columns + column];
+        }
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int insert(long key) {
+        if (key == EMPTY) throw new IllegalArgumentException("Key " + key + " is reserved");
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        if (size >= resizeAt) {
+            rehash(keys.length * 2);
+            return insert(key);
+        }
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    private void rehash(int newSize) {
+        long[] oldKeys = keys;
+        long[] oldCounters = counters;
+        allocate(newSize);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] == EMPTY) continue;
+            int target = hash(oldKeys[slot]) & mask;
+            while (keys[target] != EMPTY) target = (target + 1) & mask;
+            keys[target] = oldKeys[slot];
+            System.arraycopy(oldCounters, slot * columns, counters, target * columns, columns);
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new long[tableSize];
+        Arrays.fill(keys, EMPTY);
+        counters = new long[tableSize * columns];
+        mask = tableSize - 1;
+        resizeAt = (int) (tableSize * LOAD_FACTOR);
+    }
+
+    private static int tableSize(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    // Перемешивание битов, чтобы соседние ключи (from << 32 | to) не ложились в соседние ячейки
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.call_track.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Нормализация строк для подстрочного поиска по триграммным индексам.
+ * Ключи хранятся в колонках search_key, а поисковый запрос приводится к тому же виду,
+ * поэтому фильтр — один LIKE по индексированной колонке вместо lower() по каждому полю.
+ * Правила должны совпадать с выражениями в миграции V5.
+ */
+public final class SearchKeys {
+    private SearchKeys() {}
+
+    // Регистр, ё/е и лишние пробелы не влияют на результат поиска
+    public static String text(String value) {
+        if (value == null) return "";
+        return value.toLowerCase(Locale.ROOT)
+                .replace('ё', 'е')
+                .trim()
+                .replaceAll("\\s+", " ");
+    }
+
+    public static String name(String lastName, String firstName, String middleName) {
+        return Arrays.stream(new String[] { lastName, firstName, middleName })
+                .map(SearchKeys::text)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.joining(" "));
+    }
+
+    // Номер хранится в том виде, в каком его ввели: "+7 (999) 123-45-67" ищется по "999123"
+    public static String phone(String value) {
+        if (value == null) return "";
+        return value.replaceAll("\\D", "");
+    }
+
+    public static List<String> tokens(String query) {
+        String normalized = text(query);
+        if (normalized.isEmpty()) return List.of();
+        return List.of(normalized.split(" "));
+    }
+
+    // Экранирует символы шаблона LIKE; escape-символ — обратный слэш
+    public static String contains(String term) {
+        return "%" + term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
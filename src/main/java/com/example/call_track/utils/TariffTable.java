@@ -0,0 +1,242 @@
+package com.example.call_track.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable rating table: destination prefixes in a digit trie, each prefix with time-of-day bands,
+ * a per-minute price and billing increments. All amounts are longs in minor units (kopecks), so
+ * rating a call walks a few int arrays and allocates nothing; conversion to {@code BigDecimal}
+ * is left to the caller at the persistence boundary.
+ *
+ * <p>A number is matched by its digits only ({@code +}, spaces and dashes are skipped). The longest
+ * prefix that has a band covering the call's time of day wins, so a prefix may override only part
+ * of the day and fall back to a shorter one for the rest.
+ */
+public final class TariffTable {
+    public static final int NO_MATCH = -1;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    // children[node * 10 + digit] — индекс дочернего узла, 0 — нет (корень ребенком быть не может)
+    private final int[] children;
+    // Для каждого узла — диапазон [segmentFrom[node], segmentFrom[node + 1]) в массивах отрезков суток
+    private final int[] segmentFrom;
+    private final int[] segmentStart;
+    private final int[] segmentBand;
+
+    private final long[] bandPrice;
+    private final int[] bandFirstIncrement;
+    private final int[] bandNextIncrement;
+    private final Object[] bandSource;
+
+    private TariffTable(int[] children, int[] segmentFrom, int[] segmentStart, int[] segmentBand,
+                        long[] bandPrice, int[] bandFirstIncrement, int[] bandNextIncrement, Object[] bandSource) {
+        this.children = children;
+        this.segmentFrom = segmentFrom;
+        this.segmentStart = segmentStart;
+        this.segmentBand = segmentBand;
+        this.bandPrice = bandPrice;
+        this.bandFirstIncrement = bandFirstIncrement;
+        this.bandNextIncrement = bandNextIncrement;
+        this.bandSource = bandSource;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static TariffTable empty() {
+        return builder().build();
+    }
+
+    public int size() {
+        return bandPrice.length;
+    }
+
+    /**
+     * Finds the band that rates a call to {@code number} starting at {@code secondOfDay}.
+     *
+     * @return band index for {@link #pricePerMinute} and {@link #cost}, or {@link #NO_MATCH}
+     */
+    public int match(CharSequence number, int secondOfDay) {
+        if (secondOfDay < 0 || secondOfDay >= SECONDS_PER_DAY) {
+            throw new IllegalArgumentException("Second of day out of range: " + secondOfDay);
+        }
+        int node = 0;
+        int best = bandAt(0, secondOfDay);
+        for (int i = 0, length = number.length(); i < length; i++) {
+            int digit = number.charAt(i) - '0';
+            if (digit < 0 || digit > 9) continue;
+            node = children[node * 10 + digit];
+            if (node == 0) break;
+            int band = bandAt(node, secondOfDay);
+            if (band != NO_MATCH) best = band;
+        }
+        return best;
+    }
+
+    public long pricePerMinute(int band) {
+        return bandPrice[band];
+    }
+
+    /**
+     * Cost of a call in minor units: the duration is rounded up to the first increment and then to
+     * whole next increments, and the price of the billed seconds is rounded up to a minor unit.
+     */
+    public long cost(int band, long durationSeconds) {
+        return perSecondCost(bandPrice[band], billedSeconds(durationSeconds, bandFirstIncrement[band], bandNextIncrement[band]));
+    }
+
+    /**
+     * The object the band was built from, e.g. the tariff entity, for display and diagnostics.
+     */
+    public Object source(int band) {
+        return bandSource[band];
+    }
+
+    public static long billedSeconds(long durationSeconds, int firstIncrement, int nextIncrement) {
+        if (durationSeconds <= 0) return 0;
+        if (durationSeconds <= firstIncrement) return firstIncrement;
+        long rest = durationSeconds - firstIncrement;
+        return firstIncrement + (rest + nextIncrement - 1) / nextIncrement * nextIncrement;
+    }
+
+    /**
+     * Посекундная тарификация: цена секунд с округлением вверх до минимальной единицы.
+     */
+    public static long perSecondCost(long pricePerMinute, long seconds) {
+        long amount = Math.multiplyExact(pricePerMinute, seconds);
+        return (amount + 59) / 60;
+    }
+
+    private int bandAt(int node, int secondOfDay) {
+        int from = segmentFrom[node];
+        int to = segmentFrom[node + 1];
+        // Отрезков у префикса единицы, линейный поиск быстрее двоичного
+        int band = NO_MATCH;
+        for (int i = from; i < to && segmentStart[i] <= secondOfDay; i++) band = segmentBand[i];
+        return band;
+    }
+
+    public static final class Builder {
+        private final List<Band> bands = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a band of {@code prefix} for calls starting in [{@code fromSecond}, {@code toSecond}) of the day.
+         * {@code toSecond} equal to {@code fromSecond} means the whole day, a smaller one wraps past midnight.
+         */
+        public Builder band(String prefix, int fromSecond, int toSecond, long pricePerMinute,
+                            int firstIncrement, int nextIncrement, Object source) {
+            String digits = prefix == null ? "" : prefix.replaceAll("\\D", "");
+            if (fromSecond < 0 || fromSecond >= SECONDS_PER_DAY || toSecond < 0 || toSecond > SECONDS_PER_DAY) {
+                throw new IllegalArgumentException("Band of prefix '" + digits + "' is out of the day");
+            }
+            if (pricePerMinute < 0) throw new IllegalArgumentException("Price of prefix '" + digits + "' must not be negative");
+            if (firstIncrement <= 0 || nextIncrement <= 0) {
+                throw new IllegalArgumentException("Billing increments of prefix '" + digits + "' must be positive");
+            }
+            bands.add(new Band(digits, fromSecond, toSecond % SECONDS_PER_DAY, pricePerMinute, firstIncrement, nextIncrement, source));
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if two bands of one prefix overlap
+         */
+        public TariffTable build() {
+            List<int[]> nodes = new ArrayList<>();
+            nodes.add(new int[10]);
+            List<List<int[]>> segments = new ArrayList<>();
+            segments.add(new ArrayList<>());
+
+            for (int b = 0; b < bands.size(); b++) {
+                Band band = bands.get(b);
+                int node = 0;
+                for (int i = 0; i < band.prefix.length(); i++) {
+                    int digit = band.prefix.charAt(i) - '0';
+                    if (nodes.get(node)[digit] == 0) {
+                        nodes.get(node)[digit] = nodes.size();
+                        nodes.add(new int[10]);
+                        segments.add(new ArrayList<>());
+                    }
+                    node = nodes.get(node)[digit];
+                }
+                // Полоса через полночь делится на два отрезка; каждый отрезок — {начало, конец, полоса}
+                List<int[]> own = segments.get(node);
+                if (band.to > band.from) {
+                    own.add(new int[] { band.from, band.to, b });
+                } else {
+                    own.add(new int[] { band.from, SECONDS_PER_DAY, b });
+                    if (band.to > 0) own.add(new int[] { 0, band.to, b });
+                }
+            }
+
+            int[] children = new int[nodes.size() * 10];
+            for (int n = 0; n < nodes.size(); n++) System.arraycopy(nodes.get(n), 0, children, n * 10, 10);
+
+            // Промежутки суток без полосы кодируются отрезком с NO_MATCH, чтобы поиск шел только по началам
+            int[] segmentFrom = new int[nodes.size() + 1];
+            List<int[]> flat = new ArrayList<>();
+            for (int n = 0; n < nodes.size(); n++) {
+                segmentFrom[n] = flat.size();
+                List<int[]> own = segments.get(n);
+                own.sort((x, y) -> Integer.compare(x[0], y[0]));
+                int covered = 0;
+                for (int[] segment : own) {
+                    if (segment[0] < covered) {
+                        throw new IllegalArgumentException("Overlapping tariff bands for prefix '" + bands.get(segment[2]).prefix + "'");
+                    }
+                    if (segment[0] > covered && flat.size() > segmentFrom[n]) {
+                        flat.add(new int[] { covered, NO_MATCH });
+                    }
+                    flat.add(new int[] { segment[0], segment[2] });
+                    covered = segment[1];
+                }
+                if (!own.isEmpty() && covered < SECONDS_PER_DAY) flat.add(new int[] { covered, NO_MATCH });
+            }
+            segmentFrom[nodes.size()] = flat.size();
+
+            int[] segmentStart = new int[flat.size()];
+            int[] segmentBand = new int[flat.size()];
+            for (int i = 0; i < flat.size(); i++) {
+                segmentStart[i] = flat.get(i)[0];
+                segmentBand[i] = flat.get(i)[1];
+            }
+
+            long[] price = new long[bands.size()];
+            int[] first = new int[bands.size()];
+            int[] next = new int[bands.size()];
+            Object[] source = new Object[bands.size()];
+            for (int b = 0; b < bands.size(); b++) {
+                Band band = bands.get(b);
+                price[b] = band.pricePerMinute;
+                first[b] = band.firstIncrement;
+                next[b] = band.nextIncrement;
+                source[b] = band.source;
+            }
+            return new TariffTable(children, segmentFrom, segmentStart, segmentBand, price, first, next, source);
+        }
+    }
+
+    private static final class Band {
+        final String prefix;
+        final int from;
+        final int to;
+        final long pricePerMinute;
+        final int firstIncrement;
+        final int nextIncrement;
+        final Object source;
+
+        Band(String prefix, int from, int to, long pricePerMinute, int firstIncrement, int nextIncrement, Object source) {
+            this.prefix = prefix;
+            this.from = from;
+            this.to = to;
+            this.pricePerMinute = pricePerMinute;
+            this.firstIncrement = firstIncrement;
+            this.nextIncrement = nextIncrement;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+-- Re-rating runs over historical calls (CallReratingService). The checkpoint is the (start_time, id)
+-- key up to which every chunk is done, so a killed or cancelled run resumes right after it.
+CREATE TABLE call_rerating_jobs (
+    id              uuid           NOT NULL,
+    status          varchar(32)    NOT NULL,
+    dry_run         boolean        NOT NULL,
+    range_from      timestamp(6)   NOT NULL,
+    range_to        timestamp(6)   NOT NULL,
+    checkpoint_time timestamp(6),
+    checkpoint_id   uuid,
+    calls_scanned   bigint         NOT NULL DEFAULT 0,
+    calls_changed   bigint         NOT NULL DEFAULT 0,
+    calls_skipped   bigint         NOT NULL DEFAULT 0,
+    cost_before     numeric(19, 2) NOT NULL DEFAULT 0,
+    cost_after      numeric(19, 2) NOT NULL DEFAULT 0,
+    error           text,
+    started_at      timestamp(6)   NOT NULL,
+    updated_at      timestamp(6),
+    finished_at     timestamp(6),
+    CONSTRAINT call_rerating_jobs_pkey PRIMARY KEY (id),
+    CONSTRAINT call_rerating_jobs_status_check CHECK (status IN ('RUNNING', 'COMPLETED', 'CANCELLED', 'FAILED', 'INTERRUPTED'))
+);
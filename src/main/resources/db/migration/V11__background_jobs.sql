@@ -0,0 +1,25 @@
+-- Background jobs of the admin area (JobService): fake and synthetic data, imports, exports, maintenance.
+-- Progress is written periodically while a job runs; jobs left QUEUED or RUNNING by a stopped process
+-- become INTERRUPTED on the next start.
+CREATE TABLE background_jobs (
+    id             uuid          NOT NULL,
+    type           varchar(64)   NOT NULL,
+    status         varchar(32)   NOT NULL,
+    description    varchar(500),
+    created_by     varchar(255),
+    progress_done  bigint        NOT NULL DEFAULT 0,
+    progress_total bigint,
+    message        varchar(1000),
+    result         text,
+    error          text,
+    created_at     timestamp(6)  NOT NULL,
+    started_at     timestamp(6),
+    updated_at     timestamp(6),
+    finished_at    timestamp(6),
+    CONSTRAINT background_jobs_pkey PRIMARY KEY (id),
+    CONSTRAINT background_jobs_status_check
+        CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED', 'CANCELLED', 'INTERRUPTED'))
+);
+
+CREATE INDEX idx_background_jobs_created_at ON background_jobs (created_at DESC);
+CREATE INDEX idx_background_jobs_active ON background_jobs (status) WHERE status IN ('QUEUED', 'RUNNING');
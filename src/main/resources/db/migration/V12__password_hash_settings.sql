@@ -0,0 +1,16 @@
+-- Argon2 cost chosen by calibration (PasswordHashCalibrationService), shared by all nodes: the first node
+-- to start without a row calibrates and stores it, the others load it. Password hashes made with other
+-- parameters are re-encoded on the user's next successful login.
+CREATE TABLE password_hash_settings (
+    id            smallint      NOT NULL DEFAULT 1,
+    memory_kib    integer       NOT NULL,
+    iterations    integer       NOT NULL,
+    parallelism   integer       NOT NULL,
+    target_ms     integer       NOT NULL,
+    measured_ms   numeric(10, 2) NOT NULL,
+    calibrated_on varchar(255),
+    calibrated_at timestamp(6)  NOT NULL,
+    CONSTRAINT password_hash_settings_pkey PRIMARY KEY (id),
+    CONSTRAINT password_hash_settings_single_row CHECK (id = 1),
+    CONSTRAINT password_hash_settings_cost_check CHECK (iterations >= 1 AND parallelism >= 1 AND memory_kib >= 8 * parallelism)
+);
@@ -0,0 +1,6 @@
+-- The global sketch of a day is now merged on read from the per-user sketches (CallStatsRepository):
+-- a shared row per day was locked by every writing transaction of that day.
+DELETE FROM user_daily_call_sketches WHERE user_id = '00000000-0000-0000-0000-000000000000';
+
+-- Reads of the global sketch select all users for a range of days
+CREATE INDEX IF NOT EXISTS idx_user_daily_call_sketches_day ON user_daily_call_sketches (day);
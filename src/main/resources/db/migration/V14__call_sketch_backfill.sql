@@ -0,0 +1,17 @@
+-- Progress of the call sketch backfill (CallSketchBackfillService), which replaced the startup migration V8.
+-- Days [next_day, until_day) are still to be rebuilt from calls; each day is rebuilt in its own transaction
+-- together with next_day, so an interrupted run resumes at the first day not done.
+CREATE TABLE call_sketch_backfill (
+    id          smallint      NOT NULL DEFAULT 1,
+    next_day    date          NOT NULL,
+    until_day   date          NOT NULL,
+    finished_at timestamp(6),
+    CONSTRAINT call_sketch_backfill_pkey PRIMARY KEY (id),
+    CONSTRAINT call_sketch_backfill_single_row CHECK (id = 1)
+);
+
+-- Only a database that already had calls but no sketches needs it: the previous V8 filled the sketches
+-- itself, and calls written from now on update their sketches as they are inserted
+INSERT INTO call_sketch_backfill (next_day, until_day)
+SELECT min(start_time)::date, max(start_time)::date + 1 FROM calls
+HAVING min(start_time) IS NOT NULL AND NOT EXISTS (SELECT 1 FROM user_daily_call_sketches);
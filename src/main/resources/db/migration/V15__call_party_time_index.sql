@@ -0,0 +1,2 @@
+-- Retention deletes call_party rows of dropped months in chunks by call_time (CallPartitionService)
+CREATE INDEX IF NOT EXISTS idx_call_party_call_time ON call_party (call_time);
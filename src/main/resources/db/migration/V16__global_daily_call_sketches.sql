@@ -0,0 +1,10 @@
+-- Global sketch of a closed day (CallStatsRepository), merged once from the per-user sketches by the job
+-- global-call-sketches. The current day has no row, so writers never lock one; a write to a closed day
+-- deletes its row, and until it is built again the day is merged on read from the per-user sketches.
+CREATE TABLE global_daily_call_sketches (
+    day            date  NOT NULL,
+    counterparties bytea NOT NULL,
+    durations      bytea NOT NULL,
+    costs          bytea NOT NULL,
+    CONSTRAINT global_daily_call_sketches_pkey PRIMARY KEY (day)
+);
@@ -0,0 +1,81 @@
+-- Baseline schema matching the JPA entities.
+-- Databases previously managed by ddl-auto are baselined at this version and skip it.
+
+CREATE TABLE users (
+    id                      uuid         NOT NULL,
+    username                varchar(255) NOT NULL,
+    password                varchar(255) NOT NULL,
+    last_name               varchar(255) NOT NULL,
+    first_name              varchar(255) NOT NULL,
+    middle_name             varchar(255),
+    avatar_path             varchar(255),
+    public_contact_info     varchar(500),
+    role                    varchar(255) NOT NULL,
+    created_at              timestamp(6),
+    updated_at              timestamp(6),
+    force_password_change   boolean      NOT NULL,
+    reset_code              varchar(255),
+    reset_code_expiry       timestamp(6),
+    account_non_expired     boolean      NOT NULL,
+    account_non_locked      boolean      NOT NULL,
+    credentials_non_expired boolean      NOT NULL,
+    enabled                 boolean      NOT NULL,
+    deleted                 boolean      NOT NULL,
+    deleted_at              timestamp(6),
+    CONSTRAINT users_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT users_role_check CHECK (role IN ('USER', 'ADMIN'))
+);
+
+CREATE TABLE phone_numbers (
+    id         uuid         NOT NULL,
+    user_id    uuid         NOT NULL,
+    phone      varchar(255) NOT NULL,
+    is_primary boolean      NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6),
+    CONSTRAINT phone_numbers_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_phone_numbers_phone UNIQUE (phone),
+    CONSTRAINT fk_phone_numbers_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+-- Monthly partitions are created by CallPartitionService; the default partition catches the rest
+CREATE TABLE calls (
+    id               uuid           NOT NULL,
+    start_time       timestamp(6)   NOT NULL,
+    caller_phone_id  uuid,
+    callee_phone_id  uuid,
+    call_type        varchar(255)   NOT NULL,
+    duration_seconds bigint         NOT NULL,
+    price_per_minute numeric(10, 2) NOT NULL,
+    total_cost       numeric(10, 2) NOT NULL,
+    created_at       timestamp(6)   NOT NULL,
+    updated_at       timestamp(6),
+    CONSTRAINT calls_partitioned_pkey PRIMARY KEY (id, start_time),
+    CONSTRAINT fk_calls_caller_phone FOREIGN KEY (caller_phone_id) REFERENCES phone_numbers (id),
+    CONSTRAINT fk_calls_callee_phone FOREIGN KEY (callee_phone_id) REFERENCES phone_numbers (id),
+    CONSTRAINT calls_call_type_check CHECK (call_type IN ('INCOMING', 'OUTGOING'))
+) PARTITION BY RANGE (start_time);
+
+CREATE TABLE calls_default PARTITION OF calls DEFAULT;
+
+-- call_id has no foreign key: the partitioned calls table is keyed by (id, start_time)
+CREATE TABLE call_party (
+    id                    uuid           NOT NULL,
+    call_id               uuid           NOT NULL,
+    user_id               uuid           NOT NULL,
+    phone_id              uuid           NOT NULL,
+    counterparty_user_id  uuid           NOT NULL,
+    counterparty_phone_id uuid           NOT NULL,
+    direction             varchar(255)   NOT NULL,
+    call_time             timestamp(6)   NOT NULL,
+    duration              bigint         NOT NULL,
+    price_per_minute      numeric(10, 2) NOT NULL,
+    cost                  numeric(10, 2) NOT NULL,
+    CONSTRAINT call_party_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_call_party_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_call_party_phone FOREIGN KEY (phone_id) REFERENCES phone_numbers (id),
+    CONSTRAINT fk_call_party_counterparty_user FOREIGN KEY (counterparty_user_id) REFERENCES users (id),
+    CONSTRAINT fk_call_party_counterparty_phone FOREIGN KEY (counterparty_phone_id) REFERENCES phone_numbers (id),
+    CONSTRAINT call_party_direction_check CHECK (direction IN ('INCOMING', 'OUTGOING'))
+);
@@ -0,0 +1,59 @@
+-- Converts a calls table created by ddl-auto into a monthly range-partitioned table.
+-- No-op when calls is already partitioned (fresh databases or earlier runtime conversion).
+-- A ddl-auto database is baselined at V1 and never runs it; everything V1 has that ddl-auto did not
+-- create (call_party, for databases from before the call_party entity) is created at the end.
+
+DO $$
+DECLARE
+    r      record;
+    month  date;
+    oldest date;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'calls'::regclass) THEN
+        RETURN;
+    END IF;
+
+    FOR r IN SELECT conname FROM pg_constraint
+             WHERE conrelid = to_regclass('call_party') AND confrelid = 'calls'::regclass LOOP
+        EXECUTE format('ALTER TABLE call_party DROP CONSTRAINT %I', r.conname);
+    END LOOP;
+
+    ALTER TABLE calls RENAME TO calls_unpartitioned;
+    CREATE TABLE calls (LIKE calls_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (start_time);
+    ALTER TABLE calls ADD CONSTRAINT calls_partitioned_pkey PRIMARY KEY (id, start_time);
+    ALTER TABLE calls ADD CONSTRAINT fk_calls_caller_phone FOREIGN KEY (caller_phone_id) REFERENCES phone_numbers (id);
+    ALTER TABLE calls ADD CONSTRAINT fk_calls_callee_phone FOREIGN KEY (callee_phone_id) REFERENCES phone_numbers (id);
+    CREATE TABLE calls_default PARTITION OF calls DEFAULT;
+
+    SELECT date_trunc('month', COALESCE(MIN(start_time), now()))::date INTO oldest FROM calls_unpartitioned;
+    month := oldest;
+    WHILE month <= date_trunc('month', now())::date LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF calls FOR VALUES FROM (%L) TO (%L)',
+                       'calls_' || to_char(month, 'YYYY_MM'), month, (month + interval '1 month')::date);
+        month := (month + interval '1 month')::date;
+    END LOOP;
+
+    INSERT INTO calls SELECT * FROM calls_unpartitioned;
+    DROP TABLE calls_unpartitioned;
+END $$;
+
+-- Same definition as in V1
+CREATE TABLE IF NOT EXISTS call_party (
+    id                    uuid           NOT NULL,
+    call_id               uuid           NOT NULL,
+    user_id               uuid           NOT NULL,
+    phone_id              uuid           NOT NULL,
+    counterparty_user_id  uuid           NOT NULL,
+    counterparty_phone_id uuid           NOT NULL,
+    direction             varchar(255)   NOT NULL,
+    call_time             timestamp(6)   NOT NULL,
+    duration              bigint         NOT NULL,
+    price_per_minute      numeric(10, 2) NOT NULL,
+    cost                  numeric(10, 2) NOT NULL,
+    CONSTRAINT call_party_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_call_party_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_call_party_phone FOREIGN KEY (phone_id) REFERENCES phone_numbers (id),
+    CONSTRAINT fk_call_party_counterparty_user FOREIGN KEY (counterparty_user_id) REFERENCES users (id),
+    CONSTRAINT fk_call_party_counterparty_phone FOREIGN KEY (counterparty_phone_id) REFERENCES phone_numbers (id),
+    CONSTRAINT call_party_direction_check CHECK (direction IN ('INCOMING', 'OUTGOING'))
+);
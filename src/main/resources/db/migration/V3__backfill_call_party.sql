@@ -0,0 +1,11 @@
+-- One-time fill of call_party for calls stored before the index table existed
+INSERT INTO call_party (id, call_id, user_id, phone_id, counterparty_user_id, counterparty_phone_id,
+                        direction, call_time, duration, price_per_minute, cost)
+SELECT gen_random_uuid(), c.id, own.user_id, own.id, other.user_id, other.id,
+       CASE WHEN side.outgoing THEN 'OUTGOING' ELSE 'INCOMING' END,
+       c.start_time, c.duration_seconds, c.price_per_minute, c.total_cost
+FROM calls c
+CROSS JOIN (VALUES (true), (false)) AS side(outgoing)
+JOIN phone_numbers own ON own.id = CASE WHEN side.outgoing THEN c.caller_phone_id ELSE c.callee_phone_id END
+JOIN phone_numbers other ON other.id = CASE WHEN side.outgoing THEN c.callee_phone_id ELSE c.caller_phone_id END
+WHERE NOT EXISTS (SELECT 1 FROM call_party p WHERE p.call_id = c.id);
@@ -0,0 +1,29 @@
+-- Indexes matched to the query shapes in CallSpecifications, CallPartySpecifications,
+-- CallRepository and UserRepository. Indexes on calls cascade to every partition.
+
+-- Admin listing: sort keys with id as keyset tie-breaker (buildSort: date, cost, duration, price)
+CREATE INDEX IF NOT EXISTS idx_calls_start_time ON calls (start_time, id);
+CREATE INDEX IF NOT EXISTS idx_calls_total_cost ON calls (total_cost, id);
+CREATE INDEX IF NOT EXISTS idx_calls_duration ON calls (duration_seconds, id);
+CREATE INDEX IF NOT EXISTS idx_calls_price ON calls (price_per_minute, id);
+
+-- Joins from calls to phone_numbers and findByCallerPhone / findByCalleePhone
+CREATE INDEX IF NOT EXISTS idx_calls_caller_phone ON calls (caller_phone_id, start_time);
+CREATE INDEX IF NOT EXISTS idx_calls_callee_phone ON calls (callee_phone_id, start_time);
+
+-- User history: every sort key and the direction filter are a range scan within one user
+DROP INDEX IF EXISTS idx_call_party_user_time;
+CREATE INDEX IF NOT EXISTS idx_call_party_user_time ON call_party (user_id, call_time, id);
+CREATE INDEX IF NOT EXISTS idx_call_party_user_cost ON call_party (user_id, cost, id);
+CREATE INDEX IF NOT EXISTS idx_call_party_user_duration ON call_party (user_id, duration, id);
+CREATE INDEX IF NOT EXISTS idx_call_party_user_price ON call_party (user_id, price_per_minute, id);
+CREATE INDEX IF NOT EXISTS idx_call_party_user_direction_time ON call_party (user_id, direction, call_time, id);
+CREATE INDEX IF NOT EXISTS idx_call_party_call ON call_party (call_id);
+
+-- PhoneNumberRepository.findByUser / findByUserAndIsPrimaryTrue
+CREATE INDEX IF NOT EXISTS idx_phone_numbers_user ON phone_numbers (user_id);
+CREATE INDEX IF NOT EXISTS idx_phone_numbers_user_primary ON phone_numbers (user_id) WHERE is_primary;
+
+-- UserRepository: active-only queries (deleted = false)
+CREATE INDEX IF NOT EXISTS idx_users_active_role ON users (role) WHERE deleted = false;
+CREATE INDEX IF NOT EXISTS idx_users_active_created ON users (created_at) WHERE deleted = false;
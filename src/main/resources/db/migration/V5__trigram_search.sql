@@ -0,0 +1,17 @@
+-- Substring search for the name and phone filters backed by trigram GIN indexes.
+-- search_key columns are maintained by the entities (SearchKeys); the expressions below
+-- must produce the same keys for existing rows.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS search_key varchar(160);
+UPDATE users
+SET search_key = btrim(regexp_replace(
+        lower(translate(concat_ws(' ', last_name, first_name, nullif(btrim(middle_name), '')), 'Ёё', 'Ее')),
+        '\s+', ' ', 'g'));
+
+ALTER TABLE phone_numbers ADD COLUMN IF NOT EXISTS search_key varchar(32);
+UPDATE phone_numbers SET search_key = regexp_replace(phone, '\D', '', 'g');
+
+-- LIKE '%term%' uses these for terms of three or more characters
+CREATE INDEX IF NOT EXISTS idx_users_search_key_trgm ON users USING gin (search_key gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_phone_numbers_search_key_trgm ON phone_numbers USING gin (search_key gin_trgm_ops);
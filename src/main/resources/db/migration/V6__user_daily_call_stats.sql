@@ -0,0 +1,26 @@
+-- Per-user daily call totals, maintained together with call_party (CallStatsRepository)
+CREATE TABLE user_daily_call_stats (
+    user_id          uuid           NOT NULL,
+    day              date           NOT NULL,
+    incoming_calls   bigint         NOT NULL DEFAULT 0,
+    outgoing_calls   bigint         NOT NULL DEFAULT 0,
+    incoming_seconds bigint         NOT NULL DEFAULT 0,
+    outgoing_seconds bigint         NOT NULL DEFAULT 0,
+    incoming_cost    numeric(19, 2) NOT NULL DEFAULT 0,
+    outgoing_cost    numeric(19, 2) NOT NULL DEFAULT 0,
+    CONSTRAINT user_daily_call_stats_pkey PRIMARY KEY (user_id, day),
+    CONSTRAINT fk_user_daily_call_stats_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+-- One-time backfill from the existing call history
+INSERT INTO user_daily_call_stats (user_id, day, incoming_calls, outgoing_calls, incoming_seconds,
+                                   outgoing_seconds, incoming_cost, outgoing_cost)
+SELECT user_id, call_time::date,
+       count(*) FILTER (WHERE direction = 'INCOMING'),
+       count(*) FILTER (WHERE direction = 'OUTGOING'),
+       COALESCE(sum(duration) FILTER (WHERE direction = 'INCOMING'), 0),
+       COALESCE(sum(duration) FILTER (WHERE direction = 'OUTGOING'), 0),
+       COALESCE(sum(cost) FILTER (WHERE direction = 'INCOMING'), 0),
+       COALESCE(sum(cost) FILTER (WHERE direction = 'OUTGOING'), 0)
+FROM call_party
+GROUP BY user_id, call_time::date;
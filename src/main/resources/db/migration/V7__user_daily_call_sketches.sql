@@ -0,0 +1,12 @@
+-- Mergeable per-user daily sketches (CallStatsRepository): HyperLogLog of counterparties and
+-- log-linear histograms of call duration (seconds) and cost (kopecks).
+-- The all-zero user_id holds the global sketch of the day, hence no foreign key to users.
+CREATE TABLE user_daily_call_sketches (
+    user_id        uuid  NOT NULL,
+    day            date  NOT NULL,
+    counterparties bytea NOT NULL DEFAULT '\x'::bytea,
+    durations      bytea NOT NULL DEFAULT '\x'::bytea,
+    costs          bytea NOT NULL DEFAULT '\x'::bytea,
+    CONSTRAINT user_daily_call_sketches_pkey PRIMARY KEY (user_id, day)
+);
+-- Filled from existing calls by the Java migration V8 (com.example.call_track.migration)
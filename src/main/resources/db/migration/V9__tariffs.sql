@@ -0,0 +1,28 @@
+-- Destination tariffs (TariffService): the longest prefix of the callee number with a band covering
+-- the call's start time rates the call. band_end is exclusive; band_end = band_start is the whole day,
+-- band_end < band_start wraps past midnight. Prefix '' is the default for every number.
+CREATE TABLE tariffs (
+    id                      uuid           NOT NULL,
+    prefix                  varchar(15)    NOT NULL,
+    name                    varchar(100)   NOT NULL,
+    band_start              time           NOT NULL DEFAULT '00:00',
+    band_end                time           NOT NULL DEFAULT '00:00',
+    price_per_minute        numeric(10, 2) NOT NULL,
+    first_increment_seconds integer        NOT NULL DEFAULT 60,
+    next_increment_seconds  integer        NOT NULL DEFAULT 60,
+    created_at              timestamp(6)   NOT NULL DEFAULT now(),
+    updated_at              timestamp(6),
+    CONSTRAINT tariffs_pkey PRIMARY KEY (id),
+    CONSTRAINT tariffs_prefix_digits CHECK (prefix ~ '^[0-9]*$'),
+    CONSTRAINT tariffs_price_not_negative CHECK (price_per_minute >= 0),
+    CONSTRAINT tariffs_increments_positive CHECK (first_increment_seconds > 0 AND next_increment_seconds > 0)
+);
+
+CREATE INDEX idx_tariffs_prefix ON tariffs (prefix);
+
+-- Default tariff keeps the former flat 0.10 per minute, billed per second
+INSERT INTO tariffs (id, prefix, name, band_start, band_end, price_per_minute, first_increment_seconds, next_increment_seconds)
+VALUES (gen_random_uuid(), '', 'International', '00:00', '00:00', 0.10, 1, 1),
+       (gen_random_uuid(), '375', 'Belarus, peak', '08:00', '20:00', 0.08, 60, 1),
+       (gen_random_uuid(), '375', 'Belarus, off-peak', '20:00', '08:00', 0.05, 60, 1),
+       (gen_random_uuid(), '7', 'Russia', '00:00', '00:00', 0.25, 60, 60);
@@ -0,0 +1,160 @@
+package com.example.call_track.service;
+
+import com.example.call_track.dto.call.CallImportReport;
+import com.example.call_track.repository.CallBatchRepository;
+import com.example.call_track.repository.CallBatchRepository.NewCall;
+import com.example.call_track.repository.CallBatchRepository.PhoneRef;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallImportServiceTest {
+    private static final String CALLER = "+375291111111";
+    private static final String CALLEE = "+375292222222";
+    // Длительность, на которой поддельная база нарушает ограничение таблицы
+    private static final long BAD_DURATION = 666;
+
+    private final List<NewCall> stored = new ArrayList<>();
+    private int insertCalls;
+    private RuntimeException failure;
+
+    @Test
+    void rejectsBadLinesAndImportsTheRest() throws IOException {
+        CallImportReport report = importCsv(8,
+                "caller,callee,start_time,duration_seconds,price_per_minute",
+                line(60, "1.50"),
+                CALLER + "," + CALLEE + ",2024-03-01T12:00:00,60",
+                line(-1, "1.50"),
+                line(60, "1e30"),
+                line(60, "0.001"),
+                line(60, "-1"),
+                "+375290000000," + CALLEE + ",2024-03-01T12:00:00,60,1.50",
+                line(Long.MAX_VALUE / 2, "1.50"),
+                line(60, "99999999.99"),
+                line(60, "1.500"),
+                line(61, "99999999.99"));
+
+        assertEquals(3, report.getImported());
+        assertEquals(8, report.getRejected());
+        Map<Long, String> rejects = reasons(report);
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L, 8L, 9L, 12L), List.copyOf(rejects.keySet()));
+        assertTrue(rejects.get(3L).contains("Expected 5 or 6 columns"));
+        assertTrue(rejects.get(5L).contains("must not exceed"));
+        assertTrue(rejects.get(6L).contains("at most 2 decimal places"));
+        assertTrue(rejects.get(8L).contains("Unknown caller phone"));
+        assertTrue(rejects.get(9L).contains("Call cost must not exceed"));
+        assertTrue(rejects.get(12L).contains("Call cost must not exceed"));
+    }
+
+    @Test
+    void splitsFailedBatchAndRejectsOnlyTheBadRow() throws IOException {
+        failure = new DataIntegrityViolationException("new row violates check constraint");
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) lines.add(line(i == 6 ? BAD_DURATION : i, "1.00"));
+
+        CallImportReport report = importCsv(8, lines.toArray(new String[0]));
+
+        assertEquals(7, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(6, report.getRejects().get(0).getLine());
+        assertTrue(report.getRejects().get(0).getReason().startsWith("Insert failed: "));
+        assertEquals(7, stored.size());
+        assertTrue(stored.stream().noneMatch(call -> call.getDurationSeconds() == BAD_DURATION));
+    }
+
+    @Test
+    void rejectsWholeBatchWithoutSplittingOnTransientFailure() throws IOException {
+        failure = new TransientDataAccessResourceException("connection reset");
+        CallImportReport report = importCsv(4, line(BAD_DURATION, "1.00"), line(1, "1.00"), line(2, "1.00"));
+
+        assertEquals(0, report.getImported());
+        assertEquals(3, report.getRejected());
+        assertEquals(1, insertCalls);
+        assertTrue(report.getRejects().stream().allMatch(reject -> reject.getReason().startsWith("Batch failed: ")));
+    }
+
+    private CallImportReport importCsv(int batchSize, String... lines) throws IOException {
+        CallImportService service = new CallImportService(repository(), new TransactionTemplate(new NoTransactionManager()),
+                new CallGraphService(null, null, null) {
+                    @Override
+                    public void record(List<NewCall> calls) {
+                    }
+                }, new TariffService(null), JsonMapper.builder().build());
+        ReflectionTestUtils.setField(service, "batchSize", batchSize);
+        ReflectionTestUtils.setField(service, "maxReportedRejects", 100);
+        ReflectionTestUtils.setField(service, "progressInterval", 1_000L);
+        ReflectionTestUtils.setField(service, "phoneCacheSize", 100);
+
+        byte[] input = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return service.importCalls(new ByteArrayInputStream(input), CallImportService.Format.CSV, JobContext.detached());
+    }
+
+    private CallBatchRepository repository() {
+        return new CallBatchRepository(null, null, null) {
+            @Override
+            public Map<String, PhoneRef> findPhoneRefs(Collection<String> phones) {
+                Map<String, PhoneRef> found = new HashMap<>();
+                for (String phone : List.of(CALLER, CALLEE)) {
+                    if (phones.contains(phone)) found.put(phone, new PhoneRef(UUID.randomUUID(), UUID.randomUUID(), phone));
+                }
+                return found;
+            }
+
+            @Override
+            public List<NewCall> insert(List<NewCall> calls) {
+                insertCalls++;
+                if (failure != null && calls.stream().anyMatch(call -> call.getDurationSeconds() == BAD_DURATION)) {
+                    throw failure;
+                }
+                stored.addAll(calls);
+                return calls;
+            }
+        };
+    }
+
+    private static String line(long durationSeconds, String pricePerMinute) {
+        return CALLER + "," + CALLEE + ",2024-03-01T12:00:00," + durationSeconds + "," + pricePerMinute;
+    }
+
+    private static Map<Long, String> reasons(CallImportReport report) {
+        return report.getRejects().stream().collect(Collectors.toMap(CallImportReport.RejectedLine::getLine,
+                CallImportReport.RejectedLine::getReason, (a, b) -> a, TreeMap::new));
+    }
+
+    private static class NoTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.call_track.service;
+
+import com.example.call_track.entity.call.CallType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallWriteAheadLogTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysAppendedEntriesAfterReopen() throws IOException {
+        CallWriteAheadLog wal = open(1 << 20);
+        CallWriteAheadLog.Entry priced = wal.append(entry(new BigDecimal("1.50")));
+        CallWriteAheadLog.Entry rated = wal.append(entry(null));
+        wal.close();
+
+        CallWriteAheadLog reopened = open(1 << 20);
+        List<CallWriteAheadLog.Entry> replayed = replay(reopened);
+        assertEquals(2, replayed.size());
+        assertEquals(1, replayed.get(0).getSeq());
+        assertEquals(priced.getId(), replayed.get(0).getId());
+        assertEquals(priced.getCallDateTime(), replayed.get(0).getCallDateTime());
+        assertEquals(priced.getCallerPhone(), replayed.get(0).getCallerPhone());
+        assertEquals(priced.getCalleePhone(), replayed.get(0).getCalleePhone());
+        assertEquals(CallType.OUTGOING, replayed.get(0).getCallType());
+        assertEquals(priced.getDurationSeconds(), replayed.get(0).getDurationSeconds());
+        assertEquals(new BigDecimal("1.50"), replayed.get(0).getPricePerMinute());
+        assertEquals(rated.getId(), replayed.get(1).getId());
+        assertNull(replayed.get(1).getPricePerMinute());
+        reopened.close();
+    }
+
+    @Test
+    void continuesSequenceAfterReopen() throws IOException {
+        CallWriteAheadLog wal = open(1 << 20);
+        wal.append(entry(null));
+        wal.append(entry(null));
+        wal.close();
+
+        CallWriteAheadLog reopened = open(1 << 20);
+        assertEquals(3, reopened.append(entry(null)).getSeq());
+        reopened.close();
+    }
+
+    @Test
+    void replaysOnlyEntriesAfterCheckpoint() throws IOException {
+        CallWriteAheadLog wal = open(1 << 20);
+        for (int i = 0; i < 3; i++) wal.append(entry(null));
+        wal.checkpoint(2);
+        wal.close();
+
+        CallWriteAheadLog reopened = open(1 << 20);
+        assertEquals(2, reopened.getCheckpointSeq());
+        List<CallWriteAheadLog.Entry> replayed = replay(reopened);
+        assertEquals(1, replayed.size());
+        assertEquals(3, replayed.get(0).getSeq());
+        reopened.close();
+    }
+
+    @Test
+    void checkpointDeletesSegmentsWithOnlyCheckpointedEntries() throws IOException {
+        // Сегмент в один байт: каждая запись после первой открывает новый
+        CallWriteAheadLog wal = open(1);
+        for (int i = 0; i < 3; i++) wal.append(entry(null));
+        assertEquals(3, segments().size());
+
+        wal.checkpoint(2);
+        List<Path> left = segments();
+        assertEquals(1, left.size());
+        assertTrue(left.get(0).getFileName().toString().contains("00000000000000000003"));
+        wal.close();
+    }
+
+    @Test
+    void truncatesTornTailOfLastSegment() throws IOException {
+        CallWriteAheadLog wal = open(1 << 20);
+        wal.append(entry(null));
+        wal.append(entry(null));
+        wal.close();
+        Path segment = segments().get(0);
+        long intact = Files.size(segment);
+        // Запись, оборванная на середине: длина и контрольная сумма без данных
+        Files.write(segment, new byte[] { 0, 0, 0, 40, 1, 2, 3, 4, 5 }, StandardOpenOption.APPEND);
+
+        CallWriteAheadLog reopened = open(1 << 20);
+        assertEquals(intact, Files.size(segment));
+        assertEquals(2, replay(reopened).size());
+        reopened.append(entry(null));
+        reopened.close();
+
+        assertEquals(3, replay(open(1 << 20)).size());
+    }
+
+    @Test
+    void refusesCorruptedSegmentBeforeTheLast() throws IOException {
+        CallWriteAheadLog wal = open(1);
+        wal.append(entry(null));
+        wal.append(entry(null));
+        wal.close();
+        Files.write(segments().get(0), new byte[] { 0, 0, 0, 40, 1, 2, 3, 4 }, StandardOpenOption.APPEND);
+
+        assertThrows(IOException.class, () -> open(1));
+    }
+
+    @Test
+    void cutsOffRecordOfFailedWriteAndKeepsLaterAppends() throws IOException {
+        int[] writes = { 0 };
+        CallWriteAheadLog wal = open(new CallWriteAheadLog() {
+            @Override
+            void writeRecord(FileChannel channel, ByteBuffer record) throws IOException {
+                if (++writes[0] != 2) {
+                    super.writeRecord(channel, record);
+                    return;
+                }
+                // Половина записи дошла до файла, затем ошибка диска
+                record.limit(record.limit() / 2);
+                super.writeRecord(channel, record);
+                throw new IOException("No space left on device");
+            }
+        }, 1 << 20);
+        CallWriteAheadLog.Entry first = wal.append(entry(null));
+        assertThrows(UncheckedIOException.class, () -> wal.append(entry(null)));
+        CallWriteAheadLog.Entry third = wal.append(entry(null));
+        wal.close();
+
+        List<CallWriteAheadLog.Entry> replayed = replay(open(1 << 20));
+        assertEquals(2, replayed.size());
+        assertEquals(first.getId(), replayed.get(0).getId());
+        assertEquals(third.getId(), replayed.get(1).getId());
+    }
+
+    @Test
+    void refusesAppendsWhenFailedRecordCannotBeCutOff() throws IOException {
+        CallWriteAheadLog wal = open(new CallWriteAheadLog() {
+            @Override
+            void writeRecord(FileChannel channel, ByteBuffer record) throws IOException {
+                // Канал закрыт — обрезать недописанную запись тоже не удастся
+                channel.close();
+                throw new IOException("Input/output error");
+            }
+        }, 1 << 20);
+
+        assertThrows(UncheckedIOException.class, () -> wal.append(entry(null)));
+        UncheckedIOException refused = assertThrows(UncheckedIOException.class, () -> wal.append(entry(null)));
+        assertEquals("Call WAL is unusable after a failed append", refused.getMessage());
+    }
+
+    private CallWriteAheadLog open(long segmentBytes) throws IOException {
+        return open(new CallWriteAheadLog(), segmentBytes);
+    }
+
+    private CallWriteAheadLog open(CallWriteAheadLog wal, long segmentBytes) throws IOException {
+        ReflectionTestUtils.setField(wal, "walDir", dir.toString());
+        ReflectionTestUtils.setField(wal, "segmentBytes", segmentBytes);
+        wal.open();
+        return wal;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static List<CallWriteAheadLog.Entry> replay(CallWriteAheadLog wal) throws IOException {
+        List<CallWriteAheadLog.Entry> entries = new ArrayList<>();
+        wal.replay(entries::add);
+        return entries;
+    }
+
+    private static CallWriteAheadLog.Entry entry(BigDecimal pricePerMinute) {
+        return CallWriteAheadLog.Entry.builder()
+                .id(UUID.randomUUID())
+                .callDateTime(LocalDateTime.of(2024, 3, 1, 12, 30, 15))
+                .callerPhone("+375291111111")
+                .calleePhone("+375292222222")
+                .callType(CallType.OUTGOING)
+                .durationSeconds(125)
+                .pricePerMinute(pricePerMinute)
+                .build();
+    }
+}
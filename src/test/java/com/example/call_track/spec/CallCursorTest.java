@@ -0,0 +1,72 @@
+package com.example.call_track.spec;
+
+import com.example.call_track.dto.call.CallRow;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallCursorTest {
+    private final CallRow row = CallRow.builder()
+            .id(UUID.randomUUID())
+            .callDateTime(LocalDateTime.of(2024, 3, 1, 12, 30, 15, 250_000_000))
+            .durationSeconds(125L)
+            .pricePerMinute(new BigDecimal("1.50"))
+            .totalCost(new BigDecimal("3.15"))
+            .build();
+
+    @Test
+    void roundTripsEverySortField() {
+        assertRoundTrip(CallCursor.after(row, "callDateTime"), row.getCallDateTime());
+        assertRoundTrip(CallCursor.after(row, "durationSeconds"), 125L);
+        assertRoundTrip(CallCursor.after(row, "pricePerMinute"), new BigDecimal("1.50"));
+        assertRoundTrip(CallCursor.before(row, "totalCost"), new BigDecimal("3.15"));
+    }
+
+    @Test
+    void keepsDirection() {
+        assertFalse(CallCursor.decode(CallCursor.after(row, "totalCost").encode(), "totalCost").isBackward());
+        assertTrue(CallCursor.decode(CallCursor.before(row, "totalCost").encode(), "totalCost").isBackward());
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertNull(CallCursor.decode(null, "callDateTime"));
+        assertNull(CallCursor.decode(" ", "callDateTime"));
+    }
+
+    @Test
+    void rejectsCursorOfAnotherSort() {
+        String cursor = CallCursor.after(row, "totalCost").encode();
+        assertThrows(IllegalArgumentException.class, () -> CallCursor.decode(cursor, "callDateTime"));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(IllegalArgumentException.class, () -> CallCursor.decode("not base64!", "callDateTime"));
+        assertThrows(IllegalArgumentException.class, () -> CallCursor.decode(encode("n|callDateTime|yesterday|" + row.getId()), "callDateTime"));
+        assertThrows(IllegalArgumentException.class, () -> CallCursor.decode(encode("n|durationSeconds|12|not-a-uuid"), "durationSeconds"));
+        assertThrows(IllegalArgumentException.class, () -> CallCursor.decode(encode("n|callDateTime"), "callDateTime"));
+    }
+
+    private void assertRoundTrip(CallCursor cursor, Object value) {
+        CallCursor decoded = CallCursor.decode(cursor.encode(), cursor.getField());
+        assertEquals(cursor.getField(), decoded.getField());
+        assertEquals(value, decoded.getValue());
+        assertEquals(row.getId(), decoded.getId());
+        assertEquals(cursor.isBackward(), decoded.isBackward());
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.call_track.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+    // Стандартная ошибка при 2^11 регистрах около 2.3%; проверяем с запасом в три сигмы
+    private static final double TOLERANCE = 0.07;
+
+    @Test
+    void smallCardinalitiesAreNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        List<UUID> ids = ids(50, 1);
+        for (UUID id : ids) sketch.add(id);
+        // Повторы не увеличивают оценку
+        for (UUID id : ids) sketch.add(id);
+        assertEquals(50, sketch.estimate(), 1);
+    }
+
+    @Test
+    void estimateStaysWithinErrorBound() {
+        for (int n : new int[] { 1_000, 10_000, 200_000 }) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (UUID id : ids(n, n)) sketch.add(id);
+            assertWithinBound(n, sketch.estimate());
+        }
+    }
+
+    @Test
+    void mergeEstimatesTheUnion() {
+        List<UUID> ids = ids(30_000, 7);
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        // Пересечение в 10 000: объединение — 30 000 различных
+        for (UUID id : ids.subList(0, 20_000)) first.add(id);
+        for (UUID id : ids.subList(10_000, 30_000)) second.add(id);
+
+        first.merge(second);
+        assertWithinBound(30_000, first.estimate());
+    }
+
+    @Test
+    void mergesSparseAndDenseSketches() {
+        List<UUID> ids = ids(5_010, 11);
+        HyperLogLog dense = new HyperLogLog();
+        for (UUID id : ids.subList(0, 5_000)) dense.add(id);
+        HyperLogLog sparse = new HyperLogLog();
+        for (UUID id : ids.subList(5_000, 5_010)) sparse.add(id);
+
+        HyperLogLog merged = new HyperLogLog();
+        merged.merge(sparse);
+        merged.merge(dense);
+        assertWithinBound(5_010, merged.estimate());
+
+        sparse.merge(dense);
+        assertEquals(merged.estimate(), sparse.estimate());
+    }
+
+    @Test
+    void roundTripsBothFormats() {
+        HyperLogLog sparse = new HyperLogLog();
+        for (UUID id : ids(20, 3)) sparse.add(id);
+        HyperLogLog dense = new HyperLogLog();
+        for (UUID id : ids(50_000, 5)) dense.add(id);
+
+        byte[] sparseBytes = sparse.toBytes();
+        // Разреженная форма: формат, число регистров и 3 байта на регистр
+        assertTrue(sparseBytes.length < 100);
+        assertEquals(sparse.estimate(), HyperLogLog.fromBytes(sparseBytes).estimate());
+        assertEquals(dense.estimate(), HyperLogLog.fromBytes(dense.toBytes()).estimate());
+        assertEquals(0, HyperLogLog.fromBytes(new byte[0]).estimate());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] { 9 }));
+    }
+
+    private static void assertWithinBound(long expected, long estimate) {
+        double error = Math.abs(estimate - expected) / (double) expected;
+        assertTrue(error <= TOLERANCE, "estimate " + estimate + " of " + expected + " is off by " + error);
+    }
+
+    private static List<UUID> ids(int count, long seed) {
+        Random random = new Random(seed);
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) ids.add(new UUID(random.nextLong(), random.nextLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.call_track.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogHistogramTest {
+
+    @Test
+    void smallValuesAreExact() {
+        LogHistogram histogram = new LogHistogram();
+        for (long value = 0; value < 32; value++) histogram.add(value);
+        assertEquals(32, histogram.getTotalCount());
+        assertEquals(0, histogram.quantile(0));
+        assertEquals(15, histogram.quantile(0.5));
+        assertEquals(31, histogram.quantile(1));
+    }
+
+    @Test
+    void quantilesAreWithinBucketPrecision() {
+        Random random = new Random(1);
+        long[] values = new long[100_000];
+        LogHistogram histogram = new LogHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Длительности от секунд до часов, с длинным хвостом
+            values[i] = (long) Math.exp(random.nextDouble() * 9);
+            histogram.add(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[] { 0.5, 0.9, 0.95, 0.99 }) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long estimate = histogram.quantile(q);
+            // Ширина корзины — 1/32 степени двойки, середина отстоит от значения не больше чем на ~3%
+            assertTrue(Math.abs(estimate - exact) <= Math.max(1, exact * 0.035),
+                    "p" + q + ": " + estimate + " vs " + exact);
+        }
+    }
+
+    @Test
+    void mergeAddsCounts() {
+        LogHistogram low = new LogHistogram();
+        LogHistogram high = new LogHistogram();
+        for (int i = 0; i < 900; i++) low.add(10);
+        for (int i = 0; i < 100; i++) high.add(1_000_000);
+
+        low.merge(high);
+        assertEquals(1_000, low.getTotalCount());
+        assertEquals(10, low.quantile(0.9));
+        long p99 = low.quantile(0.99);
+        assertTrue(Math.abs(p99 - 1_000_000) <= 1_000_000 * 0.035, "p99 " + p99);
+    }
+
+    @Test
+    void negativeCountMovesValueToAnotherBucket() {
+        LogHistogram stored = new LogHistogram();
+        LogHistogram expected = new LogHistogram();
+        for (long cost = 100; cost < 10_000; cost += 7) {
+            stored.add(cost);
+            expected.add(cost == 2_000 ? 150_000 : cost);
+        }
+        stored.add(2_000);
+        expected.add(150_000);
+
+        LogHistogram delta = new LogHistogram();
+        delta.add(2_000, -1);
+        delta.add(150_000, 1);
+        stored.merge(delta);
+
+        LogHistogram copy = LogHistogram.fromBytes(stored.toBytes());
+        assertEquals(expected.getTotalCount(), copy.getTotalCount());
+        assertArrayEquals(expected.toBytes(), copy.toBytes());
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        LogHistogram histogram = new LogHistogram();
+        histogram.add(0);
+        histogram.add(5, 3);
+        histogram.add(123_456);
+        histogram.add(Long.MAX_VALUE / 2);
+
+        LogHistogram copy = LogHistogram.fromBytes(histogram.toBytes());
+        assertEquals(histogram.getTotalCount(), copy.getTotalCount());
+        for (double q : new double[] { 0, 0.2, 0.5, 0.7, 0.9, 1 }) {
+            assertEquals(histogram.quantile(q), copy.quantile(q));
+        }
+        assertEquals(0, LogHistogram.fromBytes(null).getTotalCount());
+        assertEquals(0, new LogHistogram().quantile(0.5));
+    }
+
+    @Test
+    void rejectsNegativeValuesAndQuantiles() {
+        LogHistogram histogram = new LogHistogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.add(-1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.quantile(1.5));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.call_track.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongCounterMapTest {
+
+    @Test
+    void keepsTheIncrementThatTriggersGrowth() {
+        // Таблица на 8 ячеек растет на 5-м ключе, затем на 10-м, 20-м...: приращение, вызвавшее рост, не теряется
+        LongCounterMap map = new LongCounterMap(2, 4);
+        for (long key = 1; key <= 1_000; key++) {
+            map.add(key, 1, key);
+            assertEquals(key, map.get(key, 1), "counter of key " + key);
+        }
+        assertEquals(1_000, map.size());
+        for (long key = 1; key <= 1_000; key++) {
+            assertEquals(0, map.get(key, 0));
+            assertEquals(key, map.get(key, 1));
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomUpdates() {
+        LongCounterMap map = new LongCounterMap(3);
+        Map<Long, long[]> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Ключи вида from << 32 | to, как у ребер графа звонков
+            long key = (long) random.nextInt(300) << 32 | random.nextInt(300);
+            int column = random.nextInt(3);
+            long delta = random.nextInt(100);
+            map.add(key, column, delta);
+            expected.computeIfAbsent(key, k -> new long[3])[column] += delta;
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, counters) -> {
+            for (int c = 0; c < 3; c++) assertEquals(counters[c], map.get(key, c));
+        });
+        int[] visited = { 0 };
+        map.forEach((key, entry) -> {
+            visited[0]++;
+            for (int c = 0; c < 3; c++) assertEquals(expected.get(key)[c], entry.get(c));
+        });
+        assertEquals(expected.size(), visited[0]);
+    }
+
+    @Test
+    void addAllSumsCountersAcrossGrowth() {
+        LongCounterMap target = new LongCounterMap(2);
+        LongCounterMap other = new LongCounterMap(2);
+        for (long key = 0; key < 500; key++) {
+            target.add(key, 0, 1);
+            other.add(key + 250, 0, 2);
+            other.add(key + 250, 1, 3);
+        }
+
+        target.addAll(other);
+
+        assertEquals(750, target.size());
+        assertEquals(1, target.get(0, 0));
+        assertEquals(3, target.get(300, 0));
+        assertEquals(3, target.get(300, 1));
+        assertEquals(2, target.get(700, 0));
+    }
+
+    @Test
+    void absentKeysReadAsZero() {
+        LongCounterMap map = new LongCounterMap(1);
+        map.add(7, 0, 5);
+        assertTrue(map.containsKey(7));
+        assertFalse(map.containsKey(8));
+        assertEquals(0, map.get(8, 0));
+    }
+
+    @Test
+    void rejectsReservedKeyAndMismatchedColumns() {
+        LongCounterMap map = new LongCounterMap(2);
+        assertThrows(IllegalArgumentException.class, () -> map.add(Long.MIN_VALUE, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> map.addAll(new LongCounterMap(3)));
+        assertThrows(IllegalArgumentException.class, () -> new LongCounterMap(0));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.call_track.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TariffTableTest {
+    private static final int HOUR = 3600;
+
+    // 7 — весь день; 7495 — только днем; 79 — ночью через полночь
+    private final TariffTable table = TariffTable.builder()
+            .band("7", 0, 0, 200, 60, 60, "country")
+            .band("7495", 8 * HOUR, 20 * HOUR, 100, 1, 1, "city-day")
+            .band("79", 22 * HOUR, 6 * HOUR, 50, 1, 1, "mobile-night")
+            .build();
+
+    @Test
+    void longestPrefixWins() {
+        assertEquals("city-day", source("+7 (495) 123-45-67", 9 * HOUR));
+        assertEquals("country", source("+7 812 123-45-67", 9 * HOUR));
+    }
+
+    @Test
+    void fallsBackToShorterPrefixOutsideTheBand() {
+        assertEquals("country", source("+74951234567", 21 * HOUR));
+        assertEquals("city-day", source("+74951234567", 20 * HOUR - 1));
+        assertEquals("country", source("+74951234567", 20 * HOUR));
+    }
+
+    @Test
+    void overnightBandWrapsPastMidnight() {
+        assertEquals("mobile-night", source("79001234567", 23 * HOUR));
+        assertEquals("mobile-night", source("79001234567", 0));
+        assertEquals("mobile-night", source("79001234567", 6 * HOUR - 1));
+        assertEquals("country", source("79001234567", 6 * HOUR));
+        assertEquals("country", source("79001234567", 12 * HOUR));
+    }
+
+    @Test
+    void unknownDestinationHasNoMatch() {
+        assertEquals(TariffTable.NO_MATCH, table.match("88001234567", 12 * HOUR));
+        assertEquals(TariffTable.NO_MATCH, TariffTable.empty().match("7", 0));
+    }
+
+    @Test
+    void rejectsSecondOutsideTheDay() {
+        assertThrows(IllegalArgumentException.class, () -> table.match("7", -1));
+        assertThrows(IllegalArgumentException.class, () -> table.match("7", 24 * HOUR));
+    }
+
+    @Test
+    void costRoundsUpIncrementsAndMinorUnits() {
+        int country = table.match("78121234567", 0);
+        // 61 с при шаге 60/60 — две минуты по 2.00
+        assertEquals(400, table.cost(country, 61));
+        assertEquals(200, table.cost(country, 60));
+        assertEquals(0, table.cost(country, 0));
+
+        int night = table.match("79001234567", 0);
+        // Посекундно: 0.50 в минуту за 61 с = 50.83 копейки, округляется вверх
+        assertEquals(51, table.cost(night, 61));
+        assertEquals(10, TariffTable.billedSeconds(7, 10, 5));
+        assertEquals(15, TariffTable.billedSeconds(11, 10, 5));
+    }
+
+    @Test
+    void rejectsOverlappingBandsOfOnePrefix() {
+        TariffTable.Builder builder = TariffTable.builder()
+                .band("375", 0, 12 * HOUR, 10, 1, 1, null)
+                .band("375", 11 * HOUR, 13 * HOUR, 10, 1, 1, null);
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    @Test
+    void perSecondCostDetectsOverflow() {
+        assertThrows(ArithmeticException.class, () -> TariffTable.perSecondCost(Long.MAX_VALUE / 2, 3));
+    }
+
+    private Object source(String number, int secondOfDay) {
+        return table.source(table.match(number, secondOfDay));
+    }
+}